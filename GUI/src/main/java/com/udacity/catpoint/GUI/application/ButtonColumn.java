@@ -0,0 +1,59 @@
+package com.udacity.catpoint.GUI.application;
+
+import javax.swing.*;
+import javax.swing.table.TableCellEditor;
+import javax.swing.table.TableCellRenderer;
+import java.awt.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Renders a table column as buttons. A single button instance is shared for painting every
+ * row and another one handles clicks, so the number of components does not grow with the
+ * number of rows.
+ */
+public class ButtonColumn extends AbstractCellEditor implements TableCellRenderer, TableCellEditor {
+
+    private final JButton renderButton = new JButton();
+    private final JButton editButton = new JButton();
+    private final IntConsumer action;
+    private int editingRow = -1;
+
+    /**
+     * @param table The table to install the column on
+     * @param column The column index in the table's column model
+     * @param action Callback receiving the model row of the clicked button
+     */
+    public ButtonColumn(JTable table, int column, IntConsumer action) {
+        this.action = action;
+        editButton.setFocusPainted(false);
+        editButton.addActionListener(e -> {
+            int row = editingRow;
+            fireEditingStopped();
+            if(row >= 0) {
+                action.accept(row);
+            }
+        });
+        table.getColumnModel().getColumn(column).setCellRenderer(this);
+        table.getColumnModel().getColumn(column).setCellEditor(this);
+    }
+
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                   boolean hasFocus, int row, int column) {
+        renderButton.setText(value == null ? "" : value.toString());
+        return renderButton;
+    }
+
+    @Override
+    public Component getTableCellEditorComponent(JTable table, Object value, boolean isSelected,
+                                                 int row, int column) {
+        editingRow = table.convertRowIndexToModel(row);
+        editButton.setText(value == null ? "" : value.toString());
+        return editButton;
+    }
+
+    @Override
+    public Object getCellEditorValue() {
+        return editButton.getText();
+    }
+}
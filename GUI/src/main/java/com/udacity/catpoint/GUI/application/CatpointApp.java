@@ -1,11 +1,51 @@
 package com.udacity.catpoint.GUI.application;
 
+import com.udacity.catpoint.security.service.SecurityService;
+
+import javax.swing.*;
+import java.lang.management.ManagementFactory;
+
 /**
  * This is the main class that launches the application.
+ *
+ * The services are built on the main thread and the window on the Event Dispatch Thread;
+ * subsystems that are not needed to show the window start after its first paint. With
+ * -Dcatpoint.startup.report=true the time from process start to each phase is printed to
+ * standard error, and -Dcatpoint.startup.exitAfterPaint=true exits after the first paint,
+ * for measuring startup and for training class data sharing archives.
  */
 public class CatpointApp {
+    private static final boolean REPORT = Boolean.getBoolean("catpoint.startup.report");
+    private static final boolean EXIT_AFTER_PAINT = Boolean.getBoolean("catpoint.startup.exitAfterPaint");
+
     public static void main(String[] args) {
-        CatpointGui gui = new CatpointGui();
-        gui.setVisible(true);
+        //phases are timed by nanoTime from the JVM start; java.management is only loaded when reporting
+        long startNanos = REPORT
+                ? System.nanoTime() - (System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime()) * 1_000_000
+                : 0;
+        report("main", startNanos);
+
+        SecurityService securityService = CatpointGui.createSecurityService();
+        report("services", startNanos);
+
+        SwingUtilities.invokeLater(() -> {
+            CatpointGui gui = new CatpointGui(securityService);
+            gui.onFirstPaint(() -> {
+                report("first paint", startNanos);
+                if(EXIT_AFTER_PAINT) {
+                    System.exit(0);
+                }
+                Thread background = new Thread(gui::startBackgroundServices, "catpoint-startup");
+                background.setDaemon(true);
+                background.start();
+            });
+            gui.setVisible(true);
+        });
+    }
+
+    private static void report(String phase, long startNanos) {
+        if(REPORT) {
+            System.err.printf("startup: %s after %d ms%n", phase, (System.nanoTime() - startNanos) / 1_000_000);
+        }
     }
 }
@@ -3,12 +3,26 @@ package com.udacity.catpoint.GUI.application;
 
 import com.udacity.catpoint.image.service.FakeImageService;
 import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.security.data.JournaledSecurityRepositoryImpl;
 import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.SecurityEventStore;
 import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.push.StatePushServer;
+import com.udacity.catpoint.security.service.AlarmDelays;
+import com.udacity.catpoint.security.service.AlarmRuleEngine;
+import com.udacity.catpoint.security.service.CatVerdictSmoother;
+import com.udacity.catpoint.security.service.HashedTimingWheel;
 import com.udacity.catpoint.security.service.SecurityService;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 
 /**
  * This is the primary JFrame for the application that contains all the top-level JPanels.
@@ -17,21 +31,32 @@ import javax.swing.*;
  * all our dependencies and providing them to other classes as necessary.
  */
 public class CatpointGui extends JFrame {
-    private SecurityRepository securityRepository = new PretendDatabaseSecurityRepositoryImpl();
-    private ImageService imageService = new FakeImageService();
-    private SecurityService securityService = new SecurityService(securityRepository, imageService);
-    private DisplayPanel displayPanel = new DisplayPanel(securityService);
-    private SensorPanel sensorPanel = new SensorPanel(securityService);
-    private ControlPanel controlPanel = new ControlPanel(securityService, sensorPanel);
+    //where alarm, sensor and camera events are recorded, override with -Dcatpoint.history.dir
+    private static final Path HISTORY_DIRECTORY = Path.of(System.getProperty("catpoint.history.dir",
+            Path.of(System.getProperty("user.home"), ".catpoint", "history").toString()));
 
-    private ImagePanel imagePanel = new ImagePanel(securityService);
+    private final SecurityService securityService;
+    private final DisplayPanel displayPanel;
+    private final SensorPanel sensorPanel;
+    private final ControlPanel controlPanel;
+    private final ImagePanel imagePanel;
+    private Runnable firstPaintCallback;
 
-    public CatpointGui() {
+    /**
+     * Builds the window. Must be called on the Event Dispatch Thread.
+     */
+    public CatpointGui(SecurityService securityService) {
+        this.securityService = securityService;
         setLocation(100, 100);
         setSize(600, 850);
         setTitle("Very Secure App");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
+        displayPanel = new DisplayPanel(securityService);
+        sensorPanel = new SensorPanel(securityService);
+        controlPanel = new ControlPanel(securityService, sensorPanel);
+        imagePanel = new ImagePanel(securityService);
+
         JPanel mainPanel = new JPanel();
         mainPanel.setLayout(new MigLayout());
         mainPanel.add(displayPanel, "wrap");
@@ -42,4 +67,103 @@ public class CatpointGui extends JFrame {
         getContentPane().add(mainPanel);
 
     }
+
+    /**
+     * Builds the repository and services, applying the configuration that decides how the
+     * alarm behaves. Does not touch Swing apart from error dialogs, so it can run on the main
+     * thread while the Event Dispatch Thread starts.
+     */
+    public static SecurityService createSecurityService() {
+        SecurityRepository securityRepository = createRepository();
+        ImageService imageService = new FakeImageService();
+        SecurityService securityService = new SecurityService(securityRepository, imageService);
+
+        //alarm rules replacing the built-in ones, see AlarmRule for the format
+        String rulesFile = System.getProperty("catpoint.rules");
+        if(rulesFile != null) {
+            try (Reader reader = Files.newBufferedReader(Path.of(rulesFile))) {
+                securityService.setAlarmRules(AlarmRuleEngine.parse(reader));
+            } catch (IOException | IllegalArgumentException e) {
+                showError("Alarm rules could not be loaded: " + e.getMessage());
+            }
+        }
+        //entry/exit delays, for example -Dcatpoint.delays=ARMED_AWAY=30s/60s,ARMED_HOME=10s/0s
+        String delays = System.getProperty("catpoint.delays");
+        if(delays != null) {
+            try {
+                securityService.setAlarmDelays(AlarmDelays.parse(delays), new HashedTimingWheel(Duration.ofMillis(100), 512));
+            } catch (IllegalArgumentException e) {
+                showError("Alarm delays could not be loaded: " + e.getMessage());
+            }
+        }
+        //cat confidence smoothing across frames, for example -Dcatpoint.smoothing=0.3/60/40
+        String smoothing = System.getProperty("catpoint.smoothing");
+        if(smoothing != null) {
+            try {
+                securityService.setVerdictSmoother(CatVerdictSmoother.parse(smoothing));
+            } catch (IllegalArgumentException e) {
+                showError("Cat smoothing could not be loaded: " + e.getMessage());
+            }
+        }
+        return securityService;
+    }
+
+    /**
+     * Starts the subsystems that are not needed to show the window: the event history, which
+     * opens and scans its files, and the push server. Events raised before the history is
+     * open are not recorded.
+     */
+    public void startBackgroundServices() {
+        try {
+            securityService.addEventListener(new SecurityEventStore(HISTORY_DIRECTORY));
+        } catch (IOException e) {
+            showError("Event history is unavailable: " + e.getMessage());
+        }
+        //push the state to remote dashboards on the local port given by -Dcatpoint.push.port
+        String pushPort = System.getProperty("catpoint.push.port");
+        if(pushPort != null) {
+            try {
+                new StatePushServer(securityService, new InetSocketAddress("localhost", Integer.parseInt(pushPort)));
+            } catch (IOException | IllegalArgumentException e) {
+                showError("State push server could not be started: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Runs the callback on the Event Dispatch Thread once the window has been painted.
+     */
+    public void onFirstPaint(Runnable callback) {
+        this.firstPaintCallback = callback;
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if(firstPaintCallback != null) {
+            Runnable callback = firstPaintCallback;
+            firstPaintCallback = null;
+            SwingUtilities.invokeLater(callback);
+        }
+    }
+
+    private static void showError(String message) {
+        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null, message));
+    }
+
+    /**
+     * Stores the state in a crash-consistent journal when -Dcatpoint.journal.dir is set,
+     * otherwise in the user preferences.
+     */
+    private static SecurityRepository createRepository() {
+        String journalDirectory = System.getProperty("catpoint.journal.dir");
+        if(journalDirectory != null) {
+            try {
+                return new JournaledSecurityRepositoryImpl(Path.of(journalDirectory));
+            } catch (IOException e) {
+                showError("State journal is unavailable, using preferences: " + e.getMessage());
+            }
+        }
+        return new PretendDatabaseSecurityRepositoryImpl();
+    }
 }
@@ -1,7 +1,6 @@
 package com.udacity.catpoint.GUI.application;
 
 import com.udacity.catpoint.GUI.service.StyleService;
-import com.udacity.catpoint.security.application.StatusListener;
 import com.udacity.catpoint.security.data.AlarmStatus;
 import com.udacity.catpoint.security.service.SecurityService;
 import net.miginfocom.swing.MigLayout;
@@ -12,16 +11,14 @@ import javax.swing.*;
  * Displays the current status of the system. Implements the StatusListener
  * interface so that it can be notified whenever the status changes.
  */
-public class DisplayPanel extends JPanel implements StatusListener {
+public class DisplayPanel extends StatusListenerPanel {
 
     private JLabel currentStatusLabel;
 
     public DisplayPanel(SecurityService securityService) {
-        super();
+        super(securityService);
         setLayout(new MigLayout());
 
-        securityService.addStatusListener(this);
-
         JLabel panelLabel = new JLabel("Very Secure Home Security");
         JLabel systemStatusLabel = new JLabel("System Status:");
         currentStatusLabel = new JLabel();
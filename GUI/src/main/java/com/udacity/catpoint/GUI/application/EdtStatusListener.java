@@ -0,0 +1,133 @@
+package com.udacity.catpoint.GUI.application;
+
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.Sensor;
+
+import javax.swing.*;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Wraps a Swing StatusListener so it can be notified from any thread. Notifications only
+ * record the latest state and return immediately; the wrapped listener is then called on
+ * the Event Dispatch Thread at most {@code maxRefreshesPerSecond} times per second with
+ * whatever state is current at that point. Intermediate states in between are dropped.
+ * Sensors whose status changed are collected until then, and each is passed on once.
+ *
+ * Register the wrapper itself with the service, and keep it to remove it again.
+ */
+public class EdtStatusListener implements StatusListener {
+
+    public static final int DEFAULT_MAX_REFRESHES_PER_SECOND = 30;
+
+    private final StatusListener delegate;
+    private final long minIntervalNanos;
+    private final Timer delayTimer;
+
+    private final AtomicReference<AlarmStatus> pendingStatus = new AtomicReference<>();
+    private final AtomicReference<Boolean> pendingCatDetected = new AtomicReference<>();
+    private final AtomicBoolean pendingSensorChange = new AtomicBoolean();
+    private final Set<Sensor> pendingSensors = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    //only accessed on the EDT
+    private long lastFlushNanos;
+
+    public EdtStatusListener(StatusListener delegate) {
+        this(delegate, DEFAULT_MAX_REFRESHES_PER_SECOND);
+    }
+
+    /**
+     * @throws IllegalArgumentException if maxRefreshesPerSecond is not positive
+     */
+    public EdtStatusListener(StatusListener delegate, int maxRefreshesPerSecond) {
+        if(maxRefreshesPerSecond <= 0) {
+            throw new IllegalArgumentException("maxRefreshesPerSecond must be positive: " + maxRefreshesPerSecond);
+        }
+        this.delegate = delegate;
+        this.minIntervalNanos = TimeUnit.SECONDS.toNanos(1) / maxRefreshesPerSecond;
+        this.lastFlushNanos = System.nanoTime() - minIntervalNanos;
+        this.delayTimer = new Timer(0, e -> flush());
+        this.delayTimer.setRepeats(false);
+    }
+
+    @Override
+    public void notify(AlarmStatus status) {
+        pendingStatus.set(status);
+        schedule();
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+        pendingCatDetected.set(catDetected);
+        schedule();
+    }
+
+    @Override
+    public void sensorStatusChanged() {
+        pendingSensorChange.set(true);
+        schedule();
+    }
+
+    @Override
+    public void sensorStatusChanged(Sensor sensor) {
+        pendingSensors.add(sensor);
+        schedule();
+    }
+
+    /**
+     * Queues a single flush on the EDT unless one is already pending.
+     */
+    private void schedule() {
+        if(scheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::flushWhenDue);
+        }
+    }
+
+    /**
+     * Runs on the EDT. Flushes right away if the last refresh was long enough ago,
+     * otherwise defers the flush until the refresh interval has passed.
+     */
+    private void flushWhenDue() {
+        long waitNanos = lastFlushNanos + minIntervalNanos - System.nanoTime();
+        if(waitNanos > 0) {
+            delayTimer.setInitialDelay((int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+            delayTimer.restart();
+        } else {
+            flush();
+        }
+    }
+
+    private void flush() {
+        //clear the flag first so a notification racing with this flush schedules another one
+        scheduled.set(false);
+        lastFlushNanos = System.nanoTime();
+
+        AlarmStatus status = pendingStatus.getAndSet(null);
+        if(status != null) {
+            delegate.notify(status);
+        }
+        Boolean catDetected = pendingCatDetected.getAndSet(null);
+        if(catDetected != null) {
+            delegate.catDetected(catDetected);
+        }
+        //a change of all sensors covers the single ones
+        boolean allSensors = pendingSensorChange.getAndSet(false);
+        Iterator<Sensor> sensors = pendingSensors.iterator();
+        while(sensors.hasNext()) {
+            Sensor sensor = sensors.next();
+            sensors.remove();
+            if(!allSensors) {
+                delegate.sensorStatusChanged(sensor);
+            }
+        }
+        if(allSensors) {
+            delegate.sensorStatusChanged();
+        }
+    }
+}
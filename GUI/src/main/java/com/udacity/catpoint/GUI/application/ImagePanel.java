@@ -1,7 +1,9 @@
 package com.udacity.catpoint.GUI.application;
 
+import com.udacity.catpoint.GUI.service.DirectoryFrameSource;
+import com.udacity.catpoint.GUI.service.ImageLoadingService;
+import com.udacity.catpoint.GUI.service.LiveFeedService;
 import com.udacity.catpoint.GUI.service.StyleService;
-import com.udacity.catpoint.security.application.StatusListener;
 import com.udacity.catpoint.security.data.AlarmStatus;
 import com.udacity.catpoint.security.service.SecurityService;
 import net.miginfocom.swing.MigLayout;
@@ -12,25 +14,36 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /** Panel containing the 'camera' output. Allows users to 'refresh' the camera
- * by uploading their own picture, and 'scan' the picture, sending it for image analysis
+ * by uploading their own picture, and 'scan' the picture, sending it for image analysis.
+ * Alternatively a directory of frames can be played as a live feed that is scanned continuously.
  */
-public class ImagePanel extends JPanel implements StatusListener {
-    private SecurityService securityService;
+public class ImagePanel extends StatusListenerPanel {
 
     private JLabel cameraHeader;
     private JLabel cameraLabel;
     private BufferedImage currentCameraImage;
+    private JButton addPictureButton;
+    private JButton scanPictureButton;
+    private JToggleButton liveFeedButton;
+    private SwingWorker<BufferedImage, ImageIcon> loadWorker;
+    private LiveFeedService liveFeed;
+    private Timer liveFeedTimer;
 
     private int IMAGE_WIDTH = 300;
     private int IMAGE_HEIGHT = 225;
 
+    //live feed settings, configurable with -Dcatpoint.liveFeed.fps=... and -Dcatpoint.liveFeed.scansPerSecond=...
+    private static final int LIVE_FEED_FPS = Integer.getInteger("catpoint.liveFeed.fps", 10);
+    private static final double LIVE_FEED_SCANS_PER_SECOND =
+            Double.parseDouble(System.getProperty("catpoint.liveFeed.scansPerSecond", "1"));
+
     public ImagePanel(SecurityService securityService) {
-        super();
+        super(securityService);
         setLayout(new MigLayout());
-        this.securityService = securityService;
-        securityService.addStatusListener(this);
 
         cameraHeader = new JLabel("Camera Feed");
         cameraHeader.setFont(StyleService.HEADING_FONT);
@@ -41,7 +54,7 @@ public class ImagePanel extends JPanel implements StatusListener {
         cameraLabel.setBorder(BorderFactory.createLineBorder(Color.DARK_GRAY));
 
         //button allowing users to select a file to be the current camera image
-        JButton addPictureButton = new JButton("Refresh Camera");
+        addPictureButton = new JButton("Refresh Camera");
         addPictureButton.addActionListener(e -> {
             JFileChooser chooser = new JFileChooser();
             chooser.setCurrentDirectory(new File("."));
@@ -50,26 +63,142 @@ public class ImagePanel extends JPanel implements StatusListener {
             if(chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
                 return;
             }
-            try {
-                currentCameraImage = ImageIO.read(chooser.getSelectedFile());
-                Image tmp = new ImageIcon(currentCameraImage).getImage();
-                cameraLabel.setIcon(new ImageIcon(tmp.getScaledInstance(IMAGE_WIDTH, IMAGE_HEIGHT, Image.SCALE_SMOOTH)));
-            } catch (IOException |NullPointerException ioe) {
-                JOptionPane.showMessageDialog(null, "Invalid image selected.");
-            }
-            repaint();
+            loadPicture(chooser.getSelectedFile());
         });
 
         //button that sends the image to the image service
-        JButton scanPictureButton = new JButton("Scan Picture");
+        scanPictureButton = new JButton("Scan Picture");
         scanPictureButton.addActionListener(e -> {
             securityService.processImage(currentCameraImage);
         });
 
+        //button that plays a directory of pictures as a continuously scanned camera feed
+        liveFeedButton = new JToggleButton("Live Feed");
+        liveFeedButton.addActionListener(e -> {
+            if(liveFeedButton.isSelected()) {
+                startLiveFeed();
+            } else {
+                stopLiveFeed();
+            }
+        });
+
         add(cameraHeader, "span 3, wrap");
         add(cameraLabel, "span 3, wrap");
         add(addPictureButton);
         add(scanPictureButton);
+        add(liveFeedButton);
+    }
+
+    /**
+     * Asks for a directory of frames and starts playing it as a live feed. Frames are decoded
+     * and scanned on background threads; a Swing timer only swaps in the newest thumbnail.
+     */
+    private void startLiveFeed() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setCurrentDirectory(new File("."));
+        chooser.setDialogTitle("Select Frame Directory");
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        if(chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            liveFeedButton.setSelected(false);
+            return;
+        }
+        if(loadWorker != null) {
+            loadWorker.cancel(true);
+            loadWorker = null;
+        }
+        addPictureButton.setEnabled(false);
+        scanPictureButton.setEnabled(false);
+        cameraLabel.setIcon(null);
+        cameraLabel.setText("Connecting...");
+
+        liveFeed = new LiveFeedService(new DirectoryFrameSource(chooser.getSelectedFile()),
+                IMAGE_WIDTH, IMAGE_HEIGHT, LIVE_FEED_FPS, LIVE_FEED_SCANS_PER_SECOND, securityService::processImage);
+        liveFeedTimer = new Timer(1000 / LIVE_FEED_FPS, e -> {
+            BufferedImage frame = liveFeed.takeDisplayFrame();
+            if(frame != null) {
+                cameraLabel.setText(null);
+                cameraLabel.setIcon(new ImageIcon(frame));
+            } else if(!liveFeed.isRunning()) {
+                IOException failure = liveFeed.getFailure();
+                stopLiveFeed();
+                if(failure != null) {
+                    cameraLabel.setIcon(null);
+                    cameraLabel.setText("Live feed ended: " + failure.getMessage());
+                }
+            }
+        });
+        liveFeed.start();
+        liveFeedTimer.start();
+    }
+
+    private void stopLiveFeed() {
+        if(liveFeed != null) {
+            liveFeedTimer.stop();
+            liveFeed.stop();
+            liveFeed = null;
+            liveFeedTimer = null;
+        }
+        if(cameraLabel.getIcon() == null) {
+            cameraLabel.setText(null);
+        }
+        liveFeedButton.setSelected(false);
+        addPictureButton.setEnabled(true);
+        scanPictureButton.setEnabled(true);
+    }
+
+    /**
+     * Loads the picture in the background. A placeholder with the decoding progress is shown first,
+     * then a preview decoded at roughly display resolution, and finally the full resolution image
+     * becomes available for scanning.
+     * @param file The picture to load
+     */
+    private void loadPicture(File file) {
+        if(loadWorker != null) {
+            loadWorker.cancel(true);
+        }
+        cameraLabel.setIcon(null);
+        cameraLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        cameraLabel.setText("Loading...");
+        scanPictureButton.setEnabled(false);
+
+        SwingWorker<BufferedImage, ImageIcon> worker = new SwingWorker<>() {
+            @Override
+            protected BufferedImage doInBackground() throws IOException {
+                BufferedImage preview = ImageLoadingService.read(file, IMAGE_WIDTH, IMAGE_HEIGHT, this::setProgress);
+                publish(new ImageIcon(ImageLoadingService.scale(preview, IMAGE_WIDTH, IMAGE_HEIGHT)));
+                return ImageIO.read(file);
+            }
+
+            @Override
+            protected void process(List<ImageIcon> previews) {
+                if(loadWorker == this) {
+                    cameraLabel.setText(null);
+                    cameraLabel.setIcon(previews.get(previews.size() - 1));
+                }
+            }
+
+            @Override
+            protected void done() {
+                if(loadWorker != this || isCancelled()) {
+                    return;
+                }
+                try {
+                    currentCameraImage = get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    cameraLabel.setIcon(null);
+                    cameraLabel.setText(null);
+                    JOptionPane.showMessageDialog(null, "Invalid image selected.");
+                }
+                scanPictureButton.setEnabled(true);
+            }
+        };
+        worker.addPropertyChangeListener(evt -> {
+            if("progress".equals(evt.getPropertyName()) && loadWorker == worker && cameraLabel.getIcon() == null) {
+                cameraLabel.setText("Loading... " + evt.getNewValue() + "%");
+            }
+        });
+        loadWorker = worker;
+        worker.execute();
     }
 
     @Override
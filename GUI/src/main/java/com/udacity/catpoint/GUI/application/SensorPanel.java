@@ -1,7 +1,6 @@
 package com.udacity.catpoint.GUI.application;
 
 import com.udacity.catpoint.GUI.service.StyleService;
-import com.udacity.catpoint.security.application.StatusListener;
 import com.udacity.catpoint.security.data.AlarmStatus;
 import com.udacity.catpoint.security.data.Sensor;
 import com.udacity.catpoint.security.data.SensorType;
@@ -9,14 +8,18 @@ import com.udacity.catpoint.security.service.SecurityService;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
 
 /**
  * Panel that allows users to add sensors to their system. Sensors may be
- * manually set to "active" and "inactive" to test the system.
+ * manually set to "active" and "inactive" to test the system. The sensor list can be
+ * filtered by type, status and name, which is answered from the repository's sensor index.
  */
-public class SensorPanel extends JPanel implements StatusListener {
+public class SensorPanel extends StatusListenerPanel {
 
-    private SecurityService securityService;
+    private static final String ANY = "All";
 
     private JLabel panelLabel = new JLabel("Sensor Management");
     private JLabel newSensorName = new JLabel("Name:");
@@ -24,30 +27,43 @@ public class SensorPanel extends JPanel implements StatusListener {
     private JTextField newSensorNameField = new JTextField();
     private JComboBox newSensorTypeDropdown = new JComboBox(SensorType.values());
     private JButton addNewSensorButton = new JButton("Add New Sensor");
+    private JLabel newSensorError = new JLabel();
 
-    private JPanel sensorListPanel;
+    private JComboBox<String> typeFilterDropdown = new JComboBox<>();
+    private JComboBox<String> statusFilterDropdown = new JComboBox<>(new String[]{ANY, "Active", "Inactive"});
+    private JTextField nameFilterField = new JTextField();
+    private JLabel sensorCountLabel = new JLabel();
+
+    private SensorTableModel sensorTableModel = new SensorTableModel();
+    private JTable sensorTable = new JTable(sensorTableModel);
     private JPanel newSensorPanel;
+    private JPanel filterPanel;
 
     public SensorPanel(SecurityService securityService) {
-        super();
+        super(securityService);
         setLayout(new MigLayout());
-        this.securityService = securityService;
-        securityService.addStatusListener(this);
 
         panelLabel.setFont(StyleService.HEADING_FONT);
-        addNewSensorButton.addActionListener(e ->
-                addSensor(new Sensor(newSensorNameField.getText(),
-                        SensorType.valueOf(newSensorTypeDropdown.getSelectedItem().toString()))));
+        newSensorError.setForeground(Color.RED);
+        addNewSensorButton.addActionListener(e -> addSensor(newSensorNameField.getText(),
+                SensorType.valueOf(newSensorTypeDropdown.getSelectedItem().toString())));
 
         newSensorPanel = buildAddSensorPanel();
-        sensorListPanel = new JPanel();
-        sensorListPanel.setLayout(new MigLayout());
+        filterPanel = buildFilterPanel();
+        JScrollPane sensorListPane = buildSensorListPane();
 
-        updateSensorList(sensorListPanel);
+        applyFilter();
+        //sensors are still streaming in at startup, refresh the list once they are all there
+        addNewSensorButton.setEnabled(false);
+        securityService.getSensorsLoaded().whenComplete((v, e) -> SwingUtilities.invokeLater(() -> {
+            addNewSensorButton.setEnabled(true);
+            applyFilter();
+        }));
 
         add(panelLabel, "wrap");
         add(newSensorPanel, "span");
-        add(sensorListPanel, "span");
+        add(filterPanel, "span");
+        add(sensorListPane, "span");
     }
 
     /**
@@ -60,65 +76,153 @@ public class SensorPanel extends JPanel implements StatusListener {
         p.add(newSensorNameField, "width 50:100:200");
         p.add(newSensorType);
         p.add(newSensorTypeDropdown, "wrap");
-        p.add(addNewSensorButton, "span 3");
+        p.add(addNewSensorButton, "span 2");
+        p.add(newSensorError, "span 2");
+        return p;
+    }
+
+    /**
+     * Builds the panel with the type, status and name filters for the sensor list
+     */
+    private JPanel buildFilterPanel() {
+        typeFilterDropdown.addItem(ANY);
+        for(SensorType type : SensorType.values()) {
+            typeFilterDropdown.addItem(type.toString());
+        }
+        typeFilterDropdown.addActionListener(e -> applyFilter());
+        statusFilterDropdown.addActionListener(e -> applyFilter());
+        nameFilterField.setToolTipText("Show sensors whose name starts with this text");
+        nameFilterField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { applyFilter(); }
+            @Override
+            public void removeUpdate(DocumentEvent e) { applyFilter(); }
+            @Override
+            public void changedUpdate(DocumentEvent e) { applyFilter(); }
+        });
+
+        JPanel p = new JPanel();
+        p.setLayout(new MigLayout());
+        p.add(new JLabel("Type:"));
+        p.add(typeFilterDropdown);
+        p.add(new JLabel("Status:"));
+        p.add(statusFilterDropdown);
+        p.add(new JLabel("Name:"));
+        p.add(nameFilterField, "width 50:100:200, wrap");
+        p.add(sensorCountLabel, "span");
         return p;
     }
 
     /**
-     * Requests the current list of sensors and updates the provided panel to display them. Sensors
-     * will display in the order that they are created.
-     * @param p The Panel to populate with the current list of sensors
+     * Builds the scrollable table that displays the current list of sensors. The table only paints
+     * the visible rows, and the toggle/remove buttons are shared renderers rather than one component
+     * per sensor.
      */
-    private void updateSensorList(JPanel p) {
-        p.removeAll();
-        securityService.getSensors().stream().sorted().forEach(s -> {
-            JLabel sensorLabel = new JLabel(String.format("%s(%s): %s", s.getName(),  s.getSensorType().toString(),(s.getActive() ? "Active" : "Inactive")));
-            JButton sensorToggleButton = new JButton((s.getActive() ? "Deactivate" : "Activate"));
-            JButton sensorRemoveButton = new JButton("Remove Sensor");
-
-            sensorToggleButton.addActionListener(e -> setSensorActivity(s, !s.getActive()) );
-            sensorRemoveButton.addActionListener(e -> removeSensor(s));
-
-            //hard code some sizes, tsk tsk
-            p.add(sensorLabel, "width 300:300:300");
-            p.add(sensorToggleButton, "width 100:100:100");
-            p.add(sensorRemoveButton, "wrap");
+    private JScrollPane buildSensorListPane() {
+        sensorTable.setRowHeight(28);
+        sensorTable.getTableHeader().setReorderingAllowed(false);
+        sensorTable.getColumnModel().getColumn(SensorTableModel.NAME_COLUMN).setPreferredWidth(200);
+        sensorTable.getColumnModel().getColumn(SensorTableModel.TYPE_COLUMN).setPreferredWidth(70);
+        sensorTable.getColumnModel().getColumn(SensorTableModel.STATUS_COLUMN).setPreferredWidth(70);
+        sensorTable.getColumnModel().getColumn(SensorTableModel.TOGGLE_COLUMN).setPreferredWidth(100);
+        sensorTable.getColumnModel().getColumn(SensorTableModel.REMOVE_COLUMN).setPreferredWidth(130);
+
+        new ButtonColumn(sensorTable, SensorTableModel.TOGGLE_COLUMN, row -> {
+            Sensor s = sensorTableModel.getSensorAt(row);
+            setSensorActivity(s, !s.getActive());
         });
+        new ButtonColumn(sensorTable, SensorTableModel.REMOVE_COLUMN,
+                row -> removeSensor(sensorTableModel.getSensorAt(row)));
 
-        repaint();
-        revalidate();
+        JScrollPane pane = new JScrollPane(sensorTable);
+        pane.setPreferredSize(new Dimension(570, 200));
+        return pane;
+    }
+
+    private SensorType selectedType() {
+        String type = (String) typeFilterDropdown.getSelectedItem();
+        return ANY.equals(type) ? null : SensorType.valueOf(type);
+    }
+
+    private Boolean selectedStatus() {
+        String status = (String) statusFilterDropdown.getSelectedItem();
+        return ANY.equals(status) ? null : "Active".equals(status);
+    }
+
+    private boolean matchesFilter(Sensor sensor) {
+        SensorType type = selectedType();
+        Boolean active = selectedStatus();
+        return (type == null || sensor.getSensorType() == type)
+                && (active == null || active == sensor.getActive())
+                && sensor.getName().startsWith(nameFilterField.getText());
     }
 
     /**
-     * Asks the securityService to change a sensor activation status and then rebuilds the current sensor list
+     * Queries the sensors matching the current filters and shows them in the table
+     */
+    private void applyFilter() {
+        sensorTableModel.setSensors(securityService.findSensors(selectedType(), selectedStatus(), nameFilterField.getText()));
+        updateSensorCount();
+    }
+
+    private void updateSensorCount() {
+        sensorCountLabel.setText(String.format("Showing %d of %d sensors%s",
+                sensorTableModel.getRowCount(), securityService.getSensorCount(),
+                securityService.getSensorsLoaded().isDone() ? "" : " (loading...)"));
+    }
+
+    /**
+     * Asks the securityService to change a sensor activation status and then repaints that sensor's row
      * @param sensor The sensor to update
      * @param isActive The sensor's activation status
      */
     private void setSensorActivity(Sensor sensor, Boolean isActive) {
         securityService.changeSensorActivationStatus(sensor, isActive);
-        updateSensorList(sensorListPanel);
+        showSensorChange(sensor);
     }
 
     /**
-     * Adds a sensor to the securityService and then rebuilds the sensor list
-     * @param sensor The sensor to add
+     * Shows, repaints or hides the row of a changed sensor, depending on whether it still
+     * matches the filters
+     * @param sensor The changed sensor
      */
-    private void addSensor(Sensor sensor) {
-        if(securityService.getSensors().size() < 4) {
-            securityService.addSensor(sensor);
-            updateSensorList(sensorListPanel);
+    private void showSensorChange(Sensor sensor) {
+        if(matchesFilter(sensor)) {
+            sensorTableModel.sensorAdded(sensor);
         } else {
-            JOptionPane.showMessageDialog(null, "To add more than 4 sensors, please subscribe to our Premium Membership!");
+            sensorTableModel.sensorRemoved(sensor);
         }
+        updateSensorCount();
     }
 
     /**
-     * Remove a sensor from the securityService and then rebuild the sensor list
+     * Adds a new sensor to the securityService and then inserts its row into the sensor list,
+     * or shows why the sensor can't be added
+     * @param name The name of the new sensor
+     * @param type The type of the new sensor
+     */
+    private void addSensor(String name, SensorType type) {
+        if(!Sensor.isValidName(name)) {
+            newSensorError.setText("Name is too long");
+            return;
+        }
+        newSensorError.setText("");
+        Sensor sensor = new Sensor(name, type);
+        securityService.addSensor(sensor);
+        if(matchesFilter(sensor)) {
+            sensorTableModel.sensorAdded(sensor);
+        }
+        updateSensorCount();
+    }
+
+    /**
+     * Remove a sensor from the securityService and then drop its row from the sensor list
      * @param sensor The sensor to remove
      */
     private void removeSensor(Sensor sensor) {
         securityService.removeSensor(sensor);
-        updateSensorList(sensorListPanel);
+        sensorTableModel.sensorRemoved(sensor);
+        updateSensorCount();
     }
 
     @Override
@@ -133,6 +237,18 @@ public class SensorPanel extends JPanel implements StatusListener {
 
     @Override
     public void sensorStatusChanged() {
-        updateSensorList(sensorListPanel);
+        if(selectedStatus() != null) {
+            applyFilter(); //rows may have moved in or out of the status filter
+        } else {
+            sensorTableModel.allSensorsUpdated();
+        }
+    }
+
+    @Override
+    public void sensorStatusChanged(Sensor sensor) {
+        //the sensor may have been removed while the notification was on its way
+        if(securityService.getState().containsSensor(sensor)) {
+            showSensorChange(sensor);
+        }
     }
 }
@@ -0,0 +1,108 @@
+package com.udacity.catpoint.GUI.application;
+
+import com.udacity.catpoint.security.data.Sensor;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Table model backing the sensor list. Keeps the sensors in display order and only
+ * fires events for the rows that actually changed, so the table repaints the affected
+ * rows instead of rebuilding every component.
+ */
+public class SensorTableModel extends AbstractTableModel {
+
+    public static final int NAME_COLUMN = 0;
+    public static final int TYPE_COLUMN = 1;
+    public static final int STATUS_COLUMN = 2;
+    public static final int TOGGLE_COLUMN = 3;
+    public static final int REMOVE_COLUMN = 4;
+
+    private static final String[] COLUMN_NAMES = {"Name", "Type", "Status", "", ""};
+
+    private final List<Sensor> sensors = new ArrayList<>();
+
+    /**
+     * Replaces the whole list of sensors. Only needed for the initial load.
+     * @param newSensors The sensors to display
+     */
+    public void setSensors(Collection<Sensor> newSensors) {
+        sensors.clear();
+        sensors.addAll(newSensors);
+        Collections.sort(sensors);
+        fireTableDataChanged();
+    }
+
+    public Sensor getSensorAt(int row) {
+        return sensors.get(row);
+    }
+
+    /**
+     * Inserts the sensor at its sorted position, or repaints its row if it is already shown.
+     */
+    public void sensorAdded(Sensor sensor) {
+        int index = Collections.binarySearch(sensors, sensor);
+        if(index >= 0) {
+            fireTableRowsUpdated(index, index);
+            return;
+        }
+        int row = -index - 1;
+        sensors.add(row, sensor);
+        fireTableRowsInserted(row, row);
+    }
+
+    public void sensorRemoved(Sensor sensor) {
+        int row = Collections.binarySearch(sensors, sensor);
+        if(row < 0) {
+            return;
+        }
+        sensors.remove(row);
+        fireTableRowsDeleted(row, row);
+    }
+
+    /**
+     * Marks every row as changed without touching the row structure. Used when the whole
+     * system changes at once, for example when arming resets all sensors.
+     */
+    public void allSensorsUpdated() {
+        if(!sensors.isEmpty()) {
+            fireTableRowsUpdated(0, sensors.size() - 1);
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return sensors.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column == TOGGLE_COLUMN || column == REMOVE_COLUMN;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Sensor s = sensors.get(row);
+        return switch(column) {
+            case NAME_COLUMN -> s.getName();
+            case TYPE_COLUMN -> s.getSensorType().toString();
+            case STATUS_COLUMN -> s.getActive() ? "Active" : "Inactive";
+            case TOGGLE_COLUMN -> s.getActive() ? "Deactivate" : "Activate";
+            case REMOVE_COLUMN -> "Remove Sensor";
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,37 @@
+package com.udacity.catpoint.GUI.application;
+
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.service.SecurityService;
+
+import javax.swing.*;
+
+/**
+ * Panel that is notified whenever the status of the system changes. Notifications arrive
+ * on the Event Dispatch Thread through an {@link EdtStatusListener}.
+ */
+public abstract class StatusListenerPanel extends JPanel implements StatusListener {
+
+    protected final SecurityService securityService;
+    private final StatusListener statusListener = new EdtStatusListener(this);
+
+    protected StatusListenerPanel(SecurityService securityService) {
+        super();
+        this.securityService = securityService;
+    }
+
+    /**
+     * Listens to the service while the panel is displayable, so a disposed window stops
+     * receiving updates.
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        securityService.addStatusListener(statusListener);
+    }
+
+    @Override
+    public void removeNotify() {
+        securityService.removeStatusListener(statusListener);
+        super.removeNotify();
+    }
+}
@@ -0,0 +1,53 @@
+package com.udacity.catpoint.GUI.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Plays the pictures in a directory as a camera feed, in file name order. Numbered
+ * image sequences (frame0001.jpg, frame0002.jpg, ...) therefore play like a video.
+ * The directory is listed again after the last frame, so the feed loops and picks up
+ * frames that were added in the meantime.
+ */
+public class DirectoryFrameSource implements FrameSource {
+
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "bmp");
+
+    private final File directory;
+    private File[] frames = new File[0];
+    private int position;
+
+    public DirectoryFrameSource(File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public File nextFrame() throws IOException {
+        if(position >= frames.length) {
+            frames = listFrames();
+            position = 0;
+            if(frames.length == 0) {
+                return null;
+            }
+        }
+        return frames[position++];
+    }
+
+    private File[] listFrames() throws IOException {
+        File[] files = directory.listFiles(f -> f.isFile() && IMAGE_EXTENSIONS.contains(extension(f)));
+        if(files == null) {
+            throw new IOException("Unable to list camera frames in " + directory);
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static String extension(File f) {
+        String name = f.getName();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,15 @@
+package com.udacity.catpoint.GUI.service;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Supplies the frames of a live camera feed, one image file at a time.
+ */
+public interface FrameSource {
+    /**
+     * Returns the next frame, blocking until one is available.
+     * @return The image file holding the next frame, or null once the feed has ended
+     */
+    File nextFrame() throws IOException, InterruptedException;
+}
@@ -0,0 +1,95 @@
+package com.udacity.catpoint.GUI.service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadProgressListener;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Decodes and scales camera pictures. Meant to be called off the Event Dispatch Thread.
+ *
+ * Large pictures are decoded with source subsampling so that only roughly as many pixels as
+ * needed for the requested size are produced, and thumbnails are scaled with a single bilinear
+ * draw rather than {@link Image#SCALE_SMOOTH}.
+ */
+public class ImageLoadingService {
+
+    /**
+     * Decodes an image file, skipping source pixels so that the result is still at least
+     * {@code minWidth} x {@code minHeight}. Pass 1 x 1 to skip nothing.
+     * @param file The image file to read
+     * @param minWidth Smallest width the decoded image may have
+     * @param minHeight Smallest height the decoded image may have
+     * @param progress Receives the decoding progress in percent, may be null
+     * @throws IOException if the file can't be read or is not a supported image
+     */
+    public static BufferedImage read(File file, int minWidth, int minHeight, IntConsumer progress) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if(readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + file);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int subsampling = Math.max(1, Math.min(reader.getWidth(0) / minWidth, reader.getHeight(0) / minHeight));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                if(progress != null) {
+                    reader.addIIOReadProgressListener(new ProgressAdapter(progress));
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales the image to exactly the provided size using bilinear interpolation.
+     */
+    public static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+
+    private static class ProgressAdapter implements IIOReadProgressListener {
+        private final IntConsumer progress;
+
+        ProgressAdapter(IntConsumer progress) {
+            this.progress = progress;
+        }
+
+        @Override
+        public void imageProgress(ImageReader source, float percentageDone) {
+            progress.accept(Math.min(100, Math.round(percentageDone)));
+        }
+
+        @Override
+        public void imageComplete(ImageReader source) {
+            progress.accept(100);
+        }
+
+        @Override public void sequenceStarted(ImageReader source, int minIndex) {}
+        @Override public void sequenceComplete(ImageReader source) {}
+        @Override public void imageStarted(ImageReader source, int imageIndex) {}
+        @Override public void thumbnailStarted(ImageReader source, int imageIndex, int thumbnailIndex) {}
+        @Override public void thumbnailProgress(ImageReader source, float percentageDone) {}
+        @Override public void thumbnailComplete(ImageReader source) {}
+        @Override public void readAborted(ImageReader source) {}
+    }
+}
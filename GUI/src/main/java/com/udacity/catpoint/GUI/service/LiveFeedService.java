@@ -0,0 +1,195 @@
+package com.udacity.catpoint.GUI.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Runs a live camera feed as a three stage pipeline, each stage on its own thread:
+ * <ol>
+ *     <li>a decoder thread reads frames from the {@link FrameSource} at the target frame rate
+ *     and prepares a display-sized thumbnail for each one,</li>
+ *     <li>a scanner thread sends the newest decoded frame for classification at the sampling rate,</li>
+ *     <li>the display (normally a Swing timer) polls {@link #takeDisplayFrame()} for the newest thumbnail.</li>
+ * </ol>
+ * Stages hand frames over through single-slot "latest value" holders, so a slow stage skips
+ * frames instead of queueing them, and the display never waits on classification.
+ *
+ * The feed stops by itself, as if {@link #stop()} was called, once the source has no frames
+ * or can't be read; {@link #getFailure()} then tells why.
+ */
+public class LiveFeedService {
+
+    private final FrameSource frameSource;
+    private final int displayWidth;
+    private final int displayHeight;
+    private final long frameIntervalNanos;
+    private final long scanIntervalMillis;
+    private final Consumer<BufferedImage> scanner;
+
+    private final AtomicReference<BufferedImage> displaySlot = new AtomicReference<>();
+    private final AtomicReference<BufferedImage> scanSlot = new AtomicReference<>();
+    private final AtomicLong framesDecoded = new AtomicLong();
+    private final AtomicLong framesScanned = new AtomicLong();
+    private final AtomicLong scanFailures = new AtomicLong();
+    private final Logger log = LoggerFactory.getLogger(LiveFeedService.class);
+    private volatile IOException failure;
+
+    private Thread decoderThread;
+    private ScheduledExecutorService scanExecutor;
+
+    /**
+     * @param frameSource Where to read frames from
+     * @param displayWidth Width of the thumbnails handed to the display
+     * @param displayHeight Height of the thumbnails handed to the display
+     * @param targetFps How many frames per second to decode and display
+     * @param scansPerSecond How many frames per second to send for classification
+     * @param scanner Classifies a frame, for example {@code securityService::processImage}
+     */
+    public LiveFeedService(FrameSource frameSource, int displayWidth, int displayHeight,
+                           int targetFps, double scansPerSecond, Consumer<BufferedImage> scanner) {
+        this.frameSource = frameSource;
+        this.displayWidth = displayWidth;
+        this.displayHeight = displayHeight;
+        this.frameIntervalNanos = TimeUnit.SECONDS.toNanos(1) / targetFps;
+        this.scanIntervalMillis = Math.max(1, Math.round(1000 / scansPerSecond));
+        this.scanner = scanner;
+    }
+
+    public synchronized void start() {
+        if(decoderThread != null) {
+            return;
+        }
+        failure = null;
+        decoderThread = new Thread(this::decodeFrames, "live-feed-decoder");
+        decoderThread.setDaemon(true);
+        decoderThread.start();
+
+        scanExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "live-feed-scanner");
+            t.setDaemon(true);
+            return t;
+        });
+        scanExecutor.scheduleWithFixedDelay(this::scanLatestFrame, scanIntervalMillis, scanIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if(decoderThread == null) {
+            return;
+        }
+        decoderThread.interrupt();
+        scanExecutor.shutdownNow();
+        decoderThread = null;
+        scanExecutor = null;
+        displaySlot.set(null);
+        scanSlot.set(null);
+    }
+
+    public synchronized boolean isRunning() {
+        return decoderThread != null && decoderThread.isAlive();
+    }
+
+    /**
+     * Returns the newest thumbnail that has not been displayed yet, or null if no new frame
+     * has been decoded since the last call. Never blocks.
+     */
+    public BufferedImage takeDisplayFrame() {
+        return displaySlot.getAndSet(null);
+    }
+
+    public long getFramesDecoded() {
+        return framesDecoded.get();
+    }
+
+    public long getFramesScanned() {
+        return framesScanned.get();
+    }
+
+    /**
+     * Number of frames the scanner failed to classify.
+     */
+    public long getScanFailureCount() {
+        return scanFailures.get();
+    }
+
+    /**
+     * Why the feed stopped by itself, or null if it ran out of frames or is still running.
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    private void decodeFrames() {
+        try {
+            while(!Thread.currentThread().isInterrupted()) {
+                long frameStart = System.nanoTime();
+                File frame = frameSource.nextFrame();
+                if(frame == null) {
+                    ended(null);
+                    return;
+                }
+                BufferedImage image = decode(frame);
+                if(image != null) {
+                    scanSlot.set(image);
+                    displaySlot.set(ImageLoadingService.scale(image, displayWidth, displayHeight));
+                    framesDecoded.incrementAndGet();
+                }
+                long remaining = frameStart + frameIntervalNanos - System.nanoTime();
+                if(remaining > 0) {
+                    TimeUnit.NANOSECONDS.sleep(remaining);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Live feed ended, frames could not be read", e);
+            ended(e);
+        }
+    }
+
+    /**
+     * Stops the feed from the decoder thread, unless it was stopped or restarted meanwhile.
+     */
+    private synchronized void ended(IOException cause) {
+        if(decoderThread == Thread.currentThread()) {
+            failure = cause;
+            stop();
+        }
+    }
+
+    /**
+     * Decodes a single frame, returning null for frames that can't be read so they are skipped.
+     */
+    private static BufferedImage decode(File frame) {
+        try {
+            return ImageIO.read(frame);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void scanLatestFrame() {
+        BufferedImage image = scanSlot.getAndSet(null);
+        if(image == null) {
+            return;
+        }
+        try {
+            scanner.accept(image);
+            framesScanned.incrementAndGet();
+        } catch (RuntimeException e) {
+            //a failed classification must not cancel the scan schedule, try again with the next frame
+            scanFailures.incrementAndGet();
+            log.warn("Could not classify a live feed frame", e);
+        }
+    }
+}
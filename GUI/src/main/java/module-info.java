@@ -1,6 +1,8 @@
 module GUI {
     requires java.desktop;
+    requires java.management;
     requires com.miglayout.swing;
     requires Security;
     requires Image;
+    requires org.slf4j;
 }
\ No newline at end of file
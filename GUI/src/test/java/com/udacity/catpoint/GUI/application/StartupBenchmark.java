@@ -0,0 +1,108 @@
+package com.udacity.catpoint.GUI.application;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Standalone benchmark measuring the time from launching the application to its first
+ * paint, in fresh JVMs. Needs a display. Not part of the unit test suite; run the main
+ * method from the test classpath.
+ *
+ * Options: --runs (10), --jar to launch an assembled jar instead of the current classpath,
+ * --jvm to pass JVM options such as "-XX:SharedArchiveFile=GUI/target/catpoint.jsa", and
+ * --history with --label to append the medians to a CSV file, so startup can be compared
+ * across releases.
+ */
+public class StartupBenchmark {
+
+    private static final String FIRST_PAINT = "startup: first paint after ";
+
+    public static void main(String[] args) throws Exception {
+        int runs = 10;
+        String jar = null;
+        List<String> jvmOptions = new ArrayList<>();
+        Path history = null;
+        String label = "dev";
+        for(int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch(args[i]) {
+                case "--runs" -> runs = Integer.parseInt(value);
+                case "--jar" -> jar = value;
+                case "--jvm" -> jvmOptions.addAll(Arrays.asList(value.trim().split("\\s+")));
+                case "--history" -> history = Path.of(value);
+                case "--label" -> label = value;
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        List<Long> wallMillis = new ArrayList<>();
+        List<Long> paintMillis = new ArrayList<>();
+        launch(jar, jvmOptions); //warm the file system cache
+        for(int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            long paint = launch(jar, jvmOptions);
+            wallMillis.add((System.nanoTime() - start) / 1_000_000);
+            paintMillis.add(paint);
+        }
+        Collections.sort(wallMillis);
+        Collections.sort(paintMillis);
+        long wallMedian = wallMillis.get(runs / 2);
+        long paintMedian = paintMillis.get(runs / 2);
+        System.out.printf("%d runs %s: first paint median %d ms (min %d, max %d), process median %d ms%n",
+                runs, jvmOptions, paintMedian, paintMillis.get(0), paintMillis.get(runs - 1), wallMedian);
+
+        if(history != null) {
+            if(!Files.exists(history)) {
+                Files.writeString(history, "label,date,runs,firstPaintMedianMs,processMedianMs,jvmOptions\n");
+            }
+            Files.writeString(history, String.format("%s,%s,%d,%d,%d,\"%s\"%n", label, LocalDate.now(), runs,
+                    paintMedian, wallMedian, String.join(" ", jvmOptions)), StandardOpenOption.APPEND);
+        }
+    }
+
+    /**
+     * Starts the application in a new JVM and waits for it to exit after its first paint.
+     * @return Milliseconds from process start to first paint, as reported by the application
+     */
+    private static long launch(String jar, List<String> jvmOptions) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-Dcatpoint.startup.report=true");
+        command.add("-Dcatpoint.startup.exitAfterPaint=true");
+        if(jar != null) {
+            command.add("-jar");
+            command.add(jar);
+        } else {
+            String modulePath = System.getProperty("jdk.module.path", "");
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path") + (modulePath.isEmpty() ? "" : File.pathSeparator + modulePath));
+            command.add(CatpointApp.class.getName());
+        }
+        Process process = new ProcessBuilder(command).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        long paint = -1;
+        try (BufferedReader err = new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while((line = err.readLine()) != null) {
+                if(line.startsWith(FIRST_PAINT)) {
+                    paint = Long.parseLong(line.substring(FIRST_PAINT.length()).replace(" ms", ""));
+                }
+            }
+        }
+        if(process.waitFor() != 0 || paint < 0) {
+            throw new IllegalStateException("Application did not start, is a display available?");
+        }
+        return paint;
+    }
+}
@@ -9,16 +9,20 @@ import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.rekognition.RekognitionClient;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
+import software.amazon.awssdk.services.rekognition.model.BoundingBox;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
 import software.amazon.awssdk.services.rekognition.model.Image;
+import software.amazon.awssdk.services.rekognition.model.Instance;
+import software.amazon.awssdk.services.rekognition.model.Label;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
-import java.util.stream.Collectors;
 
 /**
  * Image Recognition Service that can identify cats. Requires aws credentials to be entered in config.properties to work.
@@ -67,23 +71,42 @@ public class AwsImageService implements ImageService {
      * @return
      */
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        return classify(image, confidenceThreshhold).containsCat(confidenceThreshhold);
+    }
+
+    /**
+     * Returns every label Rekognition found with at least the given confidence, with the
+     * bounding boxes of the instances it located.
+     */
+    @Override
+    public ImageClassification classify(BufferedImage image, float minConfidence) {
         Image awsImage = null;
         try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
             ImageIO.write(image, "jpg", os);
             awsImage = Image.builder().bytes(SdkBytes.fromByteArray(os.toByteArray())).build();
         } catch (IOException ioe) {
             log.error("Error building image byte array", ioe);
-            return false;
+            return ImageClassification.EMPTY;
         }
-        DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(confidenceThreshhold).build();
+        DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(minConfidence).build();
         DetectLabelsResponse response = rekognitionClient.detectLabels(detectLabelsRequest);
-        logLabelsForFun(response);
-        return response.labels().stream().filter(l -> l.name().toLowerCase().contains("cat")).findFirst().isPresent();
-    }
-
-    private void logLabelsForFun(DetectLabelsResponse response) {
-        log.info(response.labels().stream()
-                .map(label -> String.format("%s(%.1f%%)", label.name(), label.confidence()))
-                .collect(Collectors.joining(", ")));
+        List<ImageClassification.Label> labels = new ArrayList<>(response.labels().size());
+        for(Label label : response.labels()) {
+            List<ImageClassification.Region> regions = new ArrayList<>(label.instances().size());
+            for(Instance instance : label.instances()) {
+                BoundingBox box = instance.boundingBox();
+                if(box != null) {
+                    float confidence = instance.confidence() != null ? instance.confidence() : label.confidence();
+                    regions.add(new ImageClassification.Region(box.left(), box.top(), box.width(), box.height(), confidence));
+                }
+            }
+            labels.add(new ImageClassification.Label(label.name(), label.confidence(), regions));
+        }
+        ImageClassification classification = new ImageClassification(labels);
+        //formatting every label is only worth it when someone reads it
+        if(log.isDebugEnabled()) {
+            log.debug("Labels: {}", classification);
+        }
+        return classification;
     }
 }
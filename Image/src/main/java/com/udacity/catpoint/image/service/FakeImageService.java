@@ -1,6 +1,7 @@
 package com.udacity.catpoint.image.service;
 
 import java.awt.image.BufferedImage;
+import java.util.List;
 import java.util.Random;
 
 /**
@@ -10,6 +11,17 @@ public class FakeImageService implements ImageService {
     private final Random r = new Random();
 
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
-        return r.nextBoolean();
+        return classify(image, confidenceThreshhold).containsCat(confidenceThreshhold);
+    }
+
+    /**
+     * Guesses a cat confidence between 0 and 100.
+     */
+    @Override
+    public ImageClassification classify(BufferedImage image, float minConfidence) {
+        float confidence = r.nextFloat() * 100;
+        return confidence < minConfidence
+                ? ImageClassification.EMPTY
+                : new ImageClassification(List.of(new ImageClassification.Label("Cat", confidence)));
     }
 }
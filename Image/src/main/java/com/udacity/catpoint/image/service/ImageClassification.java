@@ -0,0 +1,139 @@
+package com.udacity.catpoint.image.service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Result of classifying an image: every label found with its confidence, and where the
+ * service reports them, the regions of the image the label was found in.
+ */
+public final class ImageClassification {
+
+    public static final ImageClassification EMPTY = new ImageClassification(List.of());
+
+    private final List<Label> labels;
+
+    public ImageClassification(List<Label> labels) {
+        this.labels = List.copyOf(labels);
+    }
+
+    public List<Label> getLabels() {
+        return labels;
+    }
+
+    /**
+     * Highest confidence of any cat label, from 0 to 100, or 0 if no cat was found.
+     */
+    public float getCatConfidence() {
+        float confidence = 0;
+        for(Label label : labels) {
+            if(label.isCat()) {
+                confidence = Math.max(confidence, label.getConfidence());
+            }
+        }
+        return confidence;
+    }
+
+    /**
+     * True if a cat label has at least the given confidence.
+     * @param confidenceThreshold For example, 90.0f requires 90% confidence
+     */
+    public boolean containsCat(float confidenceThreshold) {
+        return labels.stream().anyMatch(label -> label.isCat() && label.getConfidence() >= confidenceThreshold);
+    }
+
+    /**
+     * Formats the labels for logging, like "Cat(97.5%), Pet(97.5%)".
+     */
+    @Override
+    public String toString() {
+        return labels.stream()
+                .map(label -> String.format(Locale.ROOT, "%s(%.1f%%)", label.getName(), label.getConfidence()))
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * A label found in the image.
+     */
+    public static final class Label {
+        private final String name;
+        private final float confidence;
+        private final List<Region> regions;
+
+        public Label(String name, float confidence) {
+            this(name, confidence, List.of());
+        }
+
+        /**
+         * @param confidence From 0 to 100
+         * @param regions Where the label was found, empty if the service does not say
+         */
+        public Label(String name, float confidence, List<Region> regions) {
+            this.name = name;
+            this.confidence = confidence;
+            this.regions = List.copyOf(regions);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public float getConfidence() {
+            return confidence;
+        }
+
+        public List<Region> getRegions() {
+            return regions;
+        }
+
+        /**
+         * Any label whose name contains "cat", as image services have always been matched.
+         */
+        public boolean isCat() {
+            return name.toLowerCase(Locale.ROOT).contains("cat");
+        }
+    }
+
+    /**
+     * Bounding box of a label, as fractions of the image width and height.
+     */
+    public static final class Region {
+        private final float left;
+        private final float top;
+        private final float width;
+        private final float height;
+        private final float confidence;
+
+        public Region(float left, float top, float width, float height, float confidence) {
+            this.left = left;
+            this.top = top;
+            this.width = width;
+            this.height = height;
+            this.confidence = confidence;
+        }
+
+        public float getLeft() {
+            return left;
+        }
+
+        public float getTop() {
+            return top;
+        }
+
+        public float getWidth() {
+            return width;
+        }
+
+        public float getHeight() {
+            return height;
+        }
+
+        /**
+         * Confidence that this region holds the label, from 0 to 100.
+         */
+        public float getConfidence() {
+            return confidence;
+        }
+    }
+}
@@ -1,7 +1,22 @@
 package com.udacity.catpoint.image.service;
 
 import java.awt.image.BufferedImage;
+import java.util.List;
 
 public interface ImageService {
     boolean imageContainsCat(BufferedImage image, float confidenceThreshhold);
+
+    /**
+     * Classifies the image, keeping every label found with its confidence. The default
+     * implementation only knows the verdict of {@link #imageContainsCat} at the usual
+     * threshold of 50, which it reports as a single cat label with full confidence, or no
+     * labels. It ignores the minimum confidence: a low threshold would make
+     * {@link #imageContainsCat} report a cat in almost every image.
+     * @param minConfidence Labels below this confidence may be left out
+     */
+    default ImageClassification classify(BufferedImage image, float minConfidence) {
+        return imageContainsCat(image, 50.0f)
+                ? new ImageClassification(List.of(new ImageClassification.Label("Cat", 100.0f)))
+                : ImageClassification.EMPTY;
+    }
 }
@@ -0,0 +1,11 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.security.data.SecurityEvent;
+
+/**
+ * Identifies a component that records or reacts to every individual security event, as
+ * opposed to a {@link StatusListener} which only cares about the current status.
+ */
+public interface SecurityEventListener {
+    void onEvent(SecurityEvent event);
+}
@@ -0,0 +1,118 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.security.data.SecurityEvent;
+import com.udacity.catpoint.security.data.SecurityEventType;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes security events as a {@link Flow.Publisher}. Register it as a
+ * {@link SecurityEventListener} on the service and subscribe to it with any Reactive Streams
+ * style consumer.
+ *
+ * Every subscriber gets its own buffer of at most {@code bufferSize} events and receives them
+ * on the executor, only as fast as it requests them. The service never waits for a subscriber:
+ * an event that does not fit in a full buffer is dropped for that subscriber and counted in
+ * {@link #getDroppedCount()}.
+ */
+public class SecurityEventPublisher implements Flow.Publisher<SecurityEvent>, SecurityEventListener, AutoCloseable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    private final SubmissionPublisher<SecurityEvent> publisher;
+    private final LongAdder dropped = new LongAdder();
+
+    public SecurityEventPublisher() {
+        this(ForkJoinPool.commonPool(), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param executor Runs the subscribers' callbacks
+     * @param bufferSize Maximum number of events buffered per subscriber, rounded up to a power of two
+     */
+    public SecurityEventPublisher(Executor executor, int bufferSize) {
+        this.publisher = new SubmissionPublisher<>(executor, bufferSize);
+    }
+
+    @Override
+    public void onEvent(SecurityEvent event) {
+        publisher.offer(event, (subscriber, e) -> {
+            dropped.increment();
+            return false;
+        });
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super SecurityEvent> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Subscribes to the events of the given types only. Other events are skipped without
+     * using up the subscriber's demand.
+     */
+    public void subscribe(Flow.Subscriber<? super SecurityEvent> subscriber, Set<SecurityEventType> types) {
+        publisher.subscribe(new FilteringSubscriber(subscriber, EnumSet.copyOf(types)));
+    }
+
+    public int getSubscriberCount() {
+        return publisher.getNumberOfSubscribers();
+    }
+
+    /**
+     * Number of events dropped because a subscriber's buffer was full.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Completes all subscriptions once their buffered events are delivered.
+     */
+    @Override
+    public void close() {
+        publisher.close();
+    }
+
+    private static class FilteringSubscriber implements Flow.Subscriber<SecurityEvent> {
+        private final Flow.Subscriber<? super SecurityEvent> delegate;
+        private final Set<SecurityEventType> types;
+        private Flow.Subscription subscription;
+
+        FilteringSubscriber(Flow.Subscriber<? super SecurityEvent> delegate, Set<SecurityEventType> types) {
+            this.delegate = delegate;
+            this.types = types;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            delegate.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(SecurityEvent event) {
+            if(types.contains(event.getType())) {
+                delegate.onNext(event);
+            } else {
+                subscription.request(1); //give back the demand the skipped event used
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            delegate.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            delegate.onComplete();
+        }
+    }
+}
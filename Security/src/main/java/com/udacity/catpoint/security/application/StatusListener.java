@@ -1,6 +1,7 @@
 package com.udacity.catpoint.security.application;
 
 import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.Sensor;
 
 /**
  * Identifies a component that should be notified whenever the system status changes
@@ -9,4 +10,12 @@ public interface StatusListener {
     void notify(AlarmStatus status);
     void catDetected(boolean catDetected);
     void sensorStatusChanged();
+
+    /**
+     * Called instead of {@link #sensorStatusChanged()} when only this sensor's activation
+     * status changed, so listeners can update just that sensor.
+     */
+    default void sensorStatusChanged(Sensor sensor) {
+        sensorStatusChanged();
+    }
 }
@@ -0,0 +1,175 @@
+package com.udacity.catpoint.security.data;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Repository implementation that only keeps state in memory. Useful for hosting many
+ * alarm systems in one process, for simulations, and as the base for repositories that
+ * add persistence on top.
+ *
+ * Every change also publishes a new {@link SecurityState}, which {@link #getState()} reads
+ * without taking the lock.
+ */
+public class InMemorySecurityRepositoryImpl implements SecurityRepository {
+
+    private final Set<Sensor> sensors = new TreeSet<>();
+    private final SensorIndex sensorIndex = new SensorIndex();
+    private AlarmStatus alarmStatus;
+    private ArmingStatus armingStatus;
+    private final Set<String> catCameras = new HashSet<>(); //only cameras currently seeing a cat
+    private volatile SecurityState state;
+
+    public InMemorySecurityRepositoryImpl() {
+        this(AlarmStatus.NO_ALARM, ArmingStatus.DISARMED, false, List.of());
+    }
+
+    protected InMemorySecurityRepositoryImpl(AlarmStatus alarmStatus, ArmingStatus armingStatus,
+                                             boolean cat, Collection<Sensor> sensors) {
+        this.alarmStatus = alarmStatus;
+        this.armingStatus = armingStatus;
+        if(cat) {
+            catCameras.add(DEFAULT_CAMERA);
+        }
+        this.sensors.addAll(sensors);
+        this.sensors.forEach(sensorIndex::add);
+        this.state = SecurityState.of(alarmStatus, armingStatus, cat, this.sensors);
+    }
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        sensors.add(sensor);
+        sensorIndex.add(sensor);
+        state = state.withSensorAdded(sensor);
+    }
+
+    /**
+     * Adds several sensors as a single change, for repositories loading stored sensors.
+     */
+    protected synchronized void addSensors(Collection<Sensor> added) {
+        added.forEach(sensor -> {
+            sensors.add(sensor);
+            sensorIndex.add(sensor);
+        });
+        state = state.withSensorsAdded(added);
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        sensors.remove(sensor);
+        sensorIndex.remove(sensor);
+        state = state.withSensorRemoved(sensor);
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        sensors.remove(sensor);
+        sensors.add(sensor);
+        sensorIndex.update(sensor);
+        state = state.withSensorsUpdated(List.of(sensor));
+    }
+
+    @Override
+    public synchronized void updateSensors(Collection<Sensor> changed) {
+        changed.forEach(sensor -> {
+            sensors.remove(sensor);
+            sensors.add(sensor);
+            sensorIndex.update(sensor);
+        });
+        state = state.withSensorsUpdated(changed);
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+        state = state.withAlarmStatus(alarmStatus);
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+        state = state.withArmingStatus(armingStatus);
+    }
+
+    /**
+     * Sets the cat status of the whole system: a cat is recorded for {@link #DEFAULT_CAMERA},
+     * no cat clears every camera.
+     */
+    @Override
+    public synchronized void setIsCatDetected(Boolean cat) {
+        if(cat) {
+            catCameras.add(DEFAULT_CAMERA);
+        } else {
+            catCameras.clear();
+        }
+        state = state.withCatDetected(cat);
+    }
+
+    @Override
+    public synchronized void setCatDetected(String cameraId, boolean cat) {
+        boolean changed = cat ? catCameras.add(cameraId) : catCameras.remove(cameraId);
+        if(changed && state.isCatDetected() == catCameras.isEmpty()) {
+            state = state.withCatDetected(!catCameras.isEmpty());
+        }
+    }
+
+    @Override
+    public synchronized boolean isCatDetected(String cameraId) {
+        return catCameras.contains(cameraId);
+    }
+
+    @Override
+    public synchronized int getCatCameraCount() {
+        return catCameras.size();
+    }
+
+    /**
+     * The cameras currently seeing a cat, for repositories persisting them.
+     */
+    protected synchronized Set<String> getCatCameras() {
+        return new HashSet<>(catCameras);
+    }
+
+    /**
+     * The live sensors, as an unmodifiable view. Iterating it while another thread changes
+     * sensors is not safe; use {@link #getState()} for that.
+     */
+    @Override
+    public Set<Sensor> getSensors() {
+        return Collections.unmodifiableSet(sensors);
+    }
+
+    @Override
+    public SecurityState getState() {
+        return state;
+    }
+
+    @Override
+    public synchronized List<Sensor> findSensors(SensorType type, Boolean active, String namePrefix) {
+        return sensorIndex.find(type, active, namePrefix);
+    }
+
+    @Override
+    public synchronized int getSensorCount() {
+        return sensorIndex.size();
+    }
+
+    @Override
+    public synchronized AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public synchronized ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    @Override
+    public synchronized boolean isCatDetected() {
+        return !catCameras.isEmpty();
+    }
+}
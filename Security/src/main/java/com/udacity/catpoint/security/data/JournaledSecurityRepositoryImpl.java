@@ -0,0 +1,380 @@
+package com.udacity.catpoint.security.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Repository that keeps its state in memory and commits every change to a
+ * {@link StateJournal} on disk. Each repository call is written as one record holding all
+ * the fields it changed, and records are replayed in order on startup, so after a crash the
+ * state is always one the system actually went through: never an alarm status from one
+ * moment combined with an arming status or sensors from another.
+ *
+ * Changes grouped by {@link #beginChanges()} and {@link #endChanges()}, such as everything
+ * one {@link com.udacity.catpoint.security.service.SecurityService} operation changes, are
+ * written as a single record instead, and {@link #awaitChanges()} waits for it. While a
+ * thread has a group open, changes and groups of other threads wait for it to end, so no
+ * group is ever split.
+ *
+ * With {@link StateJournal.Durability#FSYNC} a call returns once its change is on disk, and
+ * a group once {@link #awaitChanges()} returns; calls from different threads share fsyncs.
+ * With {@link StateJournal.Durability#PERIODIC} calls return at once and the last sync
+ * interval of changes may be lost on power failure. The journal is compacted into a
+ * snapshot record as it grows.
+ */
+public class JournaledSecurityRepositoryImpl extends InMemorySecurityRepositoryImpl implements Closeable {
+
+    public static final Duration DEFAULT_SYNC_INTERVAL = Duration.ofMillis(100);
+
+    //record types
+    private static final int ALARM_STATUS = 1;
+    private static final int ARMING_STATUS = 2;
+    private static final int CAT_DETECTED = 3;
+    private static final int ADD_SENSOR = 4;
+    private static final int REMOVE_SENSOR = 5;
+    private static final int UPDATE_SENSORS = 6;
+    private static final int SNAPSHOT = 7;
+    private static final int CAMERA_CAT = 8;
+    private static final int BATCH = 9;
+
+    private final StateJournal journal;
+    //records of the open group, all guarded by this
+    private final List<byte[]> batch = new ArrayList<>();
+    private Thread batchOwner; //other threads wait for the group to end before changing anything
+    private int batchDepth;
+    private CompletableFuture<Void> batchCommit;
+    //commit each thread still has to wait for, set when its group ends
+    private final ThreadLocal<CompletableFuture<Void>> uncommitted = new ThreadLocal<>();
+
+    public JournaledSecurityRepositoryImpl(Path directory) throws IOException {
+        this(directory, StateJournal.Durability.FSYNC, DEFAULT_SYNC_INTERVAL, StateJournal.DEFAULT_MIN_COMPACT_BYTES);
+    }
+
+    /**
+     * Opens the journal in the directory, creating it if needed, and restores the state.
+     * @param syncInterval How often a periodic journal is forced to disk
+     * @param minCompactBytes Journal size below which it is never compacted
+     * @throws IOException if the journal can't be opened or holds a record that can't be read
+     */
+    public JournaledSecurityRepositoryImpl(Path directory, StateJournal.Durability durability, Duration syncInterval,
+                                           long minCompactBytes) throws IOException {
+        Files.createDirectories(directory);
+        try {
+            this.journal = new StateJournal(directory.resolve("state.journal"), durability, syncInterval,
+                    minCompactBytes, this::replay);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public StateJournal getJournal() {
+        return journal;
+    }
+
+    private void replay(byte[] record) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+            switch(in.readUnsignedByte()) {
+                case ALARM_STATUS -> super.setAlarmStatus(SecurityStateCodec.readAlarmStatus(in));
+                case ARMING_STATUS -> super.setArmingStatus(SecurityStateCodec.readArmingStatus(in));
+                case CAT_DETECTED -> super.setIsCatDetected(in.readBoolean());
+                case ADD_SENSOR -> super.addSensor(SecurityStateCodec.readSensor(in));
+                case REMOVE_SENSOR -> super.removeSensor(SecurityStateCodec.readSensor(in));
+                case UPDATE_SENSORS -> super.updateSensors(readSensorList(in));
+                case CAMERA_CAT -> super.setCatDetected(in.readUTF(), in.readBoolean());
+                case BATCH -> {
+                    for(int i = SecurityStateCodec.readVarInt(in); i > 0; i--) {
+                        byte[] change = new byte[SecurityStateCodec.readVarInt(in)];
+                        in.readFully(change);
+                        replay(change);
+                    }
+                }
+                case SNAPSHOT -> {
+                    super.setAlarmStatus(SecurityStateCodec.readAlarmStatus(in));
+                    super.setArmingStatus(SecurityStateCodec.readArmingStatus(in));
+                    super.setIsCatDetected(in.readBoolean());
+                    new ArrayList<>(super.getSensors()).forEach(super::removeSensor);
+                    super.addSensors(readSensorList(in));
+                    if(in.available() > 0) {
+                        //cameras seeing a cat, missing in snapshots written before cameras were tracked
+                        super.setIsCatDetected(false);
+                        for(int i = SecurityStateCodec.readVarInt(in); i > 0; i--) {
+                            super.setCatDetected(in.readUTF(), true);
+                        }
+                    }
+                }
+                default -> throw new IOException("Unknown journal record type");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Sensor> readSensorList(DataInputStream in) throws IOException {
+        int count = SecurityStateCodec.readVarInt(in);
+        List<Sensor> sensors = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            sensors.add(SecurityStateCodec.readSensor(in));
+        }
+        return sensors;
+    }
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        CompletableFuture<Void> commit;
+        synchronized(this) {
+            awaitOtherGroups();
+            super.addSensor(sensor);
+            commit = log(ADD_SENSOR, out -> SecurityStateCodec.writeSensor(out, sensor));
+        }
+        await(commit);
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        CompletableFuture<Void> commit;
+        synchronized(this) {
+            awaitOtherGroups();
+            super.removeSensor(sensor);
+            commit = log(REMOVE_SENSOR, out -> SecurityStateCodec.writeSensor(out, sensor));
+        }
+        await(commit);
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        updateSensors(List.of(sensor));
+    }
+
+    @Override
+    public void updateSensors(Collection<Sensor> changed) {
+        CompletableFuture<Void> commit;
+        synchronized(this) {
+            awaitOtherGroups();
+            super.updateSensors(changed);
+            commit = log(UPDATE_SENSORS, out -> writeSensorList(out, changed));
+        }
+        await(commit);
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        CompletableFuture<Void> commit;
+        synchronized(this) {
+            awaitOtherGroups();
+            super.setAlarmStatus(alarmStatus);
+            commit = log(ALARM_STATUS, out -> SecurityStateCodec.writeAlarmStatus(out, alarmStatus));
+        }
+        await(commit);
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        CompletableFuture<Void> commit;
+        synchronized(this) {
+            awaitOtherGroups();
+            super.setArmingStatus(armingStatus);
+            commit = log(ARMING_STATUS, out -> SecurityStateCodec.writeArmingStatus(out, armingStatus));
+        }
+        await(commit);
+    }
+
+    @Override
+    public void setIsCatDetected(Boolean cat) {
+        CompletableFuture<Void> commit;
+        synchronized(this) {
+            awaitOtherGroups();
+            super.setIsCatDetected(cat);
+            commit = log(CAT_DETECTED, out -> out.writeBoolean(cat));
+        }
+        await(commit);
+    }
+
+    @Override
+    public void setCatDetected(String cameraId, boolean cat) {
+        CompletableFuture<Void> commit;
+        synchronized(this) {
+            awaitOtherGroups();
+            super.setCatDetected(cameraId, cat);
+            commit = log(CAMERA_CAT, out -> {
+                out.writeUTF(cameraId);
+                out.writeBoolean(cat);
+            });
+        }
+        await(commit);
+    }
+
+    /**
+     * Waits for a group another thread has open to end.
+     */
+    @Override
+    public synchronized void beginChanges() {
+        awaitOtherGroups();
+        batchOwner = Thread.currentThread();
+        batchDepth++;
+    }
+
+    /**
+     * Appends the changes of the group as one record once the outermost group ends.
+     */
+    @Override
+    public synchronized void endChanges() {
+        if(batchOwner != Thread.currentThread() || --batchDepth > 0) {
+            return;
+        }
+        appendBatch();
+        if(batchCommit != null) {
+            uncommitted.set(batchCommit);
+        }
+        batchOwner = null;
+        batchCommit = null;
+        notifyAll();
+    }
+
+    /**
+     * Waits for the last group the calling thread ended to be committed.
+     * @throws UncheckedIOException if the journal could not be written
+     */
+    @Override
+    public void awaitChanges() {
+        CompletableFuture<Void> commit = uncommitted.get();
+        if(commit != null) {
+            uncommitted.remove();
+            await(commit);
+        }
+    }
+
+    /**
+     * Waits while another thread has a group open, so that group's changes stay in one
+     * record. Must be called while holding the lock, before changing anything. Interrupts
+     * are kept for the caller, as a change must not be given up halfway.
+     */
+    private void awaitOtherGroups() {
+        boolean interrupted = false;
+        while(batchOwner != null && batchOwner != Thread.currentThread()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Appends a record, or adds it to the group the calling thread has open. Must be called
+     * while holding the lock, so records are appended in the order the changes were made.
+     * @return The commit to wait for, or null if the record waits for its group to end
+     */
+    private CompletableFuture<Void> log(int type, RecordWriter writer) {
+        byte[] record = encode(type, writer);
+        if(batchOwner == Thread.currentThread()) {
+            batch.add(record);
+            return null;
+        }
+        return append(record);
+    }
+
+    private void appendBatch() {
+        if(batch.isEmpty()) {
+            return;
+        }
+        byte[] record = batch.size() == 1 ? batch.get(0) : encode(BATCH, out -> {
+            SecurityStateCodec.writeVarInt(out, batch.size());
+            for(byte[] change : batch) {
+                SecurityStateCodec.writeVarInt(out, change.length);
+                out.write(change);
+            }
+        });
+        batch.clear();
+        batchCommit = append(record);
+    }
+
+    /**
+     * Appends a record, and a snapshot after it when the journal has grown enough.
+     */
+    private CompletableFuture<Void> append(byte[] record) {
+        CompletableFuture<Void> commit = journal.append(record);
+        if(journal.shouldCompact()) {
+            journal.compact(encode(SNAPSHOT, out -> {
+                SecurityStateCodec.writeAlarmStatus(out, getAlarmStatus());
+                SecurityStateCodec.writeArmingStatus(out, getArmingStatus());
+                out.writeBoolean(isCatDetected());
+                writeSensorList(out, super.getSensors());
+                Collection<String> catCameras = getCatCameras();
+                SecurityStateCodec.writeVarInt(out, catCameras.size());
+                for(String cameraId : catCameras) {
+                    out.writeUTF(cameraId);
+                }
+            }));
+        }
+        return commit;
+    }
+
+    private static byte[] encode(int type, RecordWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); //can't happen when writing to memory
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeSensorList(DataOutputStream out, Collection<Sensor> sensors) throws IOException {
+        SecurityStateCodec.writeVarInt(out, sensors.size());
+        for(Sensor sensor : sensors) {
+            SecurityStateCodec.writeSensor(out, sensor);
+        }
+    }
+
+    /**
+     * Waits for the change to be committed, outside the lock so other threads can add their
+     * changes to the same commit. A periodic journal only reports an earlier write failure.
+     * @throws UncheckedIOException if the journal could not be written
+     */
+    private void await(CompletableFuture<Void> commit) {
+        if(commit == null) {
+            return; //part of a group, awaited by awaitChanges
+        }
+        if(journal.getDurability() != StateJournal.Durability.FSYNC && !commit.isCompletedExceptionally()) {
+            return;
+        }
+        try {
+            commit.join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof IOException) {
+                throw new UncheckedIOException((IOException) e.getCause());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Commits all outstanding changes and closes the journal.
+     */
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
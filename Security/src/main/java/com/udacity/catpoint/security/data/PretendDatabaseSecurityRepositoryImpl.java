@@ -1,106 +1,376 @@
 package com.udacity.catpoint.security.data;
 
-import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
 
-import java.lang.reflect.Type;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.prefs.BackingStoreException;
 import java.util.prefs.Preferences;
 
 /**
  * Fake repository implementation for demo purposes. Stores state information in local
  * memory and writes it to user preferences between app loads. This implementation is
  * intentionally a little hard to use in unit tests, so watch out!
+ *
+ * The alarm status, the arming status, the cameras seeing a cat and the generation of the
+ * stored sensors are written together as one value, so a crash never combines fields saved
+ * at different moments. Sensors are stored with the compact {@link SecurityStateCodec} format,
+ * in chunks written under a new generation before that value switches to them. State saved
+ * by older versions, one key per field and sensors as JSON, is still read and converted on
+ * the next save. Stored sensors are streamed in after construction. Nothing waits for that:
+ * readers see the sensors loaded so far, and sensor changes made meanwhile are saved once
+ * loading has finished.
+ *
+ * Each instance stores its state under its own preferences node, so several alarm systems
+ * can live side by side. Writes may be handed to an executor, in which case changes made
+ * before the executor gets to them are coalesced into a single write.
  */
-public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository{
-
-    private Set<Sensor> sensors;
-    private AlarmStatus alarmStatus;
-    private ArmingStatus armingStatus;
-    private Boolean cat;
+public class PretendDatabaseSecurityRepositoryImpl extends InMemorySecurityRepositoryImpl {
 
     //preference keys
-    private static final String SENSORS = "SENSORS";
+    //"<alarm status> <arming status> <sensor generation> <sensor chunk count>", then one camera seeing a cat per line
+    private static final String STATE = "STATE";
+    private static final String SENSOR_CHUNK = "SENSOR_CHUNK_";
+    //legacy keys, only read
+    private static final String SENSORS = "SENSORS"; //JSON
     private static final String ALARM_STATUS = "ALARM_STATUS";
     private static final String ARMING_STATUS = "ARMING_STATUS";
-
     private static final String CAT_DETECTED = "CAT_DETECTED";
 
-    private static final Preferences prefs = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
-    private static final Gson gson = new Gson(); //used to serialize objects into JSON
+    private static final long NO_SENSOR_GENERATION = -1; //no sensors stored, or only as JSON
 
+    //preference values are limited in length and byte arrays are stored base64 encoded
+    private static final int CHUNK_BYTES = Preferences.MAX_VALUE_LENGTH * 3 / 4;
+    private static final int LOAD_BATCH = 512;
+
+    private final Preferences prefs;
+    private final Executor persistenceExecutor;
+    private final Set<String> dirtyKeys = new HashSet<>();
+    private boolean flushScheduled;
+    private final CompletableFuture<Void> sensorsLoaded = new CompletableFuture<>();
+    private volatile boolean loaded; //set before sensorsLoaded completes, never if loading failed
+    //the stored sensors, guarded by this
+    private long sensorGeneration;
+    private int sensorChunks;
 
     public PretendDatabaseSecurityRepositoryImpl() {
+        this(Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class), Runnable::run, r -> {
+            Thread loader = new Thread(r, "sensor-loader");
+            loader.setDaemon(true);
+            loader.start();
+        });
+    }
+
+    /**
+     * @param prefs The preferences node holding this system's state
+     * @param persistenceExecutor Runs the preference writes. Use {@code Runnable::run} to write
+     *                            synchronously, or a shared pool to write in the background.
+     */
+    public PretendDatabaseSecurityRepositoryImpl(Preferences prefs, Executor persistenceExecutor) {
+        this(prefs, persistenceExecutor, Runnable::run);
+    }
+
+    /**
+     * @param prefs The preferences node holding this system's state
+     * @param persistenceExecutor Runs the preference writes. Use {@code Runnable::run} to write
+     *                            synchronously, or a shared pool to write in the background.
+     * @param loadExecutor Runs the loading of the stored sensors. The alarm and arming status are
+     *                     available as soon as the constructor returns; sensors appear as they
+     *                     are read, see {@link #getSensorsLoaded()}.
+     */
+    public PretendDatabaseSecurityRepositoryImpl(Preferences prefs, Executor persistenceExecutor, Executor loadExecutor) {
+        this(prefs, persistenceExecutor, loadExecutor, prefs.get(STATE, null));
+    }
+
+    private PretendDatabaseSecurityRepositoryImpl(Preferences prefs, Executor persistenceExecutor, Executor loadExecutor,
+                                                  String state) {
         //load system state from prefs, or else default
-        alarmStatus = AlarmStatus.valueOf(prefs.get(ALARM_STATUS, AlarmStatus.NO_ALARM.toString()));
-        armingStatus = ArmingStatus.valueOf(prefs.get(ARMING_STATUS, ArmingStatus.DISARMED.toString()));
-        cat = Boolean.valueOf(prefs.get(CAT_DETECTED, String.valueOf(false)));
+        super(state != null ? AlarmStatus.valueOf(field(state, 0)) : AlarmStatus.valueOf(prefs.get(ALARM_STATUS, AlarmStatus.NO_ALARM.toString())),
+                state != null ? ArmingStatus.valueOf(field(state, 1)) : ArmingStatus.valueOf(prefs.get(ARMING_STATUS, ArmingStatus.DISARMED.toString())),
+                state == null && Boolean.parseBoolean(prefs.get(CAT_DETECTED, String.valueOf(false))),
+                List.of());
+        this.prefs = prefs;
+        this.persistenceExecutor = persistenceExecutor;
+        if(state != null) {
+            this.sensorGeneration = Long.parseLong(field(state, 2));
+            this.sensorChunks = Integer.parseInt(field(state, 3));
+            state.lines().skip(1).filter(id -> !id.isEmpty()).forEach(id -> super.setCatDetected(id, true));
+        } else {
+            this.sensorGeneration = NO_SENSOR_GENERATION;
+        }
+        long generation = sensorGeneration;
+        int chunks = sensorChunks;
+        loadExecutor.execute(() -> loadSensors(generation, chunks));
+    }
 
+    private static String field(String state, int index) {
+        return state.lines().findFirst().orElse("").split(" ")[index];
+    }
+
+    /**
+     * Streams the stored sensors into memory in batches, so readers see them fill in and
+     * never hold the lock for long.
+     */
+    private void loadSensors(long generation, int chunks) {
+        List<Sensor> batch = new ArrayList<>(LOAD_BATCH);
+        Consumer<Sensor> loader = sensor -> {
+            batch.add(sensor);
+            if(batch.size() == LOAD_BATCH) {
+                addLoadedSensors(batch);
+                batch.clear();
+            }
+        };
+        try {
+            if(generation != NO_SENSOR_GENERATION) {
+                SecurityStateCodec.readSensors(chunkStream(chunkKey(generation, ""), chunks), loader);
+            } else {
+                readLegacySensors(loader);
+            }
+            addLoadedSensors(batch);
+            synchronized(this) {
+                loaded = true;
+                if(dirtyKeys.contains(SENSORS)) {
+                    persist(SENSORS); //changes made while loading
+                }
+            }
+            sensorsLoaded.complete(null);
+        } catch (IOException | RuntimeException e) {
+            sensorsLoaded.completeExceptionally(new IllegalStateException("Stored sensors are corrupt", e));
+        }
+    }
+
+    /**
+     * Returns the stored chunks as one stream, decoding each chunk only when it is reached.
+     */
+    private InputStream chunkStream(String keyPrefix, int chunks) {
+        Iterator<InputStream> chunkIterator = IntStream.range(0, chunks)
+                .mapToObj(i -> (InputStream) new ByteArrayInputStream(prefs.getByteArray(keyPrefix + i, new byte[0])))
+                .iterator();
+        return new SequenceInputStream(new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return chunkIterator.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                return chunkIterator.next();
+            }
+        });
+    }
+
+    private void readLegacySensors(Consumer<Sensor> loader) throws IOException {
         //we've serialized our sensor objects for storage, which should be a good warning sign that
         // this is likely an impractical solution for a real system
         String sensorString = prefs.get(SENSORS, null);
         if(sensorString == null) {
-            sensors = new TreeSet<>();
-        } else {
-            Type type = new TypeToken<Set<Sensor>>() {
-            }.getType();
-            sensors = gson.fromJson(sensorString, type);
+            return;
+        }
+        try (JsonReader reader = new JsonReader(new StringReader(sensorString))) {
+            reader.beginArray();
+            while(reader.hasNext()) {
+                loader.accept(LegacyJson.GSON.fromJson(reader, Sensor.class));
+            }
+            reader.endArray();
         }
     }
 
-    @Override
-    public void addSensor(Sensor sensor) {
-        sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+    private synchronized void addLoadedSensors(List<Sensor> loaded) {
+        super.addSensors(loaded);
     }
 
     @Override
-    public void removeSensor(Sensor sensor) {
-        sensors.remove(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+    public CompletableFuture<Void> getSensorsLoaded() {
+        return sensorsLoaded;
+    }
+
+    /**
+     * Changes are refused if the stored sensors could not be read, so they are not
+     * overwritten by the few that could.
+     */
+    private void checkSensorsReadable() {
+        if(sensorsLoaded.isCompletedExceptionally()) {
+            try {
+                sensorsLoaded.join();
+            } catch (CompletionException e) {
+                throw (IllegalStateException) e.getCause();
+            }
+        }
     }
 
     @Override
-    public void updateSensor(Sensor sensor) {
-        sensors.remove(sensor);
-        sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+    public synchronized void addSensor(Sensor sensor) {
+        checkSensorsReadable();
+        super.addSensor(sensor);
+        persist(SENSORS);
     }
 
     @Override
-    public void setAlarmStatus(AlarmStatus alarmStatus) {
-        this.alarmStatus = alarmStatus;
-        prefs.put(ALARM_STATUS, this.alarmStatus.toString());
+    public synchronized void removeSensor(Sensor sensor) {
+        checkSensorsReadable();
+        super.removeSensor(sensor);
+        persist(SENSORS);
     }
 
     @Override
-    public void setArmingStatus(ArmingStatus armingStatus) {
-        this.armingStatus = armingStatus;
-        prefs.put(ARMING_STATUS, this.armingStatus.toString());
+    public synchronized void updateSensor(Sensor sensor) {
+        checkSensorsReadable();
+        super.updateSensor(sensor);
+        persist(SENSORS);
     }
 
     @Override
-    public void setIsCatDetected(Boolean cat){
-        this.cat = cat;
-        prefs.put(CAT_DETECTED, this.cat.toString());
+    public synchronized void updateSensors(Collection<Sensor> changed) {
+        checkSensorsReadable();
+        super.updateSensors(changed);
+        persist(SENSORS);
     }
 
+    /**
+     * While sensors are loading, returns a copy of those loaded so far, as the live set is
+     * still growing.
+     */
     @Override
     public Set<Sensor> getSensors() {
-        return sensors;
+        if(loaded) {
+            return super.getSensors();
+        }
+        synchronized(this) {
+            return Collections.unmodifiableSet(new TreeSet<>(super.getSensors()));
+        }
     }
 
     @Override
-    public AlarmStatus getAlarmStatus() {
-        return alarmStatus;
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        super.setAlarmStatus(alarmStatus);
+        persist(STATE);
     }
 
     @Override
-    public ArmingStatus getArmingStatus() {
-        return armingStatus;
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        super.setArmingStatus(armingStatus);
+        persist(STATE);
     }
 
     @Override
-    public boolean isCatDetected(){ return cat; }
+    public synchronized void setIsCatDetected(Boolean cat) {
+        super.setIsCatDetected(cat);
+        persist(STATE);
+    }
+
+    @Override
+    public synchronized void setCatDetected(String cameraId, boolean cat) {
+        super.setCatDetected(cameraId, cat);
+        persist(STATE);
+    }
+
+    /**
+     * Marks the key as changed and makes sure a flush is pending. If the executor rejects the
+     * flush, for example after it was shut down, the change is written right away.
+     */
+    private void persist(String key) {
+        dirtyKeys.add(key);
+        if(!flushScheduled) {
+            flushScheduled = true;
+            try {
+                persistenceExecutor.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Writes the state as one value, after the sensors if they changed. Changed sensors wait
+     * while they are still loading, so no stored sensor is lost.
+     */
+    private synchronized void flush() {
+        flushScheduled = false;
+        boolean saveSensors = loaded && dirtyKeys.contains(SENSORS);
+        if(!saveSensors && !dirtyKeys.contains(STATE)) {
+            return;
+        }
+        if(saveSensors) {
+            saveSensors();
+        }
+        StringBuilder state = new StringBuilder()
+                .append(getAlarmStatus()).append(' ').append(getArmingStatus()).append(' ')
+                .append(sensorGeneration).append(' ').append(sensorChunks);
+        getCatCameras().forEach(cameraId -> state.append('\n').append(cameraId));
+        prefs.put(STATE, state.toString());
+        prefs.remove(ALARM_STATUS);
+        prefs.remove(ARMING_STATUS);
+        prefs.remove(CAT_DETECTED);
+        if(saveSensors) {
+            removeStaleSensorKeys(chunkKey(sensorGeneration, ""));
+            dirtyKeys.remove(SENSORS);
+        }
+        dirtyKeys.remove(STATE);
+    }
+
+    /**
+     * Writes the sensors in the binary format under a new generation, split over as many keys
+     * as needed. The state still refers to the previous generation until it is written, so a
+     * crash during the save leaves the previous sensors readable.
+     */
+    private void saveSensors() {
+        byte[] encoded = SecurityStateCodec.encodeSensors(super.getSensors());
+        int chunks = (encoded.length + CHUNK_BYTES - 1) / CHUNK_BYTES;
+        long generation = sensorGeneration + 1;
+        for(int i = 0; i < chunks; i++) {
+            prefs.putByteArray(chunkKey(generation, String.valueOf(i)),
+                    Arrays.copyOfRange(encoded, i * CHUNK_BYTES, Math.min(encoded.length, (i + 1) * CHUNK_BYTES)));
+        }
+        sensorGeneration = generation;
+        sensorChunks = chunks;
+    }
+
+    private static String chunkKey(long generation, String index) {
+        return SENSOR_CHUNK + generation + "_" + index;
+    }
+
+    /**
+     * Removes the chunks of older generations, including those left by an interrupted save,
+     * and the legacy JSON sensors.
+     */
+    private void removeStaleSensorKeys(String currentPrefix) {
+        prefs.remove(SENSORS);
+        try {
+            for(String key : prefs.keys()) {
+                if(key.startsWith(SENSOR_CHUNK) && !key.startsWith(currentPrefix)) {
+                    prefs.remove(key);
+                }
+            }
+        } catch (BackingStoreException e) {
+            //stale chunks are never read, the next save tries again
+        }
+    }
+
+    /**
+     * Holds the parser for sensors saved in the old JSON format, so Gson is only loaded when
+     * such sensors are found.
+     */
+    private static class LegacyJson {
+        private static final Gson GSON = new Gson();
+    }
 }
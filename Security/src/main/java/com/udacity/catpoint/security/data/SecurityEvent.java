@@ -0,0 +1,125 @@
+package com.udacity.catpoint.security.data;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Something that happened to the security system at a point in time. Sensor events carry the
+ * id of the sensor, alarm and arming status events carry the new status. Sensor added and
+ * removed events also carry the sensor itself.
+ */
+public final class SecurityEvent {
+    private final long timestamp;
+    private final SecurityEventType type;
+    private final UUID sensorId;
+    private final AlarmStatus alarmStatus;
+    private final ArmingStatus armingStatus;
+    private final SensorState sensor;
+
+    public SecurityEvent(long timestamp, SecurityEventType type, UUID sensorId, AlarmStatus alarmStatus) {
+        this(timestamp, type, sensorId, alarmStatus, null);
+    }
+
+    public SecurityEvent(long timestamp, SecurityEventType type, UUID sensorId, AlarmStatus alarmStatus, ArmingStatus armingStatus) {
+        this(timestamp, type, sensorId, alarmStatus, armingStatus, null);
+    }
+
+    private SecurityEvent(long timestamp, SecurityEventType type, UUID sensorId, AlarmStatus alarmStatus,
+                          ArmingStatus armingStatus, SensorState sensor) {
+        this.timestamp = timestamp;
+        this.type = type;
+        this.sensorId = sensorId;
+        this.alarmStatus = alarmStatus;
+        this.armingStatus = armingStatus;
+        this.sensor = sensor;
+    }
+
+    public static SecurityEvent alarmStatusChanged(long timestamp, AlarmStatus alarmStatus) {
+        return new SecurityEvent(timestamp, SecurityEventType.ALARM_STATUS_CHANGED, null, alarmStatus);
+    }
+
+    public static SecurityEvent armingStatusChanged(long timestamp, ArmingStatus armingStatus) {
+        return new SecurityEvent(timestamp, SecurityEventType.ARMING_STATUS_CHANGED, null, null, armingStatus);
+    }
+
+    public static SecurityEvent sensorActivationChanged(long timestamp, UUID sensorId, boolean active) {
+        return new SecurityEvent(timestamp, active ? SecurityEventType.SENSOR_ACTIVATED : SecurityEventType.SENSOR_DEACTIVATED,
+                sensorId, null);
+    }
+
+    public static SecurityEvent sensorAdded(long timestamp, Sensor sensor) {
+        return new SecurityEvent(timestamp, SecurityEventType.SENSOR_ADDED, sensor.getSensorId(), null, null, SensorState.of(sensor));
+    }
+
+    public static SecurityEvent sensorRemoved(long timestamp, Sensor sensor) {
+        return new SecurityEvent(timestamp, SecurityEventType.SENSOR_REMOVED, sensor.getSensorId(), null, null, SensorState.of(sensor));
+    }
+
+    public static SecurityEvent catVerdict(long timestamp, boolean cat) {
+        return new SecurityEvent(timestamp, cat ? SecurityEventType.CAT_DETECTED : SecurityEventType.CAT_NOT_DETECTED, null, null);
+    }
+
+    /**
+     * Milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public SecurityEventType getType() {
+        return type;
+    }
+
+    /**
+     * The sensor the event is about, or null.
+     */
+    public UUID getSensorId() {
+        return sensorId;
+    }
+
+    /**
+     * The new alarm status for {@link SecurityEventType#ALARM_STATUS_CHANGED}, otherwise null.
+     */
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    /**
+     * The new arming status for {@link SecurityEventType#ARMING_STATUS_CHANGED}, otherwise null.
+     */
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    /**
+     * The sensor as it was when added or removed, for {@link SecurityEventType#SENSOR_ADDED} and
+     * {@link SecurityEventType#SENSOR_REMOVED}, otherwise null. Also null for events read back
+     * from a {@link SecurityEventStore}, which only keeps the id.
+     */
+    public SensorState getSensor() {
+        return sensor;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SecurityEvent event = (SecurityEvent) o;
+        return timestamp == event.timestamp && type == event.type
+                && Objects.equals(sensorId, event.sensorId) && alarmStatus == event.alarmStatus
+                && armingStatus == event.armingStatus;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(timestamp, type, sensorId, alarmStatus, armingStatus);
+    }
+
+    @Override
+    public String toString() {
+        return "SecurityEvent{" + timestamp + " " + type
+                + (sensorId != null ? " " + sensorId : "")
+                + (alarmStatus != null ? " " + alarmStatus : "")
+                + (armingStatus != null ? " " + armingStatus : "") + "}";
+    }
+}
@@ -0,0 +1,373 @@
+package com.udacity.catpoint.security.data;
+
+import com.udacity.catpoint.security.application.SecurityEventListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only history of security events, stored on disk in one segment file per time bucket
+ * (one hour by default). Records have a fixed size and are appended in timestamp order, and
+ * every segment keeps a sparse in-memory index holding the timestamp of every
+ * {@value #INDEX_INTERVAL}th record. A range query therefore only opens the segments
+ * overlapping the window and starts reading close to the first matching record, no matter how
+ * many events the history holds.
+ *
+ * Events are written straight to the file, so they survive the application exiting; call
+ * {@link #sync()} to also force them to the disk. Timestamps never go backwards: an event
+ * older than the last appended one is recorded with the last timestamp. Sensor added and
+ * removed events are recorded with the sensor id only.
+ *
+ * As a listener the store never throws: listeners run while the security service changes its
+ * state, and a full or failing disk must not stop an alarm. Events that could not be written
+ * are dropped and counted instead, see {@link #getFailedWriteCount()}.
+ */
+public class SecurityEventStore implements SecurityEventListener, Closeable {
+
+    public static final Duration DEFAULT_SEGMENT_DURATION = Duration.ofHours(1);
+    static final int INDEX_INTERVAL = 256;
+
+    private static final int MAGIC = 0x43504556; //"CPEV"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    //timestamp, type, alarm or arming status + sensor flag, sensor id
+    private static final int RECORD_BYTES = 8 + 1 + 1 + 16;
+    private static final int HAS_SENSOR = 0x80;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("events-(-?\\d+)\\.seg");
+
+    private final Path directory;
+    private final long segmentMillis;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(RECORD_BYTES);
+    private final AtomicLong failedWrites = new AtomicLong();
+
+    private volatile IOException lastWriteFailure;
+
+    private Segment activeSegment;
+    private FileChannel activeChannel;
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    public SecurityEventStore(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_DURATION);
+    }
+
+    /**
+     * Opens the history in the directory, creating it if needed.
+     * @param segmentDuration Time span covered by each segment file
+     */
+    public SecurityEventStore(Path directory, Duration segmentDuration) throws IOException {
+        this.directory = directory;
+        this.segmentMillis = segmentDuration.toMillis();
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "events-*.seg")) {
+            for(Path file : files) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if(matcher.matches()) {
+                    long start = Long.parseLong(matcher.group(1));
+                    segments.put(start, new Segment(start, file, (Files.size(file) - HEADER_BYTES) / RECORD_BYTES));
+                }
+            }
+        }
+        if(!segments.isEmpty()) {
+            Segment last = segments.lastEntry().getValue();
+            last.loadIndex();
+            lastTimestamp = last.lastTimestamp;
+        }
+    }
+
+    /**
+     * Appends the event to the history, or counts it as failed if it could not be written.
+     */
+    @Override
+    public void onEvent(SecurityEvent event) {
+        try {
+            append(event);
+        } catch (IOException e) {
+            lastWriteFailure = e;
+            failedWrites.incrementAndGet();
+        }
+    }
+
+    /**
+     * Number of events received as a listener that could not be written.
+     */
+    public long getFailedWriteCount() {
+        return failedWrites.get();
+    }
+
+    /**
+     * Why the last event received as a listener could not be written, or null if none failed.
+     */
+    public IOException getLastWriteFailure() {
+        return lastWriteFailure;
+    }
+
+    public synchronized void append(SecurityEvent event) throws IOException {
+        long timestamp = Math.max(event.getTimestamp(), lastTimestamp);
+        long bucket = Math.floorDiv(timestamp, segmentMillis) * segmentMillis;
+        if(activeSegment == null || activeSegment.start != bucket) {
+            openActiveSegment(bucket);
+        }
+
+        writeBuffer.clear();
+        writeBuffer.putLong(timestamp);
+        writeBuffer.put((byte) event.getType().ordinal());
+        Enum<?> status = event.getAlarmStatus() != null ? event.getAlarmStatus() : event.getArmingStatus();
+        writeBuffer.put((byte) ((status == null ? 0 : status.ordinal() + 1)
+                | (event.getSensorId() == null ? 0 : HAS_SENSOR)));
+        writeBuffer.putLong(event.getSensorId() == null ? 0 : event.getSensorId().getMostSignificantBits());
+        writeBuffer.putLong(event.getSensorId() == null ? 0 : event.getSensorId().getLeastSignificantBits());
+        writeBuffer.flip();
+        long position = activeSegment.position(activeSegment.recordCount);
+        while(writeBuffer.hasRemaining()) {
+            position += activeChannel.write(writeBuffer, position);
+        }
+        activeSegment.appended(timestamp);
+        lastTimestamp = timestamp;
+    }
+
+    private void openActiveSegment(long bucket) throws IOException {
+        if(activeChannel != null) {
+            activeChannel.close();
+            activeChannel = null;
+            activeSegment = null;
+        }
+        Segment segment = segments.get(bucket);
+        FileChannel channel;
+        if(segment == null) {
+            Path file = directory.resolve("events-" + bucket + ".seg");
+            segment = new Segment(bucket, file, 0);
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+                channel.write(header, 0);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            segments.put(bucket, segment);
+        } else {
+            segment.loadIndex();
+            channel = FileChannel.open(segment.file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                //drop a record left half written by a crash
+                channel.truncate(segment.position(segment.recordCount));
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+        //only once the segment is open, so a failed open is retried on the next append
+        activeSegment = segment;
+        activeChannel = channel;
+    }
+
+    /**
+     * Forces all appended events to the disk.
+     */
+    public synchronized void sync() throws IOException {
+        if(activeChannel != null) {
+            activeChannel.force(false);
+        }
+    }
+
+    /**
+     * Passes the matching events to the consumer in timestamp order.
+     * @param from Start of the time window in epoch milliseconds, inclusive
+     * @param to End of the time window in epoch milliseconds, exclusive
+     * @param sensorId Sensor the events must be about, or null for any
+     * @param type Event type to match, or null for any
+     */
+    public synchronized void query(long from, long to, UUID sensorId, SecurityEventType type,
+                                   Consumer<SecurityEvent> consumer) throws IOException {
+        if(from >= to) {
+            return;
+        }
+        //the segment starting at or before the window may hold its first events
+        Long first = segments.floorKey(from);
+        for(Segment segment : segments.subMap(first != null ? first : from, true, to, false).values()) {
+            segment.query(from, to, sensorId, type, consumer);
+        }
+    }
+
+    public List<SecurityEvent> query(long from, long to, UUID sensorId, SecurityEventType type) throws IOException {
+        List<SecurityEvent> events = new ArrayList<>();
+        query(from, to, sensorId, type, events::add);
+        return events;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if(activeChannel != null) {
+            activeChannel.close();
+            activeChannel = null;
+            activeSegment = null;
+        }
+    }
+
+    private static SecurityEvent readRecord(ByteBuffer buffer) throws IOException {
+        long timestamp = buffer.getLong();
+        int type = buffer.get();
+        int flags = buffer.get() & 0xFF;
+        long msb = buffer.getLong();
+        long lsb = buffer.getLong();
+        int status = (flags & ~HAS_SENSOR) - 1;
+        if(type < 0 || type >= SecurityEventType.values().length) {
+            throw new IOException("Corrupt event record");
+        }
+        //the status slot holds the arming status for arming events, otherwise the alarm status
+        boolean arming = SecurityEventType.values()[type] == SecurityEventType.ARMING_STATUS_CHANGED;
+        if(status >= (arming ? ArmingStatus.values().length : AlarmStatus.values().length)) {
+            throw new IOException("Corrupt event record");
+        }
+        return new SecurityEvent(timestamp, SecurityEventType.values()[type],
+                (flags & HAS_SENSOR) != 0 ? new UUID(msb, lsb) : null,
+                status >= 0 && !arming ? AlarmStatus.values()[status] : null,
+                status >= 0 && arming ? ArmingStatus.values()[status] : null);
+    }
+
+    /**
+     * One segment file. The index is loaded on first use, then kept up to date by appends.
+     */
+    private static class Segment {
+        private final long start;
+        private final Path file;
+        private long recordCount;
+        private long lastTimestamp = Long.MIN_VALUE;
+        private long[] index;
+        private int indexSize;
+
+        Segment(long start, Path file, long recordCount) {
+            this.start = start;
+            this.file = file;
+            this.recordCount = Math.max(0, recordCount);
+        }
+
+        long position(long record) {
+            return HEADER_BYTES + record * RECORD_BYTES;
+        }
+
+        void appended(long timestamp) {
+            if(index == null) {
+                index = new long[16];
+            }
+            if(recordCount % INDEX_INTERVAL == 0) {
+                if(indexSize == index.length) {
+                    index = Arrays.copyOf(index, indexSize * 2);
+                }
+                index[indexSize++] = timestamp;
+            }
+            recordCount++;
+            lastTimestamp = timestamp;
+        }
+
+        /**
+         * Reads the timestamp of every indexed record, and of the last record.
+         */
+        void loadIndex() throws IOException {
+            if(index != null) {
+                return;
+            }
+            index = new long[(int) Math.max(16, recordCount / INDEX_INTERVAL + 1)];
+            ByteBuffer timestamp = ByteBuffer.allocate(Long.BYTES);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                checkHeader(channel);
+                for(long record = 0; record < recordCount; record += INDEX_INTERVAL) {
+                    index[indexSize++] = readTimestamp(channel, record, timestamp);
+                }
+                if(recordCount > 0) {
+                    lastTimestamp = readTimestamp(channel, recordCount - 1, timestamp);
+                }
+            }
+        }
+
+        private long readTimestamp(FileChannel channel, long record, ByteBuffer buffer) throws IOException {
+            buffer.clear();
+            readFully(channel, buffer, position(record));
+            return buffer.getLong(0);
+        }
+
+        void query(long from, long to, UUID sensorId, SecurityEventType type, Consumer<SecurityEvent> consumer) throws IOException {
+            loadIndex();
+            //find the first indexed record inside the window, then start one block earlier since
+            // the tail of that block may be inside the window too
+            int low = 0;
+            int high = indexSize;
+            while(low < high) {
+                int mid = (low + high) >>> 1;
+                if(index[mid] < from) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            long record = Math.max(0, low - 1) * (long) INDEX_INTERVAL;
+            long end = recordCount;
+
+            ByteBuffer buffer = ByteBuffer.allocate(INDEX_INTERVAL * RECORD_BYTES);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                checkHeader(channel);
+                while(record < end) {
+                    int batch = (int) Math.min(INDEX_INTERVAL, end - record);
+                    buffer.clear().limit(batch * RECORD_BYTES);
+                    readFully(channel, buffer, position(record));
+                    buffer.flip();
+                    for(int i = 0; i < batch; i++) {
+                        long timestamp = buffer.getLong(buffer.position());
+                        if(timestamp >= to) {
+                            return;
+                        }
+                        if(timestamp < from) {
+                            buffer.position(buffer.position() + RECORD_BYTES);
+                            continue;
+                        }
+                        SecurityEvent event = readRecord(buffer);
+                        if((sensorId == null || sensorId.equals(event.getSensorId()))
+                                && (type == null || type == event.getType())) {
+                            consumer.accept(event);
+                        }
+                    }
+                    record += batch;
+                }
+            }
+        }
+
+        private static void checkHeader(FileChannel channel) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(channel, header, 0);
+            if(header.getInt(0) != MAGIC || header.getInt(4) > VERSION) {
+                throw new IOException("Not a supported event segment");
+            }
+        }
+
+        private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+            while(buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if(read < 0) {
+                    throw new IOException("Event segment is truncated");
+                }
+                position += read;
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.udacity.catpoint.security.data;
+
+/**
+ * Kinds of events recorded in the event history. Stored by ordinal, so new types must only
+ * ever be appended.
+ */
+public enum SecurityEventType {
+    ALARM_STATUS_CHANGED, SENSOR_ACTIVATED, SENSOR_DEACTIVATED, CAT_DETECTED, CAT_NOT_DETECTED, ARMING_STATUS_CHANGED,
+    SENSOR_ADDED, SENSOR_REMOVED
+}
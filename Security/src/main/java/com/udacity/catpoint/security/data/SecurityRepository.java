@@ -1,12 +1,17 @@
 package com.udacity.catpoint.security.data;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Interface showing the methods our security repository will need to support
  */
 public interface SecurityRepository {
+    //camera the single cat status of the whole system is recorded for
+    String DEFAULT_CAMERA = "camera";
+
     void addSensor(Sensor sensor);
     void removeSensor(Sensor sensor);
     void updateSensor(Sensor sensor);
@@ -17,5 +22,99 @@ public interface SecurityRepository {
     ArmingStatus getArmingStatus();
 
     void setIsCatDetected(Boolean cat);
+
+    /**
+     * True if any camera currently sees a cat.
+     */
     boolean isCatDetected();
+
+    /**
+     * Records whether one camera currently sees a cat. The default implementation keeps a
+     * single status for all cameras.
+     */
+    default void setCatDetected(String cameraId, boolean cat) {
+        setIsCatDetected(cat);
+    }
+
+    default boolean isCatDetected(String cameraId) {
+        return isCatDetected();
+    }
+
+    /**
+     * Number of cameras currently seeing a cat.
+     */
+    default int getCatCameraCount() {
+        return isCatDetected() ? 1 : 0;
+    }
+
+    /**
+     * Persists several changed sensors at once. Implementations that write the whole sensor
+     * set on every change should override this to write only once.
+     */
+    default void updateSensors(Collection<Sensor> sensors) {
+        sensors.forEach(this::updateSensor);
+    }
+
+    /**
+     * Returns the sensors matching all provided filters, in display order. The default
+     * implementation scans every sensor; repositories holding many sensors should answer
+     * this from an index.
+     * @param type Sensor type to match, or null for any type
+     * @param active Activation status to match, or null for any status
+     * @param namePrefix Prefix the sensor name must start with, or null/empty for any name
+     */
+    default List<Sensor> findSensors(SensorType type, Boolean active, String namePrefix) {
+        return getSensors().stream()
+                .filter(s -> type == null || s.getSensorType() == type)
+                .filter(s -> active == null || s.getActive() == active)
+                .filter(s -> namePrefix == null || s.getName().startsWith(namePrefix))
+                .sorted()
+                .toList();
+    }
+
+    default int getSensorCount() {
+        return getSensors().size();
+    }
+
+    /**
+     * Returns the whole state as one consistent, immutable snapshot. The default
+     * implementation copies it from the getters on every call; repositories read by many
+     * threads should keep a published snapshot instead.
+     */
+    default SecurityState getState() {
+        return SecurityState.of(getAlarmStatus(), getArmingStatus(), isCatDetected(), getSensors());
+    }
+
+    /**
+     * Starts a group of changes made by the calling thread, ended by {@link #endChanges()}.
+     * Groups nest; the outermost one counts. Repositories that persist changes store a group
+     * as one unit, so a crash never leaves part of it. The default implementation does
+     * nothing.
+     */
+    default void beginChanges() {
+    }
+
+    /**
+     * Ends a group of changes started by {@link #beginChanges()}. Called while the caller
+     * still holds its own lock, so repositories must not wait for the disk here.
+     */
+    default void endChanges() {
+    }
+
+    /**
+     * Waits until the changes the calling thread has made are as durable as the repository
+     * promises. Called after releasing the caller's lock, so other threads can add their
+     * changes to the same write meanwhile. The default implementation returns at once.
+     */
+    default void awaitChanges() {
+    }
+
+    /**
+     * Completes once all stored sensors are available. Until then {@link #findSensors} and
+     * {@link #getSensorCount()} may only see part of them. Repositories loading everything
+     * up front return a completed future.
+     */
+    default CompletableFuture<Void> getSensorsLoaded() {
+        return CompletableFuture.completedFuture(null);
+    }
 }
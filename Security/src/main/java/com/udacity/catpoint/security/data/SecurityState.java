@@ -0,0 +1,315 @@
+package com.udacity.catpoint.security.data;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+/**
+ * Immutable, versioned view of the whole state of an alarm system. Writers publish a new
+ * state after every change through a single volatile reference, so readers on any thread get
+ * the alarm status, arming status, cat verdict and sensors as they were at one moment,
+ * without locking and without copying.
+ *
+ * Sensors are held in display order as immutable {@link SensorState} values, in chunks of up
+ * to {@value #MAX_CHUNK}. A change copies only the chunk directory and the chunks it touches;
+ * all other chunks are shared with the previous state.
+ */
+public final class SecurityState {
+
+    static final int MAX_CHUNK = 128;
+    private static final SensorState[][] NO_CHUNKS = new SensorState[0][];
+
+    private final long version;
+    private final AlarmStatus alarmStatus;
+    private final ArmingStatus armingStatus;
+    private final boolean catDetected;
+    private final SensorState[][] chunks;
+    private final int[] chunkEnds; //index after the last sensor of each chunk
+    private final List<SensorState> sensorList = new SensorList();
+
+    private SecurityState(long version, AlarmStatus alarmStatus, ArmingStatus armingStatus, boolean catDetected,
+                          SensorState[][] chunks, int[] chunkEnds) {
+        this.version = version;
+        this.alarmStatus = alarmStatus;
+        this.armingStatus = armingStatus;
+        this.catDetected = catDetected;
+        this.chunks = chunks;
+        this.chunkEnds = chunkEnds;
+    }
+
+    /**
+     * Creates the first state of a system.
+     * @param sensors The sensors in any order; the state keeps their current values
+     */
+    public static SecurityState of(AlarmStatus alarmStatus, ArmingStatus armingStatus, boolean catDetected,
+                                   Collection<Sensor> sensors) {
+        SensorState[][] chunks = chunk(sensors.stream().map(SensorState::of).sorted().toArray(SensorState[]::new));
+        return new SecurityState(0, alarmStatus, armingStatus, catDetected, chunks, ends(chunks));
+    }
+
+    /**
+     * Splits sorted sensors into half-full chunks, leaving room for inserts.
+     */
+    private static SensorState[][] chunk(SensorState[] sorted) {
+        List<SensorState[]> chunks = new ArrayList<>();
+        for(int start = 0; start < sorted.length; start += MAX_CHUNK / 2) {
+            chunks.add(Arrays.copyOfRange(sorted, start, Math.min(sorted.length, start + MAX_CHUNK / 2)));
+        }
+        return chunks.toArray(NO_CHUNKS);
+    }
+
+    /**
+     * Increases with every change, so readers can tell whether anything changed.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    public boolean isCatDetected() {
+        return catDetected;
+    }
+
+    /**
+     * The sensors in display order, as an unmodifiable list.
+     */
+    public List<SensorState> getSensors() {
+        return sensorList;
+    }
+
+    public int getSensorCount() {
+        return chunkEnds.length == 0 ? 0 : chunkEnds[chunkEnds.length - 1];
+    }
+
+    /**
+     * Whether the state holds a sensor equal to this one, found by binary search.
+     */
+    public boolean containsSensor(Sensor sensor) {
+        if(chunks.length == 0) {
+            return false;
+        }
+        SensorState value = SensorState.of(sensor);
+        return Arrays.binarySearch(chunks[chunkFor(value)], value) >= 0;
+    }
+
+    SecurityState withAlarmStatus(AlarmStatus alarmStatus) {
+        return new SecurityState(version + 1, alarmStatus, armingStatus, catDetected, chunks, chunkEnds);
+    }
+
+    SecurityState withArmingStatus(ArmingStatus armingStatus) {
+        return new SecurityState(version + 1, alarmStatus, armingStatus, catDetected, chunks, chunkEnds);
+    }
+
+    SecurityState withCatDetected(boolean catDetected) {
+        return new SecurityState(version + 1, alarmStatus, armingStatus, catDetected, chunks, chunkEnds);
+    }
+
+    /**
+     * Adds the value of the sensor, or replaces the value of an equal sensor.
+     */
+    SecurityState withSensorAdded(Sensor sensor) {
+        SensorState value = SensorState.of(sensor);
+        if(chunks.length == 0) {
+            SensorState[][] first = {{value}};
+            return withChunks(first, ends(first));
+        }
+        int c = chunkFor(value);
+        SensorState[] chunk = chunks[c];
+        int index = Arrays.binarySearch(chunk, value);
+        SensorState[][] newChunks;
+        if(index >= 0) {
+            newChunks = chunks.clone();
+            newChunks[c] = chunk.clone();
+            newChunks[c][index] = value;
+            return withChunks(newChunks, chunkEnds);
+        }
+        int insert = -index - 1;
+        SensorState[] grown = new SensorState[chunk.length + 1];
+        System.arraycopy(chunk, 0, grown, 0, insert);
+        grown[insert] = value;
+        System.arraycopy(chunk, insert, grown, insert + 1, chunk.length - insert);
+        if(grown.length <= MAX_CHUNK) {
+            newChunks = chunks.clone();
+            newChunks[c] = grown;
+        } else {
+            //split a full chunk in two halves
+            newChunks = new SensorState[chunks.length + 1][];
+            System.arraycopy(chunks, 0, newChunks, 0, c);
+            newChunks[c] = Arrays.copyOfRange(grown, 0, grown.length / 2);
+            newChunks[c + 1] = Arrays.copyOfRange(grown, grown.length / 2, grown.length);
+            System.arraycopy(chunks, c + 1, newChunks, c + 2, chunks.length - c - 1);
+        }
+        return withChunks(newChunks, ends(newChunks));
+    }
+
+    SecurityState withSensorRemoved(Sensor sensor) {
+        if(chunks.length == 0) {
+            return this;
+        }
+        SensorState value = SensorState.of(sensor);
+        int c = chunkFor(value);
+        int index = Arrays.binarySearch(chunks[c], value);
+        if(index < 0) {
+            return this;
+        }
+        SensorState[][] newChunks;
+        if(chunks[c].length == 1) {
+            newChunks = new SensorState[chunks.length - 1][];
+            System.arraycopy(chunks, 0, newChunks, 0, c);
+            System.arraycopy(chunks, c + 1, newChunks, c, chunks.length - c - 1);
+        } else {
+            SensorState[] shrunk = new SensorState[chunks[c].length - 1];
+            System.arraycopy(chunks[c], 0, shrunk, 0, index);
+            System.arraycopy(chunks[c], index + 1, shrunk, index, shrunk.length - index);
+            newChunks = chunks.clone();
+            newChunks[c] = shrunk;
+        }
+        return withChunks(newChunks, ends(newChunks));
+    }
+
+    /**
+     * Replaces the values of the changed sensors, copying each touched chunk only once.
+     * Changes must not affect the sort order; sensors that are not present are added.
+     */
+    SecurityState withSensorsUpdated(Collection<Sensor> changed) {
+        SensorState[][] newChunks = chunks.clone();
+        boolean[] copied = new boolean[chunks.length];
+        List<Sensor> missing = null;
+        for(Sensor sensor : changed) {
+            SensorState value = SensorState.of(sensor);
+            int c = chunks.length == 0 ? -1 : chunkFor(value);
+            int index = c < 0 ? -1 : Arrays.binarySearch(newChunks[c], value);
+            if(index < 0) {
+                if(missing == null) {
+                    missing = new ArrayList<>();
+                }
+                missing.add(sensor);
+                continue;
+            }
+            if(!copied[c]) {
+                newChunks[c] = newChunks[c].clone();
+                copied[c] = true;
+            }
+            newChunks[c][index] = value;
+        }
+        SecurityState updated = withChunks(newChunks, chunkEnds);
+        return missing == null ? updated : updated.withSensorsAdded(missing).withVersion(version + 1);
+    }
+
+    /**
+     * Adds the values of several sensors as one change. Large batches rebuild the chunks instead
+     * of inserting one sensor at a time.
+     */
+    SecurityState withSensorsAdded(Collection<Sensor> added) {
+        SecurityState updated = this;
+        if((long) added.size() * (chunks.length + MAX_CHUNK) <= getSensorCount() + added.size()) {
+            for(Sensor sensor : added) {
+                updated = updated.withSensorAdded(sensor);
+            }
+            return updated.withVersion(version + 1);
+        }
+        TreeSet<SensorState> merged = new TreeSet<>();
+        added.forEach(sensor -> merged.add(SensorState.of(sensor))); //added first, so they replace equal sensors
+        merged.addAll(sensorList);
+        SensorState[][] rebuilt = chunk(merged.toArray(new SensorState[0]));
+        return withChunks(rebuilt, ends(rebuilt));
+    }
+
+    private SecurityState withVersion(long newVersion) {
+        return new SecurityState(newVersion, alarmStatus, armingStatus, catDetected, chunks, chunkEnds);
+    }
+
+    private SecurityState withChunks(SensorState[][] newChunks, int[] newEnds) {
+        return new SecurityState(version + 1, alarmStatus, armingStatus, catDetected, newChunks, newEnds);
+    }
+
+    /**
+     * Index of the chunk the sensor belongs in: the first one whose last sensor is not
+     * before it, or the last chunk.
+     */
+    private int chunkFor(SensorState sensor) {
+        int low = 0;
+        int high = chunks.length - 1;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            SensorState[] chunk = chunks[mid];
+            if(chunk[chunk.length - 1].compareTo(sensor) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int[] ends(SensorState[][] chunks) {
+        int[] ends = new int[chunks.length];
+        int end = 0;
+        for(int i = 0; i < chunks.length; i++) {
+            end += chunks[i].length;
+            ends[i] = end;
+        }
+        return ends;
+    }
+
+    @Override
+    public String toString() {
+        return "SecurityState{v" + version + " " + alarmStatus + " " + armingStatus + " cat=" + catDetected
+                + " sensors=" + getSensorCount() + "}";
+    }
+
+    private class SensorList extends AbstractList<SensorState> {
+        @Override
+        public SensorState get(int index) {
+            if(index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            int c = Arrays.binarySearch(chunkEnds, index + 1);
+            c = c >= 0 ? c : -c - 1;
+            return chunks[c][index - (chunkEnds[c] - chunks[c].length)];
+        }
+
+        @Override
+        public int size() {
+            return getSensorCount();
+        }
+
+        @Override
+        public Iterator<SensorState> iterator() {
+            return new Iterator<>() {
+                private int chunk;
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return chunk < chunks.length;
+                }
+
+                @Override
+                public SensorState next() {
+                    if(!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    SensorState sensor = chunks[chunk][index++];
+                    if(index == chunks[chunk].length) {
+                        chunk++;
+                        index = 0;
+                    }
+                    return sensor;
+                }
+            };
+        }
+    }
+}
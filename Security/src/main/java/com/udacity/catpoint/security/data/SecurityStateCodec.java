@@ -0,0 +1,186 @@
+package com.udacity.catpoint.security.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Compact binary format for sensors and the alarm/arming status, usable by any repository.
+ * Compared to the JSON written with Gson it needs no reflection, stores a sensor id as two
+ * longs instead of a 36 character string, and encodes counts, lengths and enum values as
+ * varints.
+ *
+ * A sensor list is written as a header (magic number and format version), a varint count,
+ * and then per sensor: id (2 longs), name (varint length + UTF-8), type (varint ordinal) and
+ * active flag (1 byte). Enums are stored by ordinal, so new constants must only ever be
+ * appended to {@link SensorType}, {@link AlarmStatus} and {@link ArmingStatus}.
+ */
+public final class SecurityStateCodec {
+
+    public static final int VERSION = 1;
+    private static final int MAGIC = 0x43505453; //"CPTS"
+    /**
+     * Longest string, in UTF-8 bytes, that is written and read back: the longest sensor name.
+     */
+    public static final int MAX_STRING_BYTES = Sensor.MAX_NAME_BYTES;
+
+    private SecurityStateCodec() {
+    }
+
+    /**
+     * Encodes the sensors, including the header.
+     */
+    public static byte[] encodeSensors(Collection<Sensor> sensors) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + sensors.size() * 40);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeHeader(out);
+            writeVarInt(out, sensors.size());
+            for(Sensor sensor : sensors) {
+                writeSensor(out, sensor);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); //can't happen when writing to memory
+        }
+        return bytes.toByteArray();
+    }
+
+    public static List<Sensor> decodeSensors(byte[] encoded) throws IOException {
+        List<Sensor> sensors = new ArrayList<>();
+        readSensors(new ByteArrayInputStream(encoded), sensors::add);
+        return sensors;
+    }
+
+    /**
+     * Decodes a sensor list written by {@link #encodeSensors(Collection)}, handing each sensor
+     * to the consumer as soon as it has been read.
+     * @return The number of sensors read
+     * @throws IOException if the data is truncated, corrupt or written by a newer format version
+     */
+    public static int readSensors(InputStream encoded, Consumer<Sensor> consumer) throws IOException {
+        DataInputStream in = new DataInputStream(encoded);
+        readHeader(in);
+        int count = readVarInt(in);
+        for(int i = 0; i < count; i++) {
+            consumer.accept(readSensor(in));
+        }
+        return count;
+    }
+
+    public static void writeHeader(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    /**
+     * Reads and checks the header.
+     * @return The format version the data was written with
+     */
+    public static int readHeader(DataInput in) throws IOException {
+        if(in.readInt() != MAGIC) {
+            throw new IOException("Not an encoded security state");
+        }
+        int version = in.readUnsignedByte();
+        if(version > VERSION) {
+            throw new IOException("Unsupported security state version " + version);
+        }
+        return version;
+    }
+
+    public static void writeSensor(DataOutput out, Sensor sensor) throws IOException {
+        out.writeLong(sensor.getSensorId().getMostSignificantBits());
+        out.writeLong(sensor.getSensorId().getLeastSignificantBits());
+        writeString(out, sensor.getName());
+        writeVarInt(out, sensor.getSensorType().ordinal());
+        out.writeBoolean(sensor.getActive());
+    }
+
+    public static Sensor readSensor(DataInput in) throws IOException {
+        UUID id = new UUID(in.readLong(), in.readLong());
+        String name = readString(in);
+        SensorType type = readEnum(in, SensorType.values());
+        boolean active = in.readBoolean();
+        return new Sensor(id, name, type, active);
+    }
+
+    public static void writeAlarmStatus(DataOutput out, AlarmStatus alarmStatus) throws IOException {
+        writeVarInt(out, alarmStatus.ordinal());
+    }
+
+    public static AlarmStatus readAlarmStatus(DataInput in) throws IOException {
+        return readEnum(in, AlarmStatus.values());
+    }
+
+    public static void writeArmingStatus(DataOutput out, ArmingStatus armingStatus) throws IOException {
+        writeVarInt(out, armingStatus.ordinal());
+    }
+
+    public static ArmingStatus readArmingStatus(DataInput in) throws IOException {
+        return readEnum(in, ArmingStatus.values());
+    }
+
+    /**
+     * Writes a non-negative int in 1 to 5 bytes, 7 bits per byte, low bits first.
+     */
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        while((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    public static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for(int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * @throws IllegalArgumentException if the string is longer than {@link #MAX_STRING_BYTES},
+     * as it could not be read back
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        if(utf8.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("String of " + utf8.length + " bytes is too long");
+        }
+        writeVarInt(out, utf8.length);
+        out.write(utf8);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        if(length < 0 || length > MAX_STRING_BYTES) {
+            throw new IOException("String of " + length + " bytes is too long");
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static <E extends Enum<E>> E readEnum(DataInput in, E[] values) throws IOException {
+        int ordinal = readVarInt(in);
+        if(ordinal < 0 || ordinal >= values.length) {
+            throw new IOException("Unknown " + values.getClass().getComponentType().getSimpleName() + " " + ordinal);
+        }
+        return values[ordinal];
+    }
+}
@@ -1,25 +1,51 @@
 package com.udacity.catpoint.security.data;
 
-
-import com.google.common.collect.ComparisonChain;
-
-import java.util.Objects;
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
 /**
  * Sensor POJO. Needs to know how to sort itself for display purposes.
+ *
+ * Sensors live in large sorted and hashed sets, so the hash and a sort key are cached and
+ * none of equals, hashCode or compareTo allocate. The sort key is computed whenever the name
+ * is set. Gson creates sensors without calling a constructor, so like the hash it is a
+ * transient field where 0 means not computed yet, and any thread may compute it on first use.
  */
 public class Sensor implements Comparable<Sensor> {
+
+    /**
+     * Longest name, in UTF-8 bytes, a sensor may have.
+     */
+    public static final int MAX_NAME_BYTES = 64 * 1024;
+
+    //position of each sensor type when sorted by name, indexed by ordinal
+    private static final int[] TYPE_RANK = typeRanks();
+
     private UUID sensorId;
     private String name;
-    private Boolean active;
+    private boolean active;
     private SensorType sensorType;
 
+    private transient int hash;
+    private transient volatile long sortKey;
+
+    /**
+     * @throws IllegalArgumentException if the name is too long to be stored
+     */
     public Sensor(String name, SensorType sensorType) {
-        this.name = name;
+        this(UUID.randomUUID(), name, sensorType, false);
+    }
+
+    /**
+     * Recreates a sensor with known state, for example when loading it from storage.
+     * @throws IllegalArgumentException if the name is too long to be stored
+     */
+    public Sensor(UUID sensorId, String name, SensorType sensorType, boolean active) {
+        this.sensorId = sensorId;
+        this.name = checkName(name);
         this.sensorType = sensorType;
-        this.sensorId = UUID.randomUUID();
-        this.active = Boolean.FALSE;
+        this.active = active;
+        this.sortKey = sortKeyOf(name);
     }
 
     @Override
@@ -32,22 +58,31 @@ public class Sensor implements Comparable<Sensor> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(sensorId);
+        int h = hash;
+        if(h == 0) {
+            h = sensorId.hashCode();
+            hash = h;
+        }
+        return h;
     }
 
     public String getName() {
         return name;
     }
 
+    /**
+     * @throws IllegalArgumentException if the name is too long to be stored
+     */
     public void setName(String name) {
-        this.name = name;
+        this.name = checkName(name);
+        sortKey = sortKeyOf(name);
     }
 
-    public Boolean getActive() {
+    public boolean getActive() {
         return active;
     }
 
-    public void setActive(Boolean active) {
+    public void setActive(boolean active) {
         this.active = active;
     }
 
@@ -65,14 +100,76 @@ public class Sensor implements Comparable<Sensor> {
 
     public void setSensorId(UUID sensorId) {
         this.sensorId = sensorId;
+        hash = 0;
     }
 
+    /**
+     * Sorts by name, then type name, then id. Most names differ in their first four
+     * characters, which are compared at once through the sort key.
+     */
     @Override
     public int compareTo(Sensor o) {
-        return ComparisonChain.start()
-                .compare(this.name, o.name)
-                .compare(this.sensorType.toString(), o.sensorType.toString())
-                .compare(this.sensorId, o.sensorId)
-                .result();
+        int result = Long.compareUnsigned(sortKey(), o.sortKey());
+        if(result == 0) {
+            result = name.compareTo(o.name);
+        }
+        if(result == 0) {
+            result = Integer.compare(TYPE_RANK[sensorType.ordinal()], TYPE_RANK[o.sensorType.ordinal()]);
+        }
+        if(result == 0) {
+            result = sensorId.compareTo(o.sensorId);
+        }
+        return result;
+    }
+
+    private long sortKey() {
+        long key = sortKey;
+        if(key == 0) {
+            key = sortKeyOf(name);
+            sortKey = key;
+        }
+        return key;
+    }
+
+    /**
+     * Packs the first four characters of the name into a long, padding shorter names with
+     * zeros, so unsigned comparison of keys orders names the same way String.compareTo does.
+     * The lowest bit is always set so no key is 0; names differing only in that bit get equal
+     * keys and are compared in full.
+     */
+    private static long sortKeyOf(String name) {
+        long key = 0;
+        for(int i = 0; i < 4; i++) {
+            key = (key << 16) | (i < name.length() ? name.charAt(i) : 0);
+        }
+        return key | 1;
+    }
+
+    /**
+     * True if the name is at most {@link #MAX_NAME_BYTES} long.
+     */
+    public static boolean isValidName(String name) {
+        //a char takes at most 3 UTF-8 bytes, so only long names need encoding
+        return name.length() <= MAX_NAME_BYTES / 3 || name.getBytes(StandardCharsets.UTF_8).length <= MAX_NAME_BYTES;
+    }
+
+    private static String checkName(String name) {
+        if(!isValidName(name)) {
+            throw new IllegalArgumentException("Sensor name is too long");
+        }
+        return name;
+    }
+
+    private static int[] typeRanks() {
+        SensorType[] types = SensorType.values();
+        int[] ranks = new int[types.length];
+        for(SensorType type : types) {
+            for(SensorType other : types) {
+                if(other.toString().compareTo(type.toString()) < 0) {
+                    ranks[type.ordinal()]++;
+                }
+            }
+        }
+        return ranks;
     }
 }
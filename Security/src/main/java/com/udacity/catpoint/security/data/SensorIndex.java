@@ -0,0 +1,144 @@
+package com.udacity.catpoint.security.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Sorted index over sensors, bucketed by sensor type and activation status. Lets the
+ * sensor management view filter and search large sensor sets without scanning all of them:
+ * a query only touches the buckets that match its type/status filter, and a name prefix
+ * is resolved with a range lookup inside each bucket.
+ *
+ * The index relies on the sensor's name and type not changing while it is indexed. The
+ * activation status may change, as long as {@link #update(Sensor)} is called afterwards.
+ */
+public class SensorIndex {
+
+    private static final UUID LOWEST_ID = new UUID(Long.MIN_VALUE, Long.MIN_VALUE);
+
+    //two buckets per type, inactive then active
+    private final List<NavigableSet<Sensor>> buckets = new ArrayList<>();
+    private int size;
+
+    public SensorIndex() {
+        for(int i = 0; i < SensorType.values().length * 2; i++) {
+            buckets.add(new TreeSet<>());
+        }
+    }
+
+    public void add(Sensor sensor) {
+        if(bucket(sensor.getSensorType(), sensor.getActive()).add(sensor)) {
+            size++;
+        }
+    }
+
+    public void remove(Sensor sensor) {
+        SensorType type = sensor.getSensorType();
+        if(bucket(type, false).remove(sensor) || bucket(type, true).remove(sensor)) {
+            size--;
+        }
+    }
+
+    /**
+     * Moves the sensor to the bucket matching its current activation status. Sensors that
+     * are not in the index are ignored.
+     */
+    public void update(Sensor sensor) {
+        NavigableSet<Sensor> current = bucket(sensor.getSensorType(), sensor.getActive());
+        NavigableSet<Sensor> previous = bucket(sensor.getSensorType(), !sensor.getActive());
+        if(previous.remove(sensor)) {
+            current.add(sensor);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of sensors matching the type and status filter, without looking at
+     * the individual sensors.
+     * @param type Sensor type to match, or null for any type
+     * @param active Activation status to match, or null for any status
+     */
+    public int count(SensorType type, Boolean active) {
+        int count = 0;
+        for(SensorType t : SensorType.values()) {
+            if(type != null && type != t) {
+                continue;
+            }
+            if(active == null || !active) {
+                count += bucket(t, false).size();
+            }
+            if(active == null || active) {
+                count += bucket(t, true).size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the sensors matching all provided filters, in display order.
+     * @param type Sensor type to match, or null for any type
+     * @param active Activation status to match, or null for any status
+     * @param namePrefix Case-sensitive prefix the sensor name must start with, or null/empty for any name
+     */
+    public List<Sensor> find(SensorType type, Boolean active, String namePrefix) {
+        List<Sensor> result = new ArrayList<>();
+        int bucketsUsed = 0;
+        for(SensorType t : SensorType.values()) {
+            if(type != null && type != t) {
+                continue;
+            }
+            for(boolean status : new boolean[]{false, true}) {
+                if(active != null && active != status) {
+                    continue;
+                }
+                NavigableSet<Sensor> matches = byPrefix(bucket(t, status), t, namePrefix);
+                if(!matches.isEmpty()) {
+                    result.addAll(matches);
+                    bucketsUsed++;
+                }
+            }
+        }
+        if(bucketsUsed > 1) {
+            result.sort(null);
+        }
+        return result;
+    }
+
+    private NavigableSet<Sensor> bucket(SensorType type, boolean active) {
+        return buckets.get(type.ordinal() * 2 + (active ? 1 : 0));
+    }
+
+    private static NavigableSet<Sensor> byPrefix(NavigableSet<Sensor> bucket, SensorType type, String namePrefix) {
+        if(namePrefix == null || namePrefix.isEmpty()) {
+            return bucket;
+        }
+        if(!Sensor.isValidName(namePrefix)) {
+            return new TreeSet<>(); //no sensor name is that long
+        }
+        if(!Sensor.isValidName(namePrefix + Character.MAX_VALUE)) {
+            //too long for the upper probe, but only names at the length limit get here
+            NavigableSet<Sensor> matches = new TreeSet<>();
+            for(Sensor sensor : bucket.tailSet(probe(namePrefix, type), true)) {
+                if(!sensor.getName().startsWith(namePrefix)) {
+                    break;
+                }
+                matches.add(sensor);
+            }
+            return matches;
+        }
+        return bucket.subSet(probe(namePrefix, type), true, probe(namePrefix + Character.MAX_VALUE, type), false);
+    }
+
+    /**
+     * Builds a sensor that sorts before every sensor with the given name and type.
+     */
+    private static Sensor probe(String name, SensorType type) {
+        return new Sensor(LOWEST_ID, name, type, false);
+    }
+}
@@ -0,0 +1,54 @@
+package com.udacity.catpoint.security.data;
+
+import java.util.UUID;
+
+/**
+ * Immutable value of a sensor as it was at one moment, as held by a {@link SecurityState}.
+ * Equal and ordered like the sensor it was taken from.
+ */
+public final class SensorState implements Comparable<SensorState> {
+
+    //private copy, never handed out, so the value can reuse the ordering of sensors
+    private final Sensor sensor;
+
+    private SensorState(Sensor sensor) {
+        this.sensor = sensor;
+    }
+
+    public static SensorState of(Sensor sensor) {
+        return new SensorState(new Sensor(sensor.getSensorId(), sensor.getName(), sensor.getSensorType(), sensor.getActive()));
+    }
+
+    public UUID getSensorId() {
+        return sensor.getSensorId();
+    }
+
+    public String getName() {
+        return sensor.getName();
+    }
+
+    public SensorType getSensorType() {
+        return sensor.getSensorType();
+    }
+
+    public boolean getActive() {
+        return sensor.getActive();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return sensor.equals(((SensorState) o).sensor);
+    }
+
+    @Override
+    public int hashCode() {
+        return sensor.hashCode();
+    }
+
+    @Override
+    public int compareTo(SensorState o) {
+        return sensor.compareTo(o.sensor);
+    }
+}
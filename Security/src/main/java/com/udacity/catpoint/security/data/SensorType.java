@@ -1,7 +1,9 @@
 package com.udacity.catpoint.security.data;
 
 /**
- * List of available sensor types. Not currently used by system, other than for display.
+ * List of available sensor types. Besides display, the type decides how a
+ * {@link com.udacity.catpoint.security.service.PrioritySecurityExecutor} processes the
+ * sensor's events, see {@link com.udacity.catpoint.security.service.SensorPaths}.
  */
 public enum SensorType {
     DOOR, WINDOW, MOTION
@@ -0,0 +1,375 @@
+package com.udacity.catpoint.security.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Crash-consistent append-only log of opaque records. Every record is framed by its length
+ * and a CRC32C of its content. When the journal is opened, records are replayed in order up
+ * to the first one that is incomplete or fails its checksum, and the file is cut there, so a
+ * crash in the middle of a write loses at most the records that were not yet committed.
+ *
+ * A single committer thread writes the records. Everything appended while it is busy is
+ * written and forced to disk together, so concurrent appends share one fsync (group commit).
+ * With {@link Durability#FSYNC} an append completes once its record is on disk; with
+ * {@link Durability#PERIODIC} it completes once the record is written, and the file is forced
+ * at most once per sync interval, trading the last interval of changes on power loss for
+ * latency.
+ *
+ * The log can be compacted into a single snapshot record. The snapshot is written to a
+ * temporary file that atomically replaces the journal, so a crash during compaction leaves
+ * either the old or the new journal.
+ */
+public class StateJournal implements Closeable {
+
+    public enum Durability {
+        /**
+         * Appends complete once their record has been forced to disk.
+         */
+        FSYNC,
+        /**
+         * Appends complete once their record has been written; the file is forced periodically.
+         */
+        PERIODIC
+    }
+
+    public static final long DEFAULT_MIN_COMPACT_BYTES = 1024 * 1024;
+
+    private static final int MAGIC = 0x43504a4c; //"CPJL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int FRAME_BYTES = 8; //length + checksum
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+
+    private final Path file;
+    private final Path compactFile;
+    private final Durability durability;
+    private final long syncIntervalNanos;
+    private final long minCompactBytes;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Thread committer;
+    private final AtomicLong syncCount = new AtomicLong();
+    private final AtomicLong bytesSinceSnapshot = new AtomicLong();
+    private volatile long snapshotBytes;
+    private volatile long size;
+    private volatile IOException failure;
+    private boolean closed; //guarded by this, like adding to the queue
+
+    //only accessed by the committer thread once it has started
+    private FileChannel channel;
+    private ByteBuffer batch = ByteBuffer.allocate(64 * 1024);
+    private long lastSyncNanos = System.nanoTime();
+    private boolean unsynced;
+
+    /**
+     * Opens the journal, creating it if needed, and replays the committed records.
+     * @param replay Receives the content of every committed record, oldest first
+     * @param syncInterval How often a {@link Durability#PERIODIC} journal is forced to disk
+     * @param minCompactBytes Size below which {@link #shouldCompact()} never asks for compaction
+     */
+    public StateJournal(Path file, Durability durability, Duration syncInterval, long minCompactBytes,
+                        Consumer<byte[]> replay) throws IOException {
+        this.file = file;
+        this.compactFile = file.resolveSibling(file.getFileName() + ".compact");
+        this.durability = durability;
+        this.syncIntervalNanos = syncInterval.toNanos();
+        this.minCompactBytes = minCompactBytes;
+        Files.deleteIfExists(compactFile); //left by a crash during compaction, the journal is still whole
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.size = recover(replay);
+        bytesSinceSnapshot.set(size - HEADER_BYTES);
+        this.committer = new Thread(this::run, "state-journal");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Replays the valid records and cuts off anything after them.
+     * @return The size of the valid part of the file
+     */
+    private long recover(Consumer<byte[]> replay) throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        if(fileSize < HEADER_BYTES) {
+            //new, or the crash happened before the header made it to disk
+            channel.truncate(0);
+            channel.write(header.putInt(MAGIC).putInt(VERSION).flip(), 0);
+            channel.force(true);
+            return HEADER_BYTES;
+        }
+        readFully(header, 0);
+        if(header.getInt(0) != MAGIC || header.getInt(4) > VERSION) {
+            throw new IOException("Not a supported state journal: " + file);
+        }
+
+        long position = HEADER_BYTES;
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_BYTES);
+        CRC32C crc = new CRC32C();
+        while(position + FRAME_BYTES <= fileSize) {
+            frame.clear();
+            readFully(frame, position);
+            int length = frame.getInt(0);
+            if(length < 0 || length > MAX_RECORD_BYTES || position + FRAME_BYTES + length > fileSize) {
+                break; //torn write
+            }
+            ByteBuffer record = ByteBuffer.allocate(length);
+            readFully(record, position + FRAME_BYTES);
+            crc.reset();
+            crc.update(record.array());
+            if((int) crc.getValue() != frame.getInt(4)) {
+                break;
+            }
+            replay.accept(record.array());
+            position += FRAME_BYTES + length;
+        }
+        if(position < fileSize) {
+            channel.truncate(position);
+            channel.force(true);
+        }
+        return position;
+    }
+
+    /**
+     * Queues a record.
+     * @return Completes once the record is committed as configured by the durability, or
+     *         fails if the journal can no longer be written or has been closed
+     */
+    public CompletableFuture<Void> append(byte[] record) {
+        bytesSinceSnapshot.addAndGet(FRAME_BYTES + record.length);
+        return enqueue(new Entry(record, false));
+    }
+
+    /**
+     * Queues a snapshot that replaces every record appended before it.
+     */
+    public CompletableFuture<Void> compact(byte[] snapshot) {
+        bytesSinceSnapshot.set(0);
+        snapshotBytes = snapshot.length;
+        return enqueue(new Entry(snapshot, true));
+    }
+
+    /**
+     * True when more has been appended since the last snapshot than the snapshot itself and
+     * than the minimum compaction size.
+     */
+    public boolean shouldCompact() {
+        return bytesSinceSnapshot.get() > Math.max(minCompactBytes, snapshotBytes);
+    }
+
+    /**
+     * Queues the entry unless the journal failed or is closed. Checking and queueing under the
+     * lock {@link #fail} and {@link #close()} take, so no entry is queued after the committer
+     * has stopped taking them.
+     */
+    private synchronized CompletableFuture<Void> enqueue(Entry entry) {
+        if(entry.record.length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Record of " + entry.record.length + " bytes is too large");
+        }
+        if(failure != null) {
+            entry.done.completeExceptionally(failure);
+        } else if(closed) {
+            entry.done.completeExceptionally(new IOException("State journal is closed: " + file));
+        } else {
+            queue.add(entry);
+        }
+        return entry.done;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Size of the journal file as written so far.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Number of times the journal has been forced to disk, for monitoring group commit.
+     */
+    public long getSyncCount() {
+        return syncCount.get();
+    }
+
+    /**
+     * Commits everything queued and closes the file. Records appended afterwards fail.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized(this) {
+            if(!closed) {
+                closed = true;
+                Entry close = new Entry(new byte[0], false);
+                close.closing = true;
+                queue.add(close);
+            }
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    private void run() {
+        List<Entry> entries = new ArrayList<>();
+        List<Entry> waiting = new ArrayList<>();
+        boolean closing = false;
+        while(!closing) {
+            try {
+                Entry first = queue.poll(unsynced ? syncIntervalNanos : Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                if(first != null) {
+                    entries.add(first);
+                    queue.drainTo(entries);
+                }
+                for(Entry entry : entries) {
+                    if(entry.closing) {
+                        closing = true;
+                    } else if(entry.compaction) {
+                        commit(waiting, true);
+                        replaceWithSnapshot(entry.record);
+                        entry.done.complete(null);
+                    } else {
+                        addToBatch(entry.record);
+                        waiting.add(entry);
+                    }
+                }
+                boolean force = durability == Durability.FSYNC || closing
+                        || System.nanoTime() - lastSyncNanos >= syncIntervalNanos;
+                commit(waiting, force);
+            } catch (IOException e) {
+                fail(e, entries, waiting);
+                return;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                entries.clear();
+            }
+        }
+    }
+
+    private void addToBatch(byte[] record) {
+        if(batch.remaining() < FRAME_BYTES + record.length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(batch.capacity() * 2, batch.position() + FRAME_BYTES + record.length));
+            batch.flip();
+            larger.put(batch);
+            batch = larger;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(record);
+        batch.putInt(record.length).putInt((int) crc.getValue()).put(record);
+    }
+
+    /**
+     * Writes the batch, forces it to disk if asked, and completes the appends that are now
+     * committed.
+     */
+    private void commit(List<Entry> waiting, boolean force) throws IOException {
+        if(batch.position() > 0) {
+            batch.flip();
+            long position = size;
+            while(batch.hasRemaining()) {
+                position += channel.write(batch, position);
+            }
+            batch.clear();
+            size = position;
+            unsynced = true;
+        }
+        if(force && unsynced) {
+            channel.force(false);
+            syncCount.incrementAndGet();
+            lastSyncNanos = System.nanoTime();
+            unsynced = false;
+        }
+        if(durability == Durability.PERIODIC || !unsynced) {
+            waiting.forEach(entry -> entry.done.complete(null));
+            waiting.clear();
+        }
+    }
+
+    private void replaceWithSnapshot(byte[] snapshot) throws IOException {
+        try (FileChannel compacted = FileChannel.open(compactFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CRC32C crc = new CRC32C();
+            crc.update(snapshot);
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + FRAME_BYTES + snapshot.length)
+                    .putInt(MAGIC).putInt(VERSION).putInt(snapshot.length).putInt((int) crc.getValue()).put(snapshot)
+                    .flip();
+            while(buffer.hasRemaining()) {
+                compacted.write(buffer);
+            }
+            compacted.force(true);
+        }
+        Files.move(compactFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory();
+        channel.close();
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        size = channel.size();
+        syncCount.incrementAndGet();
+    }
+
+    /**
+     * Makes the rename durable where the platform allows forcing a directory.
+     */
+    private void forceDirectory() {
+        try (FileChannel directory = FileChannel.open(file.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            //not supported on every platform; the rename itself is still atomic
+        }
+    }
+
+    private synchronized void fail(IOException e, List<Entry> entries, List<Entry> waiting) {
+        failure = e;
+        entries.forEach(entry -> entry.done.completeExceptionally(e));
+        waiting.forEach(entry -> entry.done.completeExceptionally(e));
+        Entry entry;
+        while((entry = queue.poll()) != null) {
+            entry.done.completeExceptionally(e);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if(read < 0) {
+                throw new IOException("State journal is truncated");
+            }
+            position += read;
+        }
+    }
+
+    private static class Entry {
+        private final byte[] record;
+        private final boolean compaction;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private boolean closing;
+
+        Entry(byte[] record, boolean compaction) {
+            this.record = record;
+            this.compaction = compaction;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.udacity.catpoint.security.push;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Client for a {@link StatePushServer} that mirrors the pushed state, for tests and for
+ * watching a running system from the command line. One thread reads updates with
+ * {@link #readUpdate()}; the getters may be called from any thread.
+ */
+public class StatePushClient implements Closeable {
+
+    private final Socket socket;
+    private final BufferedReader in;
+    private final Map<UUID, Boolean> sensors = new ConcurrentHashMap<>();
+    private volatile AlarmStatus alarmStatus;
+    private volatile ArmingStatus armingStatus;
+    private volatile boolean catDetected;
+    private volatile int snapshotCount;
+
+    public StatePushClient(String host, int port) throws IOException {
+        this.socket = new Socket();
+        socket.connect(new InetSocketAddress(host, port));
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param millis How long {@link #readUpdate()} may block before failing, or 0 for ever
+     */
+    public void setReadTimeout(int millis) throws IOException {
+        socket.setSoTimeout(millis);
+    }
+
+    /**
+     * Reads the next message and applies it. A snapshot is read up to its END line and
+     * replaces the whole state.
+     * @return The message, or null once the server closed the connection
+     * @throws IOException if the message is not understood or the read timed out
+     */
+    public String readUpdate() throws IOException {
+        String line = in.readLine();
+        if(line == null) {
+            return null;
+        }
+        String[] parts = line.split(" ", 5);
+        try {
+            switch(parts[0]) {
+                case "SNAPSHOT" -> readSnapshot(parts);
+                case "ALARM" -> alarmStatus = AlarmStatus.valueOf(parts[1]);
+                case "ARMING" -> armingStatus = ArmingStatus.valueOf(parts[1]);
+                case "CAT" -> catDetected = Boolean.parseBoolean(parts[1]);
+                case "ACTIVE", "ADDED" -> sensors.put(UUID.fromString(parts[1]), Boolean.parseBoolean(parts[2]));
+                case "REMOVED" -> sensors.remove(UUID.fromString(parts[1]));
+                default -> throw new IOException("Unknown message: " + line);
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Malformed message: " + line, e);
+        }
+        return line;
+    }
+
+    private void readSnapshot(String[] header) throws IOException {
+        List<String[]> sensorLines = new ArrayList<>();
+        String line;
+        while(!"END".equals(line = in.readLine())) {
+            if(line == null || !line.startsWith("SENSOR ")) {
+                throw new IOException("Unterminated snapshot");
+            }
+            sensorLines.add(line.split(" ", 5));
+        }
+        sensors.clear();
+        for(String[] sensor : sensorLines) {
+            sensors.put(UUID.fromString(sensor[1]), Boolean.parseBoolean(sensor[2]));
+        }
+        alarmStatus = AlarmStatus.valueOf(header[1]);
+        armingStatus = ArmingStatus.valueOf(header[2]);
+        catDetected = Boolean.parseBoolean(header[3]);
+        snapshotCount++;
+    }
+
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    public boolean isCatDetected() {
+        return catDetected;
+    }
+
+    /**
+     * @return Whether the sensor is active, or null if the client has not heard of it
+     */
+    public Boolean isSensorActive(UUID sensorId) {
+        return sensors.get(sensorId);
+    }
+
+    public int getSensorCount() {
+        return sensors.size();
+    }
+
+    /**
+     * Number of snapshots received; more than one means the server conflated updates.
+     */
+    public int getSnapshotCount() {
+        return snapshotCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Opens --idle (0) connections that never read, to load the server, then prints every
+     * update received by one more connection. Other options: --host (localhost), --port (7070).
+     */
+    public static void main(String[] args) throws IOException {
+        String host = "localhost";
+        int port = 7070;
+        int idle = 0;
+        for(int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch(args[i]) {
+                case "--host" -> host = value;
+                case "--port" -> port = Integer.parseInt(value);
+                case "--idle" -> idle = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        List<Socket> idleSockets = new ArrayList<>();
+        for(int i = 0; i < idle; i++) {
+            idleSockets.add(new Socket(host, port));
+        }
+        System.out.printf("%d idle connections open%n", idleSockets.size());
+        try (StatePushClient client = new StatePushClient(host, port)) {
+            String update;
+            while((update = client.readUpdate()) != null) {
+                if(update.startsWith("SNAPSHOT")) {
+                    System.out.printf("snapshot #%d: %s, %d sensors%n", client.getSnapshotCount(), update, client.getSensorCount());
+                } else {
+                    System.out.println(update);
+                }
+            }
+        } finally {
+            for(Socket socket : idleSockets) {
+                socket.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package com.udacity.catpoint.security.push;
+
+import com.udacity.catpoint.security.application.SecurityEventListener;
+import com.udacity.catpoint.security.data.SecurityEvent;
+import com.udacity.catpoint.security.data.SecurityState;
+import com.udacity.catpoint.security.data.SensorState;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes the state of a {@link SecurityService} to any number of TCP clients, such as remote
+ * dashboards. The protocol is UTF-8 text, one message per line. A client first gets a
+ * snapshot:
+ * <pre>
+ * SNAPSHOT &lt;alarm status&gt; &lt;arming status&gt; &lt;cat detected&gt;
+ * SENSOR &lt;id&gt; &lt;active&gt; &lt;type&gt; &lt;name&gt;   (one line per sensor)
+ * END
+ * </pre>
+ * followed by deltas: {@code ALARM <status>}, {@code ARMING <status>}, {@code CAT <detected>},
+ * {@code ACTIVE <sensor id> <active>}, {@code ADDED <id> <active> <type> <name>} like a
+ * snapshot sensor line, and {@code REMOVED <sensor id>}.
+ *
+ * One selector thread serves all connections, so thousands of idle dashboards cost a socket
+ * each and no thread. The service never waits for a client: a delta is encoded once and
+ * queued for every client. When a client has more than {@code maxPendingBytes} waiting, its
+ * deltas are discarded and it gets a fresh snapshot once it has caught up, which conflates
+ * everything it missed. Snapshots do not count towards {@code maxPendingBytes}, so a snapshot
+ * larger than the limit is still delivered. A client that stays behind for longer than
+ * {@code maxStale} is disconnected.
+ *
+ * A connection that fails only costs that connection: the error is logged and the server
+ * keeps serving the others. If accepting fails, for example when the process is out of file
+ * descriptors, new connections wait in the backlog and accepting is retried a second later.
+ */
+public class StatePushServer implements SecurityEventListener, AutoCloseable {
+
+    public static final int DEFAULT_MAX_PENDING_BYTES = 64 * 1024;
+    public static final Duration DEFAULT_MAX_STALE = Duration.ofSeconds(30);
+
+    private static final long SELECT_TIMEOUT_MILLIS = 1_000;
+    private static final long ACCEPT_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Logger log = LoggerFactory.getLogger(StatePushServer.class);
+
+    private final SecurityService securityService;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final int maxPendingBytes;
+    private final long maxStaleNanos;
+    private final Thread selectorThread;
+
+    //deltas are numbered while the service lock is held, so a snapshot taken under the same
+    // lock knows exactly which deltas it already contains
+    private final AtomicLong sequence = new AtomicLong();
+    private final Queue<Delta> deltas = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+
+    private final List<Client> clients = new ArrayList<>(); //only accessed by the selector thread
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(256);
+    private boolean acceptPaused; //only accessed by the selector thread
+    private long acceptRetryAtNanos;
+    private volatile int clientCount;
+    private final AtomicLong conflatedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile boolean running = true;
+
+    public StatePushServer(SecurityService securityService, InetSocketAddress address) throws IOException {
+        this(securityService, address, DEFAULT_MAX_PENDING_BYTES, DEFAULT_MAX_STALE);
+    }
+
+    /**
+     * Starts listening and registers the server as an event listener on the service.
+     * @param address Address to listen on; port 0 picks a free port
+     * @param maxPendingBytes Bytes that may wait for a client before it gets a snapshot instead
+     * @param maxStale How long a client may stay behind before it is disconnected
+     */
+    public StatePushServer(SecurityService securityService, InetSocketAddress address, int maxPendingBytes,
+                           Duration maxStale) throws IOException {
+        this.securityService = securityService;
+        this.maxPendingBytes = maxPendingBytes;
+        this.maxStaleNanos = maxStale.toNanos();
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        securityService.addEventListener(this);
+        this.selectorThread = new Thread(this::run, "state-push");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public int getClientCount() {
+        return clientCount;
+    }
+
+    /**
+     * Number of times a slow client's deltas were replaced by a snapshot.
+     */
+    public long getConflatedCount() {
+        return conflatedCount.get();
+    }
+
+    /**
+     * Number of clients disconnected for staying behind too long.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    @Override
+    public void onEvent(SecurityEvent event) {
+        String message = switch(event.getType()) {
+            case ALARM_STATUS_CHANGED -> "ALARM " + event.getAlarmStatus();
+            case ARMING_STATUS_CHANGED -> "ARMING " + event.getArmingStatus();
+            case SENSOR_ACTIVATED -> "ACTIVE " + event.getSensorId() + " true";
+            case SENSOR_DEACTIVATED -> "ACTIVE " + event.getSensorId() + " false";
+            case CAT_DETECTED -> "CAT true";
+            case CAT_NOT_DETECTED -> "CAT false";
+            case SENSOR_ADDED -> appendSensor(new StringBuilder("ADDED "), event.getSensor()).toString();
+            case SENSOR_REMOVED -> "REMOVED " + event.getSensorId();
+        };
+        deltas.add(new Delta(sequence.incrementAndGet(), ByteBuffer.wrap((message + "\n").getBytes(StandardCharsets.UTF_8))));
+        if(wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Disconnects all clients and stops the server. The selector thread stops within one
+     * select, so an interrupt does not cut the wait short; it is kept for the caller.
+     */
+    @Override
+    public void close() throws IOException {
+        securityService.removeEventListener(this);
+        running = false;
+        selector.wakeup();
+        boolean interrupted = false;
+        while(selectorThread.isAlive()) {
+            try {
+                selectorThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        for(Client client : clients) {
+            client.channel.close();
+        }
+        serverChannel.close();
+        selector.close();
+    }
+
+    private void run() {
+        try {
+            while(running) {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                wakeupPending.set(false);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while(keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if(!key.isValid()) {
+                        continue;
+                    }
+                    if(key.isAcceptable()) {
+                        accept(key);
+                    } else {
+                        Client client = (Client) key.attachment();
+                        try {
+                            if(key.isReadable()) {
+                                read(client);
+                            }
+                            if(key.isValid() && key.isWritable()) {
+                                flush(client);
+                            }
+                        } catch (CancelledKeyException e) {
+                            disconnect(client);
+                        }
+                    }
+                }
+                distributeDeltas();
+                dropStaleClients();
+                resumeAccepting();
+            }
+        } catch (IOException e) {
+            running = false; //the selector itself failed, nothing left to serve
+            log.error("State push server stopped", e);
+        }
+    }
+
+    private void accept(SelectionKey serverKey) {
+        while(true) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                //the connection stays in the backlog; stop selecting for it so the loop doesn't spin
+                log.warn("Could not accept a connection, retrying in a second", e);
+                serverKey.interestOps(0);
+                acceptPaused = true;
+                acceptRetryAtNanos = System.nanoTime() + ACCEPT_RETRY_NANOS;
+                return;
+            }
+            if(channel == null) {
+                return;
+            }
+            Client client = new Client(channel);
+            try {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                client.key = channel.register(selector, SelectionKey.OP_READ, client);
+            } catch (IOException e) {
+                log.warn("Could not set up the connection from {}", channel.socket().getRemoteSocketAddress(), e);
+                try {
+                    channel.close();
+                } catch (IOException closeFailure) {
+                    //already gone
+                }
+                continue;
+            }
+            clients.add(client);
+            clientCount = clients.size();
+            sendSnapshot(client);
+        }
+    }
+
+    private void resumeAccepting() {
+        if(acceptPaused && System.nanoTime() - acceptRetryAtNanos >= 0) {
+            acceptPaused = false;
+            serverChannel.keyFor(selector).interestOps(SelectionKey.OP_ACCEPT);
+        }
+    }
+
+    /**
+     * Clients send nothing; reading only notices when they disconnect.
+     */
+    private void read(Client client) {
+        try {
+            int read;
+            do {
+                readBuffer.clear();
+                read = client.channel.read(readBuffer);
+            } while(read > 0);
+            if(read < 0) {
+                disconnect(client);
+            }
+        } catch (IOException e) {
+            disconnect(client);
+        }
+    }
+
+    private void distributeDeltas() {
+        Delta delta;
+        while((delta = deltas.poll()) != null) {
+            for(Client client : clients) {
+                if(!client.stale && delta.sequence > client.snapshotSequence) {
+                    enqueue(client, delta.bytes.duplicate());
+                }
+            }
+        }
+        for(int i = clients.size() - 1; i >= 0; i--) {
+            Client client = clients.get(i);
+            if((client.stale || !client.pending.isEmpty()) && (client.key.interestOps() & SelectionKey.OP_WRITE) == 0) {
+                flush(client);
+            }
+        }
+    }
+
+    private void enqueue(Client client, ByteBuffer bytes) {
+        if(client.pendingBytes + bytes.remaining() > maxPendingBytes) {
+            //conflate: drop the queued deltas, keeping a message that is half written
+            ByteBuffer head = client.pending.peek();
+            client.pending.clear();
+            client.pendingBytes = 0;
+            if(head != null && head.position() > 0) {
+                client.pending.add(head);
+                if(head != client.snapshot) {
+                    client.pendingBytes = head.remaining();
+                }
+            }
+            if(client.pending.isEmpty()) {
+                client.snapshot = null;
+            }
+            client.stale = true;
+            client.staleSinceNanos = System.nanoTime();
+            conflatedCount.incrementAndGet();
+            return;
+        }
+        client.pending.add(bytes);
+        client.pendingBytes += bytes.remaining();
+    }
+
+    /**
+     * Writes as much as the socket takes, then waits for it to become writable again. A
+     * stale client that caught up gets a new snapshot.
+     */
+    private void flush(Client client) {
+        try {
+            ByteBuffer head;
+            while((head = client.pending.peek()) != null) {
+                int written = client.channel.write(head);
+                if(head != client.snapshot) {
+                    client.pendingBytes -= written;
+                }
+                if(head.hasRemaining()) {
+                    client.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                if(head == client.snapshot) {
+                    client.snapshot = null;
+                }
+                client.pending.poll();
+            }
+            client.key.interestOps(SelectionKey.OP_READ);
+            if(client.stale) {
+                client.stale = false;
+                sendSnapshot(client);
+            }
+        } catch (IOException e) {
+            disconnect(client);
+        }
+    }
+
+    private void sendSnapshot(Client client) {
+        SecurityState state;
+        synchronized(securityService) {
+            client.snapshotSequence = sequence.get();
+            state = securityService.getState();
+        }
+        StringBuilder snapshot = new StringBuilder();
+        snapshot.append("SNAPSHOT ").append(state.getAlarmStatus())
+                .append(' ').append(state.getArmingStatus())
+                .append(' ').append(state.isCatDetected()).append('\n');
+        for(SensorState sensor : state.getSensors()) {
+            appendSensor(snapshot.append("SENSOR "), sensor).append('\n');
+        }
+        snapshot.append("END\n");
+        //not counted in pendingBytes, so only the deltas queued behind it can make the client stale
+        client.snapshot = ByteBuffer.wrap(snapshot.toString().getBytes(StandardCharsets.UTF_8));
+        client.pending.add(client.snapshot);
+        flush(client);
+    }
+
+    private static StringBuilder appendSensor(StringBuilder line, SensorState sensor) {
+        return line.append(sensor.getSensorId())
+                .append(' ').append(sensor.getActive())
+                .append(' ').append(sensor.getSensorType())
+                .append(' ').append(sensor.getName().replace('\n', ' '));
+    }
+
+    private void dropStaleClients() {
+        long now = System.nanoTime();
+        for(int i = clients.size() - 1; i >= 0; i--) {
+            Client client = clients.get(i);
+            if(client.stale && now - client.staleSinceNanos > maxStaleNanos) {
+                droppedCount.incrementAndGet();
+                disconnect(client);
+            }
+        }
+    }
+
+    private void disconnect(Client client) {
+        if(clients.remove(client)) {
+            clientCount = clients.size();
+            client.key.cancel();
+            try {
+                client.channel.close();
+            } catch (IOException e) {
+                //already gone
+            }
+        }
+    }
+
+    private static class Delta {
+        private final long sequence;
+        private final ByteBuffer bytes;
+
+        Delta(long sequence, ByteBuffer bytes) {
+            this.sequence = sequence;
+            this.bytes = bytes;
+        }
+    }
+
+    private static class Client {
+        private final SocketChannel channel;
+        private final Queue<ByteBuffer> pending = new ArrayDeque<>();
+        private SelectionKey key;
+        private ByteBuffer snapshot; //queued or being written, null once sent
+        private int pendingBytes; //deltas only
+        private long snapshotSequence;
+        private boolean stale;
+        private long staleSinceNanos;
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
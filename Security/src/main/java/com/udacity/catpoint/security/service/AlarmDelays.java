@@ -0,0 +1,105 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Entry and exit delays per arming status.
+ *
+ * The entry delay is how long the alarm stays pending before it escalates on its own, giving
+ * the owner time to disarm after coming in. The exit delay starts when the system is armed;
+ * sensor activations during it do not raise the alarm, giving the owner time to leave.
+ * Sensors still active when it ends are treated as a new activation.
+ *
+ * Delays are declared as {@code ARMED_AWAY=30s/60s, ARMED_HOME=10s/0s} (entry/exit, in ms, s,
+ * m or h). A zero delay disables the countdown. Instances are immutable.
+ */
+public final class AlarmDelays {
+
+    public static final AlarmDelays NONE = new AlarmDelays(new Duration[ArmingStatus.values().length],
+            new Duration[ArmingStatus.values().length]);
+
+    private static final Pattern DELAY = Pattern.compile("\\s*(\\w+)\\s*=\\s*(\\d+)(ms|s|m|h)\\s*/\\s*(\\d+)(ms|s|m|h)\\s*");
+
+    //by ArmingStatus ordinal, null when disabled
+    private final Duration[] entryDelays;
+    private final Duration[] exitDelays;
+
+    private AlarmDelays(Duration[] entryDelays, Duration[] exitDelays) {
+        this.entryDelays = entryDelays;
+        this.exitDelays = exitDelays;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the declaration is not valid
+     */
+    public static AlarmDelays parse(String declaration) {
+        AlarmDelays delays = NONE;
+        for(String part : declaration.split(",")) {
+            if(part.isBlank()) {
+                continue;
+            }
+            Matcher matcher = DELAY.matcher(part);
+            if(!matcher.matches()) {
+                throw new IllegalArgumentException("Invalid alarm delay: " + part.trim());
+            }
+            ArmingStatus armingStatus;
+            try {
+                armingStatus = ArmingStatus.valueOf(matcher.group(1).toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid alarm delay: " + part.trim(), e);
+            }
+            delays = delays.withEntryDelay(armingStatus, duration(matcher.group(2), matcher.group(3)))
+                    .withExitDelay(armingStatus, duration(matcher.group(4), matcher.group(5)));
+        }
+        return delays;
+    }
+
+    private static Duration duration(String amount, String unit) {
+        long value = Long.parseLong(amount);
+        return switch(unit.toLowerCase(Locale.ROOT)) {
+            case "ms" -> Duration.ofMillis(value);
+            case "s" -> Duration.ofSeconds(value);
+            case "m" -> Duration.ofMinutes(value);
+            default -> Duration.ofHours(value);
+        };
+    }
+
+    public AlarmDelays withEntryDelay(ArmingStatus armingStatus, Duration delay) {
+        Duration[] entry = Arrays.copyOf(entryDelays, entryDelays.length);
+        entry[armingStatus.ordinal()] = enabled(delay);
+        return new AlarmDelays(entry, exitDelays);
+    }
+
+    public AlarmDelays withExitDelay(ArmingStatus armingStatus, Duration delay) {
+        Duration[] exit = Arrays.copyOf(exitDelays, exitDelays.length);
+        exit[armingStatus.ordinal()] = enabled(delay);
+        return new AlarmDelays(entryDelays, exit);
+    }
+
+    /**
+     * @return The entry delay, or null if the alarm never escalates on its own in this status
+     */
+    public Duration getEntryDelay(ArmingStatus armingStatus) {
+        return entryDelays[armingStatus.ordinal()];
+    }
+
+    /**
+     * @return The exit delay, or null if arming takes effect immediately in this status
+     */
+    public Duration getExitDelay(ArmingStatus armingStatus) {
+        return exitDelays[armingStatus.ordinal()];
+    }
+
+    private static Duration enabled(Duration delay) {
+        if(delay != null && delay.isNegative()) {
+            throw new IllegalArgumentException("Alarm delays can't be negative");
+        }
+        return delay == null || delay.isZero() ? null : delay;
+    }
+}
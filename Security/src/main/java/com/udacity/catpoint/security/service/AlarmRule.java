@@ -0,0 +1,149 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.SensorType;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled alarm rule. Rules are declared one per line:
+ * <pre>
+ * two-motions: 2 MOTION within 10s when ARMED_HOME,ARMED_AWAY -&gt; ALARM
+ * window-away: 1 WINDOW when ARMED_AWAY -&gt; PENDING_ALARM
+ * cat-home:    cat when ARMED_HOME -&gt; ALARM
+ * </pre>
+ * A sensor rule fires when the given number of different sensors of one type have been
+ * activated within the window, which may be given in ms, s, m or h and defaults to no limit.
+ * A cat rule fires when the camera sees a cat. Without a {@code when} clause a rule applies
+ * in every armed status, but never while disarmed.
+ *
+ * A rule remembers the last activation of at most {@code count} sensors, so evaluating it is
+ * O(count) and its memory is fixed. Not thread safe; the engine owning it serializes access.
+ */
+public final class AlarmRule {
+
+    private static final Pattern RULE = Pattern.compile(
+            "\\s*([\\w-]+)\\s*:\\s*(?:(cat)|(\\d+)\\s+(\\w+)(?:\\s+within\\s+(\\d+)(ms|s|m|h))?)"
+                    + "(?:\\s+when\\s+([\\w,]+))?\\s*->\\s*(\\w+)\\s*", Pattern.CASE_INSENSITIVE);
+
+    private final String name;
+    private final SensorType sensorType; //null for a cat rule
+    private final int count;
+    private final long windowMillis;
+    private final boolean[] armedIn; //by ArmingStatus ordinal
+    private final AlarmStatus action;
+
+    //the most recent activation of up to count different sensors
+    private final UUID[] recentSensors;
+    private final long[] recentTimes;
+
+    public AlarmRule(String name, SensorType sensorType, int count, long windowMillis, ArmingStatus[] armingStatuses, AlarmStatus action) {
+        if(count < 1) {
+            throw new IllegalArgumentException("Rule " + name + " must need at least one sensor");
+        }
+        if(action == AlarmStatus.NO_ALARM) {
+            throw new IllegalArgumentException("Rule " + name + " must raise the alarm status");
+        }
+        this.name = name;
+        this.sensorType = sensorType;
+        this.count = count;
+        this.windowMillis = windowMillis;
+        this.armedIn = new boolean[ArmingStatus.values().length];
+        for(ArmingStatus armingStatus : armingStatuses) {
+            armedIn[armingStatus.ordinal()] = true;
+        }
+        this.action = action;
+        this.recentSensors = new UUID[count];
+        this.recentTimes = new long[count];
+    }
+
+    /**
+     * Compiles a rule declaration.
+     * @throws IllegalArgumentException if the declaration is not valid
+     */
+    public static AlarmRule parse(String declaration) {
+        Matcher matcher = RULE.matcher(declaration);
+        if(!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid rule: " + declaration);
+        }
+        try {
+            SensorType type = matcher.group(2) != null ? null : SensorType.valueOf(matcher.group(4).toUpperCase(Locale.ROOT));
+            int count = matcher.group(2) != null ? 1 : Integer.parseInt(matcher.group(3));
+            long window = matcher.group(5) == null ? Long.MAX_VALUE
+                    : Long.parseLong(matcher.group(5)) * switch(matcher.group(6).toLowerCase(Locale.ROOT)) {
+                        case "ms" -> 1L;
+                        case "s" -> 1_000L;
+                        case "m" -> 60_000L;
+                        default -> 3_600_000L;
+                    };
+            ArmingStatus[] armingStatuses = matcher.group(7) == null
+                    ? new ArmingStatus[]{ArmingStatus.ARMED_HOME, ArmingStatus.ARMED_AWAY}
+                    : Arrays.stream(matcher.group(7).split(","))
+                    .map(s -> ArmingStatus.valueOf(s.trim().toUpperCase(Locale.ROOT)))
+                    .toArray(ArmingStatus[]::new);
+            return new AlarmRule(matcher.group(1), type, count, window, armingStatuses,
+                    AlarmStatus.valueOf(matcher.group(8).toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid rule: " + declaration, e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The sensor type triggering this rule, or null for a cat rule.
+     */
+    public SensorType getSensorType() {
+        return sensorType;
+    }
+
+    public boolean appliesWhen(ArmingStatus armingStatus) {
+        return armedIn[armingStatus.ordinal()];
+    }
+
+    public AlarmStatus getAction() {
+        return action;
+    }
+
+    /**
+     * Records the activation of a sensor of this rule's type.
+     * @return True if the rule fires
+     */
+    boolean sensorActivated(UUID sensorId, long now) {
+        int slot = -1;
+        int oldest = 0;
+        for(int i = 0; i < count; i++) {
+            if(sensorId.equals(recentSensors[i])) {
+                slot = i;
+                break;
+            }
+            if(recentSensors[i] == null || (recentSensors[oldest] != null && recentTimes[i] < recentTimes[oldest])) {
+                oldest = i;
+            }
+        }
+        if(slot < 0) {
+            slot = oldest;
+        }
+        recentSensors[slot] = sensorId;
+        recentTimes[slot] = now;
+
+        for(int i = 0; i < count; i++) {
+            if(recentSensors[i] == null || now - recentTimes[i] > windowMillis) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
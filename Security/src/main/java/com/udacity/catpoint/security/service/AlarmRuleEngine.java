@@ -0,0 +1,98 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates compiled {@link AlarmRule}s as events arrive. Rules are indexed by trigger (sensor
+ * type or cat) and arming status, so an event only visits the rules that can fire for it; the
+ * cost of an event does not depend on the number of sensors or on rules for other triggers.
+ *
+ * Not thread safe; {@link SecurityService} calls it while holding its lock.
+ */
+public class AlarmRuleEngine {
+
+    private static final int CAT = SensorType.values().length;
+
+    //[trigger][arming status], trigger is the sensor type ordinal or CAT
+    private final AlarmRule[][][] index;
+    private final List<AlarmRule> rules;
+
+    public AlarmRuleEngine(List<AlarmRule> rules) {
+        this.rules = List.copyOf(rules);
+        this.index = new AlarmRule[CAT + 1][ArmingStatus.values().length][];
+        for(int trigger = 0; trigger <= CAT; trigger++) {
+            for(ArmingStatus armingStatus : ArmingStatus.values()) {
+                List<AlarmRule> matching = new ArrayList<>();
+                for(AlarmRule rule : rules) {
+                    if(trigger(rule) == trigger && rule.appliesWhen(armingStatus)) {
+                        matching.add(rule);
+                    }
+                }
+                index[trigger][armingStatus.ordinal()] = matching.toArray(new AlarmRule[0]);
+            }
+        }
+    }
+
+    /**
+     * Reads rules declared one per line. Blank lines and lines starting with '#' are ignored.
+     * @throws IllegalArgumentException if a rule is not valid
+     */
+    public static AlarmRuleEngine parse(Reader config) throws IOException {
+        List<AlarmRule> rules = new ArrayList<>();
+        BufferedReader lines = new BufferedReader(config);
+        String line;
+        while((line = lines.readLine()) != null) {
+            if(!line.isBlank() && !line.trim().startsWith("#")) {
+                rules.add(AlarmRule.parse(line));
+            }
+        }
+        return new AlarmRuleEngine(rules);
+    }
+
+    public List<AlarmRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Evaluates the rules triggered by a sensor activation.
+     * @return The most severe status demanded by a firing rule, or null if none fired
+     */
+    public AlarmStatus sensorActivated(Sensor sensor, ArmingStatus armingStatus, long now) {
+        AlarmStatus result = null;
+        for(AlarmRule rule : index[sensor.getSensorType().ordinal()][armingStatus.ordinal()]) {
+            if(rule.sensorActivated(sensor.getSensorId(), now)) {
+                result = moreSevere(result, rule.getAction());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates the rules triggered by the camera seeing a cat.
+     * @return The most severe status demanded by a firing rule, or null if none fired
+     */
+    public AlarmStatus catDetected(ArmingStatus armingStatus) {
+        AlarmStatus result = null;
+        for(AlarmRule rule : index[CAT][armingStatus.ordinal()]) {
+            result = moreSevere(result, rule.getAction());
+        }
+        return result;
+    }
+
+    private static int trigger(AlarmRule rule) {
+        return rule.getSensorType() == null ? CAT : rule.getSensorType().ordinal();
+    }
+
+    private static AlarmStatus moreSevere(AlarmStatus a, AlarmStatus b) {
+        return a == null || b.ordinal() > a.ordinal() ? b : a;
+    }
+}
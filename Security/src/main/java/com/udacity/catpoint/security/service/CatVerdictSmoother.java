@@ -0,0 +1,105 @@
+package com.udacity.catpoint.security.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Smooths the cat confidence of consecutive frames per camera, so classifier jitter does not
+ * flip the cat verdict back and forth. Each camera keeps an exponential moving average of
+ * its confidences: the verdict turns to cat once the average reaches the enter threshold, and
+ * back once it falls below the exit threshold. A camera costs one average and one verdict,
+ * however many frames it sends.
+ *
+ * Settings are declared as {@code weight/enter/exit}, for example {@code 0.3/60/40}: each
+ * frame counts for 30% of the average, a cat is seen from an average of 60% and gone again
+ * below 40%. A weight of 1 with equal thresholds disables smoothing.
+ *
+ * Not thread safe.
+ */
+public class CatVerdictSmoother {
+
+    private static final Pattern SETTINGS = Pattern.compile("\\s*([\\d.]+)\\s*/\\s*([\\d.]+)\\s*/\\s*([\\d.]+)\\s*");
+
+    private final float weight;
+    private final float enterThreshold;
+    private final float exitThreshold;
+    private final Map<String, Camera> cameras = new HashMap<>();
+
+    /**
+     * @param weight Share of each new frame in the average, above 0 and at most 1
+     * @param enterThreshold Average confidence, from 0 to 100, at which a cat is seen
+     * @param exitThreshold Average confidence below which the cat is gone, at most the enter threshold
+     * @throws IllegalArgumentException if the settings are out of range
+     */
+    public CatVerdictSmoother(float weight, float enterThreshold, float exitThreshold) {
+        if(!(weight > 0 && weight <= 1) || exitThreshold < 0 || exitThreshold > enterThreshold || enterThreshold > 100) {
+            throw new IllegalArgumentException("Invalid smoothing: " + weight + "/" + enterThreshold + "/" + exitThreshold);
+        }
+        this.weight = weight;
+        this.enterThreshold = enterThreshold;
+        this.exitThreshold = exitThreshold;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the declaration is not valid
+     */
+    public static CatVerdictSmoother parse(String declaration) {
+        Matcher matcher = SETTINGS.matcher(declaration);
+        if(!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid smoothing: " + declaration.trim());
+        }
+        try {
+            return new CatVerdictSmoother(Float.parseFloat(matcher.group(1)), Float.parseFloat(matcher.group(2)),
+                    Float.parseFloat(matcher.group(3)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid smoothing: " + declaration.trim(), e);
+        }
+    }
+
+    /**
+     * Adds a frame to the camera's average. Cameras start with an average of 0 and no cat.
+     * @param confidence Cat confidence of the frame, from 0 to 100
+     * @return The smoothed verdict of the camera
+     */
+    public boolean update(String cameraId, float confidence) {
+        Camera camera = cameras.computeIfAbsent(cameraId, id -> new Camera());
+        camera.average += weight * (confidence - camera.average);
+        if(!camera.cat && camera.average >= enterThreshold) {
+            camera.cat = true;
+        } else if(camera.cat && camera.average < exitThreshold) {
+            camera.cat = false;
+        }
+        return camera.cat;
+    }
+
+    /**
+     * Current average confidence of the camera, 0 for cameras that sent no frames.
+     */
+    public float getAverage(String cameraId) {
+        Camera camera = cameras.get(cameraId);
+        return camera == null ? 0 : camera.average;
+    }
+
+    public int getCameraCount() {
+        return cameras.size();
+    }
+
+    public float getWeight() {
+        return weight;
+    }
+
+    public float getEnterThreshold() {
+        return enterThreshold;
+    }
+
+    public float getExitThreshold() {
+        return exitThreshold;
+    }
+
+    private static class Camera {
+        private float average;
+        private boolean cat;
+    }
+}
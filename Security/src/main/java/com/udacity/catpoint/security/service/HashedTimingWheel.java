@@ -0,0 +1,191 @@
+package com.udacity.catpoint.security.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs delayed tasks for many alarm systems on a single thread. Timeouts are hashed by
+ * deadline into a fixed ring of buckets, one per tick; every tick the thread only looks at one
+ * bucket. Scheduling and cancelling are O(1) and never block, so one wheel can track hundreds
+ * of thousands of countdowns. Tasks fire up to one tick late and must be short, as they all
+ * run on the wheel's thread.
+ *
+ * Cancelled timeouts are dropped when their bucket is next visited. A task that throws is
+ * logged and counted, and the other timeouts still run.
+ */
+public class HashedTimingWheel implements AutoCloseable {
+
+    private final long tickNanos;
+    private final int mask;
+    private final List<List<Timeout>> buckets;
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Logger log = LoggerFactory.getLogger(HashedTimingWheel.class);
+    private final AtomicLong pendingCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final long startNanos;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * @param tick Resolution of the wheel
+     * @param wheelSize Number of buckets, rounded up to a power of two. Timeouts further away
+     *                  than {@code tick * wheelSize} wait for extra rotations.
+     */
+    public HashedTimingWheel(Duration tick, int wheelSize) {
+        this.tickNanos = tick.toNanos();
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.mask = size - 1;
+        this.buckets = new ArrayList<>(size);
+        for(int i = 0; i < size; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, "timing-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Schedules the task to run once the delay has passed.
+     */
+    public Timeout schedule(Runnable task, Duration delay) {
+        Timeout timeout = new Timeout(task, System.nanoTime() - startNanos + Math.max(0, delay.toNanos()));
+        pendingCount.incrementAndGet();
+        added.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Number of scheduled timeouts that have neither run nor been cancelled.
+     */
+    public long getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Number of tasks that threw when their timeout expired.
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Stops the wheel and waits for its thread to finish the current tick. Pending timeouts
+     * never run. If interrupted, returns without waiting, with the interrupt flag set.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long tick = 0;
+        while(running) {
+            long wakeUp = startNanos + (tick + 1) * tickNanos;
+            long sleep;
+            while(running && (sleep = wakeUp - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(sleep);
+            }
+            transferAdded(tick);
+            expire(buckets.get((int) (tick & mask)));
+            tick++;
+        }
+    }
+
+    /**
+     * Moves newly scheduled timeouts into the bucket of their deadline. Timeouts already due
+     * go into the current bucket.
+     */
+    private void transferAdded(long tick) {
+        Timeout timeout;
+        while((timeout = added.poll()) != null) {
+            if(timeout.state.get() == Timeout.CANCELLED) {
+                continue;
+            }
+            long deadlineTick = Math.max(tick, timeout.deadlineNanos / tickNanos);
+            timeout.remainingRounds = (deadlineTick - tick) / buckets.size();
+            buckets.get((int) (deadlineTick & mask)).add(timeout);
+        }
+    }
+
+    private void expire(List<Timeout> bucket) {
+        int kept = 0;
+        for(int i = 0; i < bucket.size(); i++) {
+            Timeout timeout = bucket.get(i);
+            if(timeout.state.get() == Timeout.CANCELLED) {
+                continue;
+            }
+            if(timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+                bucket.set(kept++, timeout);
+                continue;
+            }
+            if(timeout.state.compareAndSet(Timeout.PENDING, Timeout.EXPIRED)) {
+                pendingCount.decrementAndGet();
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    //a failing task must not stop the other timeouts
+                    failedCount.incrementAndGet();
+                    log.error("Timeout task failed", e);
+                }
+            }
+        }
+        bucket.subList(kept, bucket.size()).clear();
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public final class Timeout {
+        private static final int PENDING = 0;
+        private static final int EXPIRED = 1;
+        private static final int CANCELLED = 2;
+
+        private final Runnable task;
+        private final long deadlineNanos; //relative to the wheel's start
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private long remainingRounds; //only accessed by the wheel's thread
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Cancels the task if it has not run yet.
+         * @return True if the task will now never run
+         */
+        public boolean cancel() {
+            if(state.compareAndSet(PENDING, CANCELLED)) {
+                pendingCount.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - (System.nanoTime() - startNanos), TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.udacity.catpoint.security.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies in a fixed set of logarithmic buckets, eight per power of two, so
+ * percentiles are reported within 12.5% of the true value while memory stays constant,
+ * however many latencies are recorded. Recording is lock free and may run on any thread.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 8;
+    private static final int LINEAR = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = LINEAR + (63 - 4) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * Latency that the given share of the recorded latencies did not exceed, rounded up to
+     * its bucket, or 0 if none were recorded.
+     * @param percentile From 0 to 100, for example 99 for the p99 latency
+     */
+    public long getPercentileNanos(double percentile) {
+        long total = count.get();
+        if(total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for(int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if(seen >= rank) {
+                return Math.min(upperBound(bucket), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public Duration getPercentile(double percentile) {
+        return Duration.ofNanos(getPercentileNanos(percentile));
+    }
+
+    /**
+     * Number of recorded latencies above the limit, counted by bucket, so latencies up to
+     * 12.5% above the limit may not be counted.
+     */
+    public long getCountAbove(Duration limit) {
+        long nanos = limit.toNanos();
+        long above = 0;
+        for(int bucket = BUCKETS - 1; bucket >= 0 && upperBound(bucket) > nanos; bucket--) {
+            above += counts.get(bucket);
+        }
+        return above;
+    }
+
+    static int bucketOf(long value) {
+        if(value < LINEAR) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if(bucket < LINEAR) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR) / SUB_BUCKETS + 4;
+        long sub = (bucket - LINEAR) % SUB_BUCKETS;
+        long lower = (SUB_BUCKETS + sub) << (exponent - 3);
+        return lower + (1L << (exponent - 3)) - 1;
+    }
+}
@@ -0,0 +1,688 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.application.SecurityEventListener;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Drives a {@link SecurityService} from prioritized lanes, so a burst of camera frames never
+ * delays a sensor event. One dispatcher thread applies all events to the service: alarm lane
+ * and sensor events first, then image verdicts, then notifications. Images are classified on
+ * a separate bounded pool and only their verdicts enter the image lane.
+ *
+ * Sensor events are queued per {@link SensorType} and processed as configured by
+ * {@link SensorPaths}: immediate types, by default doors and windows, are applied event by
+ * event, while the events of sampled types, by default motion sensors, are aggregated per
+ * sensor over the sampling interval. Chatty motion sensors thus cost at most two updates per
+ * sensor and interval. Alarm lane and sensor events are stamped with one sequence number
+ * when submitted and applied in that order, whichever queue they wait in: a sample takes the
+ * place of its first event, and is applied ahead of its interval's end when a later event,
+ * for example an arming change, is applied.
+ *
+ * Every lane and sensor type has a bounded queue and records how long its events took from
+ * submission until they were applied, to be compared with its latency objective. Arming and
+ * immediate sensor events are never dropped; submitters block while their queue is full.
+ * Image verdicts and notifications are dropped when their lane is full, and counted as
+ * rejected. Samples that do not fit their type's queue wait for the next interval. An event
+ * that throws is logged and counted as failed, without recording its latency.
+ *
+ * Tasks run on the dispatcher thread and call the public service methods, each of which
+ * holds the service lock only for its own call. The listeners a service method notifies run
+ * on the dispatcher thread too, inside that call. Neither they nor any other thread holding
+ * the service lock may call the blocking methods {@link #submit}, {@link #setArmingStatus}
+ * or {@link #changeSensorActivationStatus}: the queue they wait on is only drained by the
+ * dispatcher, which may itself be waiting for the lock. Listeners may {@link #offer} events,
+ * or be registered through {@link #deferred}.
+ *
+ * Once the executor is closed, submitting fails with a {@link RejectedExecutionException}
+ * instead of waiting for a lane nobody drains anymore.
+ *
+ * This is a library for hosts driving a service with many cameras and sensors. The desktop
+ * application does not use it: its panels and its live feed, which scans about one frame a
+ * second, call the {@link SecurityService} directly.
+ */
+public class PrioritySecurityExecutor implements AutoCloseable {
+
+    /**
+     * The lanes in priority order, with the latency each lane should stay within at p99.
+     * Sensor events are queued by type and applied along with the alarm lane, in the order
+     * they were submitted.
+     */
+    public enum Lane {
+        ALARM(Duration.ofMillis(10)),
+        IMAGE(Duration.ofMillis(500)),
+        NOTIFICATION(Duration.ofSeconds(1));
+
+        private final Duration latencyObjective;
+
+        Lane(Duration latencyObjective) {
+            this.latencyObjective = latencyObjective;
+        }
+
+        public Duration getLatencyObjective() {
+            return latencyObjective;
+        }
+    }
+
+    private static final Lane[] LANES = Lane.values();
+    private static final SensorType[] TYPES = SensorType.values();
+    private static final Task STOP = new Task(() -> {}, 0, 0);
+    private static final long NOT_SCHEDULED = Long.MIN_VALUE;
+
+    private final Logger log = LoggerFactory.getLogger(PrioritySecurityExecutor.class);
+    private final SecurityService service;
+    private final SensorPaths sensorPaths;
+    private final Channel[] lanes = new Channel[LANES.length];
+    private final Channel[] sensorChannels = new Channel[TYPES.length];
+    //null for immediate types
+    private final Sampler[] samplers = new Sampler[TYPES.length];
+    //the alarm lane and the sensor types, merged by sequence number
+    private final Channel[] ordered;
+    //the lanes after them, in priority order
+    private final Channel[] unordered;
+    private final AtomicLong sequence = new AtomicLong();
+    //at least one permit per queued task, so the dispatcher sleeps while all queues are empty
+    private final Semaphore queued = new Semaphore(0);
+    private final ThreadPoolExecutor classificationPool;
+    private final Thread dispatcher;
+    //submitters queue under the read lock, so nothing is queued once close() has taken the write lock
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private boolean closed; //guarded by closeLock
+
+    /**
+     * Uses the {@link SensorPaths#DEFAULT} sensor paths.
+     */
+    public PrioritySecurityExecutor(SecurityService service, int laneCapacity,
+                                    int classificationThreads, int classificationQueueCapacity) {
+        this(service, laneCapacity, classificationThreads, classificationQueueCapacity, SensorPaths.DEFAULT);
+    }
+
+    /**
+     * @param service The service all events are applied to
+     * @param laneCapacity Events each lane and sensor type may have queued
+     * @param classificationThreads Number of threads classifying images
+     * @param classificationQueueCapacity How many images may wait for classification before new ones are rejected
+     * @param sensorPaths How the events of each sensor type are processed
+     */
+    public PrioritySecurityExecutor(SecurityService service, int laneCapacity, int classificationThreads,
+                                    int classificationQueueCapacity, SensorPaths sensorPaths) {
+        this.service = service;
+        this.sensorPaths = sensorPaths;
+        List<Channel> order = new ArrayList<>();
+        for(Lane lane : LANES) {
+            lanes[lane.ordinal()] = new Channel(lane.name(), laneCapacity);
+        }
+        order.add(lanes[Lane.ALARM.ordinal()]);
+        for(SensorType type : TYPES) {
+            sensorChannels[type.ordinal()] = new Channel(type.name(), laneCapacity);
+            order.add(sensorChannels[type.ordinal()]);
+            if(sensorPaths.isSampled(type)) {
+                samplers[type.ordinal()] = new Sampler(sensorPaths.getSamplingInterval(type).toNanos());
+            }
+        }
+        this.ordered = order.toArray(new Channel[0]);
+        this.unordered = new Channel[]{lanes[Lane.IMAGE.ordinal()], lanes[Lane.NOTIFICATION.ordinal()]};
+
+        AtomicInteger classifiers = new AtomicInteger();
+        this.classificationPool = new ThreadPoolExecutor(classificationThreads, classificationThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(classificationQueueCapacity), r -> {
+                    Thread t = new Thread(r, "security-classifier-" + classifiers.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.dispatcher = new Thread(this::dispatch, "security-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    public SecurityService getService() {
+        return service;
+    }
+
+    public SensorPaths getSensorPaths() {
+        return sensorPaths;
+    }
+
+    /**
+     * Queues an event on a lane, blocking while the lane is full.
+     * @throws RejectedExecutionException if the executor is closed
+     */
+    public void submit(Lane lane, Consumer<SecurityService> event) throws InterruptedException {
+        putIfOpen(lanes[lane.ordinal()], task(() -> event.accept(service), System.nanoTime()));
+    }
+
+    /**
+     * Queues an event on a lane unless the lane is full or the executor is closed.
+     * @return False if the event was dropped
+     */
+    public boolean offer(Lane lane, Consumer<SecurityService> event) {
+        return offerIfOpen(lanes[lane.ordinal()], task(() -> event.accept(service), System.nanoTime()));
+    }
+
+    /**
+     * Queues a sensor event on the path of the sensor's type. Events of immediate types block
+     * while their queue is full; events of sampled types are folded into the sensor's sample
+     * and never block.
+     * @throws RejectedExecutionException if the executor is closed
+     */
+    public void changeSensorActivationStatus(Sensor sensor, boolean active) throws InterruptedException {
+        long now = System.nanoTime();
+        int type = sensor.getSensorType().ordinal();
+        Sampler sampler = samplers[type];
+        if(sampler == null) {
+            putIfOpen(sensorChannels[type], task(() -> service.changeSensorActivationStatus(sensor, active), now));
+            return;
+        }
+        if(!closeLock.readLock().tryLock()) {
+            throw new RejectedExecutionException("Executor is closed");
+        }
+        try {
+            checkOpen();
+            sensorChannels[type].received.incrementAndGet();
+            if(sampler.add(sensor, active, now, sequence.incrementAndGet())) {
+                queued.release(); //wakes the dispatcher to schedule the new interval
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    public void setArmingStatus(ArmingStatus armingStatus) throws InterruptedException {
+        submit(Lane.ALARM, s -> s.setArmingStatus(armingStatus));
+    }
+
+    /**
+     * Queues a camera frame for classification; its verdict then waits in the image lane.
+     * Image lane latency is counted from this call, so it includes the classification.
+     * @return Completes once the verdict has been applied, or exceptionally with a
+     * {@link RejectedExecutionException} if the image lane was full
+     * @throws RejectedExecutionException if the classification queue is full or the executor is closed
+     */
+    public CompletableFuture<Void> processImage(String cameraId, BufferedImage image) {
+        long submitted = System.nanoTime();
+        CompletableFuture<Void> applied = new CompletableFuture<>();
+        classificationPool.execute(() -> {
+            float confidence;
+            try {
+                confidence = service.scoreImage(image);
+            } catch (RuntimeException e) {
+                applied.completeExceptionally(e);
+                return;
+            }
+            boolean accepted = offerIfOpen(lanes[Lane.IMAGE.ordinal()], task(() -> {
+                try {
+                    service.processCatConfidence(cameraId, confidence);
+                    applied.complete(null);
+                } catch (RuntimeException e) {
+                    applied.completeExceptionally(e);
+                    throw e;
+                }
+            }, submitted));
+            if(!accepted) {
+                applied.completeExceptionally(new RejectedExecutionException("Image lane is full"));
+            }
+        });
+        return applied;
+    }
+
+    /**
+     * Wraps a listener so it receives the service's events on the notification lane, after
+     * all pending sensor events and verdicts, instead of while the service applies them.
+     * Register the returned listener with the service.
+     */
+    public SecurityEventListener deferred(SecurityEventListener listener) {
+        return event -> offerIfOpen(lanes[Lane.NOTIFICATION.ordinal()], task(() -> listener.onEvent(event), System.nanoTime()));
+    }
+
+    /**
+     * Blocks until every event queued on any lane before this call has been applied, along
+     * with the notifications those events queued. Samples are applied without waiting for
+     * the end of their interval. Images still being classified are not waited for.
+     * @throws RejectedExecutionException if the executor is closed
+     */
+    public void awaitQuiescence() throws InterruptedException {
+        drain(true);
+    }
+
+    private void drain(boolean onlyIfOpen) throws InterruptedException {
+        boolean[] drained = {false};
+        while(!drained[0]) {
+            CountDownLatch latch = new CountDownLatch(1);
+            Task marker = task(() -> {
+                flushSamples(true, Long.MIN_VALUE);
+                drained[0] = isIdle();
+                latch.countDown();
+            }, System.nanoTime());
+            if(onlyIfOpen) {
+                putIfOpen(lanes[Lane.NOTIFICATION.ordinal()], marker);
+            } else {
+                put(lanes[Lane.NOTIFICATION.ordinal()], marker);
+            }
+            latch.await();
+        }
+    }
+
+    /**
+     * Latency of the lane's events, from submission until applied.
+     */
+    public LatencyHistogram getLatency(Lane lane) {
+        return lanes[lane.ordinal()].latency;
+    }
+
+    /**
+     * True while the lane's p99 latency is within its objective.
+     */
+    public boolean isWithinLatencyObjective(Lane lane) {
+        return getLatency(lane).getPercentileNanos(99) <= lane.getLatencyObjective().toNanos();
+    }
+
+    public int getQueuedCount(Lane lane) {
+        return lanes[lane.ordinal()].queue.size();
+    }
+
+    /**
+     * Number of events dropped because the lane was full.
+     */
+    public long getRejectedCount(Lane lane) {
+        return lanes[lane.ordinal()].rejected.get();
+    }
+
+    /**
+     * Number of the lane's events that threw when applied.
+     */
+    public long getFailedCount(Lane lane) {
+        return lanes[lane.ordinal()].failed.get();
+    }
+
+    /**
+     * Latency of the type's sensor events, from submission until applied. For sampled types,
+     * one latency is recorded per applied sample, counted from its first event.
+     */
+    public LatencyHistogram getLatency(SensorType type) {
+        return sensorChannels[type.ordinal()].latency;
+    }
+
+    /**
+     * True while the type's p99 latency is within the alarm lane's objective, plus the
+     * sampling interval for sampled types.
+     */
+    public boolean isWithinLatencyObjective(SensorType type) {
+        Duration objective = Lane.ALARM.getLatencyObjective().plus(sensorPaths.getSamplingInterval(type));
+        return getLatency(type).getPercentileNanos(99) <= objective.toNanos();
+    }
+
+    /**
+     * Number of events submitted for sensors of the type; for sampled types this includes
+     * the events aggregated into samples.
+     */
+    public long getReceivedCount(SensorType type) {
+        return sensorChannels[type.ordinal()].received.get();
+    }
+
+    public int getQueuedCount(SensorType type) {
+        return sensorChannels[type.ordinal()].queue.size();
+    }
+
+    /**
+     * Number of samples of a sampled type that did not fit its queue and were deferred to the
+     * next interval. Immediate types block instead, so this stays 0 for them.
+     */
+    public long getRejectedCount(SensorType type) {
+        return sensorChannels[type.ordinal()].rejected.get();
+    }
+
+    /**
+     * Number of the type's events or samples that threw when applied.
+     */
+    public long getFailedCount(SensorType type) {
+        return sensorChannels[type.ordinal()].failed.get();
+    }
+
+    /**
+     * Stops accepting events and images, waits for queued classifications, then applies every
+     * queued event and sample and stops the dispatcher. If interrupted, stops the dispatcher
+     * without applying the remaining events and returns with the interrupt flag set. Closing
+     * again has no effect.
+     */
+    @Override
+    public void close() {
+        //waits for submitters blocked on a full queue, which the still running dispatcher frees
+        closeLock.writeLock().lock();
+        try {
+            if(closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        classificationPool.shutdown();
+        try {
+            classificationPool.awaitTermination(1, TimeUnit.MINUTES);
+            drain(false);
+            put(lanes[Lane.NOTIFICATION.ordinal()], STOP);
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            dispatcher.interrupt();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Task task(Runnable action, long submitted) {
+        return new Task(action, submitted, sequence.incrementAndGet());
+    }
+
+    private void putIfOpen(Channel channel, Task task) throws InterruptedException {
+        closeLock.readLock().lock();
+        try {
+            checkOpen();
+            put(channel, task);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Never waits for the close lock, as the dispatcher offers notifications while close()
+     * may be waiting for it.
+     */
+    private boolean offerIfOpen(Channel channel, Task task) {
+        if(!closeLock.readLock().tryLock()) {
+            return false; //closing
+        }
+        try {
+            return !closed && offer(channel, task);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    private void checkOpen() {
+        if(closed) {
+            throw new RejectedExecutionException("Executor is closed");
+        }
+    }
+
+    private void put(Channel channel, Task task) throws InterruptedException {
+        channel.queue.put(task);
+        channel.received.incrementAndGet();
+        queued.release();
+    }
+
+    private boolean offer(Channel channel, Task task) {
+        channel.received.incrementAndGet();
+        if(!channel.queue.offer(task)) {
+            channel.rejected.incrementAndGet();
+            return false;
+        }
+        queued.release();
+        return true;
+    }
+
+    private boolean isIdle() {
+        for(Channel channel : ordered) {
+            if(!channel.queue.isEmpty()) {
+                return false;
+            }
+        }
+        for(Channel channel : unordered) {
+            if(!channel.queue.isEmpty()) {
+                return false;
+            }
+        }
+        for(Sampler sampler : samplers) {
+            if(sampler != null && !sampler.samples.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the samples of every type whose interval has ended into the type's queue, in
+     * sequence order. Runs on the dispatcher only.
+     * @param all True to also move samples whose interval has not ended yet
+     * @param before Also moves the samples whose first event was stamped before this sequence number
+     * @return True if a sample was moved
+     */
+    private boolean flushSamples(boolean all, long before) {
+        long now = System.nanoTime();
+        boolean moved = false;
+        for(int type = 0; type < TYPES.length; type++) {
+            Sampler sampler = samplers[type];
+            if(sampler == null) {
+                continue;
+            }
+            long flushAt = sampler.flushAt.get();
+            boolean due = flushAt != NOT_SCHEDULED && (all || now - flushAt >= 0);
+            if(due) {
+                sampler.flushAt.set(NOT_SCHEDULED);
+            } else if(sampler.samples.isEmpty()) {
+                continue;
+            }
+            List<Sample> flushed = new ArrayList<>();
+            for(UUID sensorId : sampler.samples.keySet()) {
+                Sample sample = sampler.samples.get(sensorId);
+                if(sample != null && (due || sample.sequence < before) && sampler.samples.remove(sensorId, sample)) {
+                    flushed.add(sample);
+                }
+            }
+            flushed.sort((a, b) -> Long.compare(a.sequence, b.sequence));
+            Channel channel = sensorChannels[type];
+            for(int i = 0; i < flushed.size(); i++) {
+                Sample sample = flushed.get(i);
+                if(channel.queue.offer(new Task(() -> apply(sample), sample.firstSubmitted, sample.sequence))) {
+                    queued.release();
+                    moved = true;
+                } else {
+                    //keep the samples for the next interval rather than lose the sensors' latest state
+                    channel.rejected.addAndGet(flushed.size() - i);
+                    for(Sample deferred : flushed.subList(i, flushed.size())) {
+                        sampler.samples.merge(deferred.sensor.getSensorId(), deferred, (later, earlier) -> earlier.merge(later));
+                    }
+                    sampler.flushAt.compareAndSet(NOT_SCHEDULED, now + sampler.intervalNanos);
+                    break;
+                }
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Applies a sample as its activation, if any, followed by the sensor's latest state, so
+     * activating an already active sensor still escalates a pending alarm.
+     */
+    private void apply(Sample sample) {
+        if(sample.activated) {
+            service.changeSensorActivationStatus(sample.sensor, true);
+        }
+        if(!sample.active) {
+            service.changeSensorActivationStatus(sample.sensor, false);
+        }
+    }
+
+    private long nanosUntilNextFlush() {
+        long now = System.nanoTime();
+        long wait = Long.MAX_VALUE;
+        for(Sampler sampler : samplers) {
+            long flushAt = sampler == null ? NOT_SCHEDULED : sampler.flushAt.get();
+            if(flushAt != NOT_SCHEDULED) {
+                wait = Math.min(wait, Math.max(0, flushAt - now));
+            }
+        }
+        return wait;
+    }
+
+    private void dispatch() {
+        try {
+            while(true) {
+                long wait = nanosUntilNextFlush();
+                boolean woken = true;
+                if(wait == Long.MAX_VALUE) {
+                    queued.acquire();
+                } else {
+                    woken = queued.tryAcquire(wait, TimeUnit.NANOSECONDS);
+                }
+                flushSamples(false, Long.MIN_VALUE);
+                if(woken && !runNext()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs the alarm lane or sensor task with the lowest sequence number, after moving the
+     * samples started before it into their queues, or else the next task of the highest
+     * priority lane having one, if any.
+     * @return False once stopped
+     */
+    private boolean runNext() {
+        Channel channel = nextOrdered();
+        if(channel != null && flushSamples(false, channel.queue.peek().sequence)) {
+            channel = nextOrdered();
+        }
+        for(int i = 0; channel == null && i < unordered.length; i++) {
+            if(!unordered[i].queue.isEmpty()) {
+                channel = unordered[i];
+            }
+        }
+        if(channel == null) {
+            return true; //woken to schedule a sampling interval
+        }
+        Task task = channel.queue.poll();
+        if(task == STOP) {
+            return false;
+        }
+        try {
+            task.action.run();
+        } catch (RuntimeException e) {
+            //a failing event must not stop the lanes
+            channel.failed.incrementAndGet();
+            log.error("{} event failed", channel.name, e);
+            return true;
+        }
+        channel.latency.record(System.nanoTime() - task.submitted);
+        return true;
+    }
+
+    /**
+     * The alarm lane or sensor type whose next task has the lowest sequence number, or null
+     * if all are empty. Only the dispatcher takes tasks, so the head stays until it runs.
+     */
+    private Channel nextOrdered() {
+        Channel next = null;
+        long lowest = Long.MAX_VALUE;
+        for(Channel channel : ordered) {
+            Task head = channel.queue.peek();
+            if(head != null && head.sequence < lowest) {
+                next = channel;
+                lowest = head.sequence;
+            }
+        }
+        return next;
+    }
+
+    private static class Task {
+        private final Runnable action;
+        private final long submitted;
+        //position among the alarm lane and sensor events
+        private final long sequence;
+
+        Task(Runnable action, long submitted, long sequence) {
+            this.action = action;
+            this.submitted = submitted;
+            this.sequence = sequence;
+        }
+    }
+
+    private static class Channel {
+        private final String name;
+        private final BlockingQueue<Task> queue;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong received = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        Channel(String name, int capacity) {
+            this.name = name;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+
+    /**
+     * Pending samples of one sampled sensor type, at most one per sensor.
+     */
+    private static class Sampler {
+        private final long intervalNanos;
+        private final ConcurrentHashMap<UUID, Sample> samples = new ConcurrentHashMap<>();
+        private final AtomicLong flushAt = new AtomicLong(NOT_SCHEDULED);
+
+        Sampler(long intervalNanos) {
+            this.intervalNanos = intervalNanos;
+        }
+
+        /**
+         * @return True if this event started a new interval
+         */
+        boolean add(Sensor sensor, boolean active, long now, long sequence) {
+            samples.compute(sensor.getSensorId(), (id, sample) -> (sample == null ? new Sample(sensor, now, sequence) : sample).add(active));
+            return flushAt.compareAndSet(NOT_SCHEDULED, now + intervalNanos);
+        }
+    }
+
+    /**
+     * The events of one sensor within an interval: whether it was activated, and its latest state.
+     */
+    private static class Sample {
+        private final Sensor sensor;
+        private final long firstSubmitted;
+        //sequence number of the first event
+        private final long sequence;
+        private boolean activated;
+        private boolean active;
+
+        Sample(Sensor sensor, long firstSubmitted, long sequence) {
+            this.sensor = sensor;
+            this.firstSubmitted = firstSubmitted;
+            this.sequence = sequence;
+        }
+
+        Sample add(boolean active) {
+            this.activated |= active;
+            this.active = active;
+            return this;
+        }
+
+        Sample merge(Sample later) {
+            this.activated |= later.activated;
+            this.active = later.active;
+            return this;
+        }
+    }
+}
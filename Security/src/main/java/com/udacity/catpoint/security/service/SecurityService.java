@@ -1,16 +1,25 @@
 package com.udacity.catpoint.security.service;
 
 import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.security.application.SecurityEventListener;
+import com.udacity.catpoint.security.application.SecurityEventPublisher;
 import com.udacity.catpoint.security.application.StatusListener;
 import com.udacity.catpoint.security.data.AlarmStatus;
 import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.SecurityEvent;
 import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.SecurityState;
 import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
 
 import java.awt.image.BufferedImage;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
  * Service that receives information about changes to the security system. Responsible for
@@ -18,16 +27,65 @@ import java.util.Set;
  *
  * This is the class that should contain most of the business logic for our system, and it is the
  * class you will be writing unit tests for.
+ *
+ * State changes are synchronized on the service so it can be driven from the GUI and from
+ * background threads (such as a live camera feed) at the same time. Image classification
+ * runs outside the lock. Each operation's repository changes form one group (see
+ * {@link SecurityRepository#beginChanges()}), and the operation waits for them to be
+ * committed only after releasing the lock.
+ *
+ * Every alarm status change, sensor activation change, sensor added or removed and image
+ * verdict is also published as
+ * a {@link SecurityEvent} to the registered {@link SecurityEventListener}s, for example to
+ * record the history of the system. {@link #getEventPublisher()} offers the same events as a
+ * {@link java.util.concurrent.Flow.Publisher} with per-subscriber backpressure.
+ *
+ * When an {@link AlarmRuleEngine} is installed, its rules decide how sensor activations and
+ * cats raise the alarm instead of the built-in rules. Deactivation and disarming still lower
+ * the alarm as before.
+ *
+ * With {@link AlarmDelays} set, a pending alarm escalates on its own once the entry delay of
+ * the arming status has passed, and activations are ignored during the exit delay after
+ * arming. Countdowns run on a shared {@link HashedTimingWheel}, so they cost no thread per
+ * system.
+ *
+ * With a {@link CatVerdictSmoother} set, images are scored by their cat confidence and the
+ * cat status only changes when the smoothed verdict of the camera does, instead of following
+ * every frame.
+ *
+ * To keep sensor events from waiting behind camera frames, drive the service through a
+ * {@link PrioritySecurityExecutor}, which applies them ahead of image verdicts and aggregates
+ * chatty sensor types as configured by {@link SensorPaths}.
  */
 
 public class SecurityService {
+    //camera of images processed without a camera id
+    public static final String DEFAULT_CAMERA = SecurityRepository.DEFAULT_CAMERA;
+
     private ImageService imageService;
     private SecurityRepository securityRepository;
-    private Set<StatusListener> statusListeners = new HashSet<>();
+    private Set<StatusListener> statusListeners = new CopyOnWriteArraySet<>();
+    private Set<SecurityEventListener> eventListeners = new CopyOnWriteArraySet<>();
+    private final Clock clock;
+    private AlarmRuleEngine alarmRules;
+    private SecurityEventPublisher eventPublisher;
+    private AlarmDelays alarmDelays = AlarmDelays.NONE;
+    private HashedTimingWheel timers;
+    private HashedTimingWheel.Timeout entryCountdown;
+    private HashedTimingWheel.Timeout exitCountdown;
+    private volatile CatVerdictSmoother verdictSmoother;
 
     public SecurityService(SecurityRepository securityRepository, ImageService imageService) {
+        this(securityRepository, imageService, Clock.systemUTC());
+    }
+
+    /**
+     * @param clock Clock used to timestamp published events
+     */
+    public SecurityService(SecurityRepository securityRepository, ImageService imageService, Clock clock) {
         this.securityRepository = securityRepository;
         this.imageService = imageService;
+        this.clock = clock;
     }
 
     /**
@@ -36,6 +94,10 @@ public class SecurityService {
      * @param armingStatus
      */
     public void setArmingStatus(ArmingStatus armingStatus) {
+        change(() -> applyArmingStatus(armingStatus));
+    }
+
+    private void applyArmingStatus(ArmingStatus armingStatus) {
         if(armingStatus == ArmingStatus.DISARMED) {
             setAlarmStatus(AlarmStatus.NO_ALARM);
         }
@@ -46,6 +108,10 @@ public class SecurityService {
             resetSensors();
         }
         securityRepository.setArmingStatus(armingStatus);
+        if(!eventListeners.isEmpty()) {
+            publish(SecurityEvent.armingStatusChanged(clock.millis(), armingStatus));
+        }
+        startExitCountdown(armingStatus);
     }
 
     /**
@@ -54,7 +120,9 @@ public class SecurityService {
      * @param cat True if a cat is detected, otherwise false.
      */
     private boolean catDetected(Boolean cat) {
-        if(cat && getArmingStatus() == ArmingStatus.ARMED_HOME) {
+        if(cat && alarmRules != null) {
+            raiseAlarm(alarmRules.catDetected(getArmingStatus()));
+        } else if(cat && getArmingStatus() == ArmingStatus.ARMED_HOME) {
             setAlarmStatus(AlarmStatus.ALARM);
         } else if(!cat && checkAllSensorsStatus(false)) {
             setAlarmStatus(AlarmStatus.NO_ALARM);
@@ -64,6 +132,94 @@ public class SecurityService {
         return cat;
     }
 
+    /**
+     * Replaces the built-in rules for raising the alarm with configured ones.
+     * @param alarmRules The rules to use, or null to go back to the built-in rules
+     */
+    public synchronized void setAlarmRules(AlarmRuleEngine alarmRules) {
+        this.alarmRules = alarmRules;
+    }
+
+    /**
+     * Sets the entry and exit delays, replacing any running countdowns.
+     * @param alarmDelays The delays to use
+     * @param timers Wheel running the countdowns, or null to disable the delays
+     */
+    public synchronized void setAlarmDelays(AlarmDelays alarmDelays, HashedTimingWheel timers) {
+        cancelCountdowns();
+        this.alarmDelays = alarmDelays;
+        this.timers = timers;
+        if(getAlarmStatus() == AlarmStatus.PENDING_ALARM) {
+            startEntryCountdown();
+        }
+    }
+
+    private void startEntryCountdown() {
+        Duration delay = alarmDelays.getEntryDelay(getArmingStatus());
+        if(timers != null && delay != null && entryCountdown == null) {
+            entryCountdown = timers.schedule(this::entryDelayExpired, delay);
+        }
+    }
+
+    private void startExitCountdown(ArmingStatus armingStatus) {
+        if(exitCountdown != null) {
+            exitCountdown.cancel();
+            exitCountdown = null;
+        }
+        Duration delay = alarmDelays.getExitDelay(armingStatus);
+        if(timers != null && delay != null && armingStatus != ArmingStatus.DISARMED) {
+            exitCountdown = timers.schedule(this::exitDelayExpired, delay);
+        }
+    }
+
+    private void cancelCountdowns() {
+        if(entryCountdown != null) {
+            entryCountdown.cancel();
+            entryCountdown = null;
+        }
+        if(exitCountdown != null) {
+            exitCountdown.cancel();
+            exitCountdown = null;
+        }
+    }
+
+    /**
+     * Escalates the alarm if it is still pending. A countdown that was replaced while this
+     * task waited for the lock is not expired, so it is ignored.
+     */
+    private synchronized void entryDelayExpired() {
+        if(entryCountdown == null || !entryCountdown.isExpired()) {
+            return;
+        }
+        entryCountdown = null;
+        if(getAlarmStatus() == AlarmStatus.PENDING_ALARM && getArmingStatus() != ArmingStatus.DISARMED) {
+            setAlarmStatus(AlarmStatus.ALARM);
+        }
+    }
+
+    /**
+     * Ends the exit delay; sensors left active by then raise the alarm like a new activation.
+     */
+    private synchronized void exitDelayExpired() {
+        if(exitCountdown == null || !exitCountdown.isExpired()) {
+            return;
+        }
+        exitCountdown = null;
+        if(getArmingStatus() != ArmingStatus.DISARMED && getAlarmStatus() == AlarmStatus.NO_ALARM
+                && !checkAllSensorsStatus(false)) {
+            setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        }
+    }
+
+    /**
+     * Sets the alarm status demanded by a rule, unless the alarm is already at least as high.
+     */
+    private void raiseAlarm(AlarmStatus status) {
+        if(status != null && status.ordinal() > securityRepository.getAlarmStatus().ordinal()) {
+            setAlarmStatus(status);
+        }
+    }
+
     /**
      * Register the StatusListener for alarm system updates from within the SecurityService.
      * @param statusListener
@@ -76,13 +232,53 @@ public class SecurityService {
         statusListeners.remove(statusListener);
     }
 
+    /**
+     * Register a listener receiving every individual security event.
+     */
+    public void addEventListener(SecurityEventListener eventListener) {
+        eventListeners.add(eventListener);
+    }
+
+    public void removeEventListener(SecurityEventListener eventListener) {
+        eventListeners.remove(eventListener);
+    }
+
+    /**
+     * Returns the publisher of this service's events, registering it on first use. Slow
+     * subscribers lose events instead of delaying the service.
+     */
+    public synchronized SecurityEventPublisher getEventPublisher() {
+        if(eventPublisher == null) {
+            eventPublisher = new SecurityEventPublisher();
+            addEventListener(eventPublisher);
+        }
+        return eventPublisher;
+    }
+
+    private void publish(SecurityEvent event) {
+        eventListeners.forEach(el -> el.onEvent(event));
+    }
+
     /**
      * Change the alarm status of the system and notify all listeners.
      * @param status
      */
     public void setAlarmStatus(AlarmStatus status) {
+        change(() -> applyAlarmStatus(status));
+    }
+
+    private void applyAlarmStatus(AlarmStatus status) {
         securityRepository.setAlarmStatus(status);
+        if(status == AlarmStatus.PENDING_ALARM) {
+            startEntryCountdown();
+        } else if(entryCountdown != null) {
+            entryCountdown.cancel();
+            entryCountdown = null;
+        }
         statusListeners.forEach(sl -> sl.notify(status));
+        if(!eventListeners.isEmpty()) {
+            publish(SecurityEvent.alarmStatusChanged(clock.millis(), status));
+        }
     }
 
     /**
@@ -125,13 +321,27 @@ public class SecurityService {
      * @param active
      */
     public void changeSensorActivationStatus(Sensor sensor, Boolean active) {
+        change(() -> applySensorActivationStatus(sensor, active));
+    }
+
+    private void applySensorActivationStatus(Sensor sensor, Boolean active) {
         boolean previousState = sensor.getActive();
         sensor.setActive(active);
         securityRepository.updateSensor(sensor);
+        if(!eventListeners.isEmpty()) {
+            publish(SecurityEvent.sensorActivationChanged(clock.millis(), sensor.getSensorId(), active));
+        }
+        statusListeners.forEach(sl -> sl.sensorStatusChanged(sensor));
 
         if(securityRepository.getAlarmStatus() == AlarmStatus.ALARM){
             return;
         }
+        else if(active && exitCountdown != null){
+            return; //still leaving, the exit delay has not passed
+        }
+        else if(active && alarmRules != null){
+            raiseAlarm(alarmRules.sensorActivated(sensor, securityRepository.getArmingStatus(), clock.millis()));
+        }
         else if(active){
             handleSensorActivated(previousState);
         }
@@ -145,7 +355,16 @@ public class SecurityService {
     }
 
     private void resetSensors(){
-        getSensors().stream().forEach(s -> s.setActive(false));
+        List<Sensor> activeSensors = getSensors().stream().filter(Sensor::getActive).toList();
+        activeSensors.forEach(s -> s.setActive(false));
+        securityRepository.updateSensors(activeSensors);
+        if(!eventListeners.isEmpty()) {
+            long now = clock.millis();
+            activeSensors.forEach(s -> publish(SecurityEvent.sensorActivationChanged(now, s.getSensorId(), false)));
+        }
+        if(!activeSensors.isEmpty()) {
+            statusListeners.forEach(StatusListener::sensorStatusChanged);
+        }
     }
 
     /**
@@ -154,7 +373,83 @@ public class SecurityService {
      * @param currentCameraImage
      */
     public void processImage(BufferedImage currentCameraImage) {
-        setIsCatDetected(catDetected(imageService.imageContainsCat(currentCameraImage, 50.0f)));
+        processImage(DEFAULT_CAMERA, currentCameraImage);
+    }
+
+    /**
+     * Processes an image from one of several cameras. A camera that sees no cat only clears
+     * its own cat; the system sees a cat as long as any camera does.
+     */
+    public void processImage(String cameraId, BufferedImage currentCameraImage) {
+        processCatConfidence(cameraId, scoreImage(currentCameraImage));
+    }
+
+    /**
+     * Classifies an image without changing any state, for callers that apply the score later
+     * through {@link #processCatConfidence(String, float)}. Without a smoother the image
+     * service only tells cat or no cat, scored as 100 or 0.
+     */
+    float scoreImage(BufferedImage image) {
+        CatVerdictSmoother smoother = verdictSmoother;
+        if(smoother == null) {
+            return imageService.imageContainsCat(image, 50.0f) ? 100 : 0;
+        }
+        //every confidence counts, the smoother averages low ones in before it applies its thresholds
+        return imageService.classify(image, 0).getCatConfidence();
+    }
+
+    /**
+     * Smooths cat confidences per camera before they change the cat status.
+     * @param verdictSmoother The smoother to use, or null to follow every frame's verdict
+     */
+    public synchronized void setVerdictSmoother(CatVerdictSmoother verdictSmoother) {
+        this.verdictSmoother = verdictSmoother;
+    }
+
+    /**
+     * Updates the alarm status for an image that has already been scored. Without a
+     * {@link CatVerdictSmoother}, a confidence of 50 or more is a cat.
+     * @param confidence Cat confidence of the image, from 0 to 100
+     */
+    public void processCatConfidence(String cameraId, float confidence) {
+        change(() -> applyCatConfidence(cameraId, confidence));
+    }
+
+    private void applyCatConfidence(String cameraId, float confidence) {
+        if(verdictSmoother == null) {
+            processCatVerdict(cameraId, confidence >= 50.0f);
+            return;
+        }
+        boolean cat = verdictSmoother.update(cameraId, confidence);
+        if(cat != securityRepository.isCatDetected(cameraId)) {
+            processCatVerdict(cameraId, cat);
+        }
+    }
+
+    /**
+     * Updates the alarm status for an image that has already been classified, for callers
+     * that run the image service themselves.
+     * @param cat True if the image contains a cat, otherwise false.
+     */
+    public void processCatVerdict(boolean cat) {
+        processCatVerdict(DEFAULT_CAMERA, cat);
+    }
+
+    /**
+     * Updates the alarm status for a classified image from one camera. The alarm and the
+     * published events follow whether any camera sees a cat.
+     */
+    public void processCatVerdict(String cameraId, boolean cat) {
+        change(() -> applyCatVerdict(cameraId, cat));
+    }
+
+    private void applyCatVerdict(String cameraId, boolean cat) {
+        securityRepository.setCatDetected(cameraId, cat);
+        boolean anyCat = securityRepository.getCatCameraCount() > 0;
+        if(!eventListeners.isEmpty()) {
+            publish(SecurityEvent.catVerdict(clock.millis(), anyCat));
+        }
+        catDetected(anyCat);
     }
 
     public AlarmStatus getAlarmStatus() {
@@ -165,12 +460,51 @@ public class SecurityService {
         return securityRepository.getSensors();
     }
 
+    /**
+     * Returns the alarm status, arming status, cat verdict and sensors as one consistent,
+     * immutable snapshot. Safe to call from any thread without holding the service lock.
+     */
+    public SecurityState getState() {
+        return securityRepository.getState();
+    }
+
+    /**
+     * Returns the sensors matching all provided filters, in display order.
+     * @param type Sensor type to match, or null for any type
+     * @param active Activation status to match, or null for any status
+     * @param namePrefix Prefix the sensor name must start with, or null/empty for any name
+     */
+    public List<Sensor> findSensors(SensorType type, Boolean active, String namePrefix) {
+        return securityRepository.findSensors(type, active, namePrefix);
+    }
+
+    public int getSensorCount() {
+        return securityRepository.getSensorCount();
+    }
+
+    /**
+     * Completes once the repository has loaded all stored sensors.
+     */
+    public CompletableFuture<Void> getSensorsLoaded() {
+        return securityRepository.getSensorsLoaded();
+    }
+
     public void addSensor(Sensor sensor) {
-        securityRepository.addSensor(sensor);
+        change(() -> {
+            securityRepository.addSensor(sensor);
+            if(!eventListeners.isEmpty()) {
+                publish(SecurityEvent.sensorAdded(clock.millis(), sensor));
+            }
+        });
     }
 
     public void removeSensor(Sensor sensor) {
-        securityRepository.removeSensor(sensor);
+        change(() -> {
+            securityRepository.removeSensor(sensor);
+            if(!eventListeners.isEmpty()) {
+                publish(SecurityEvent.sensorRemoved(clock.millis(), sensor));
+            }
+        });
     }
 
     public ArmingStatus getArmingStatus() {
@@ -182,6 +516,26 @@ public class SecurityService {
     }
 
     public void setIsCatDetected(boolean status){
-        securityRepository.setIsCatDetected(status);
+        change(() -> securityRepository.setIsCatDetected(status));
+    }
+
+    /**
+     * Runs a change of the system state under the service lock as one group of repository
+     * changes, then waits for the repository to commit it after releasing the lock, so
+     * concurrent operations can share a disk write. A change nested in another one, or made
+     * while the caller holds the lock, is committed with the outer one and not waited for.
+     */
+    private void change(Runnable change) {
+        synchronized(this) {
+            securityRepository.beginChanges();
+            try {
+                change.run();
+            } finally {
+                securityRepository.endChanges();
+            }
+        }
+        if(!Thread.holdsLock(this)) {
+            securityRepository.awaitChanges();
+        }
     }
 }
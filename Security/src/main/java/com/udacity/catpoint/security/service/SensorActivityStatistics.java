@@ -0,0 +1,155 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.application.SecurityEventListener;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.SecurityEvent;
+import com.udacity.catpoint.security.data.SecurityEventType;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Rolling activity statistics fed from the events published by {@link SecurityService}: per
+ * sensor activation counts and mean time active, and the number of alarms, over the last
+ * minute, hour and day. Totals are kept in fixed rings of time slots, so queries are O(1) and
+ * memory only grows with the number of sensors, never with time. Use it to find chatty sensors.
+ *
+ * Time active is counted when a sensor is deactivated, so a sensor that is still active does
+ * not count towards its mean yet.
+ */
+public class SensorActivityStatistics implements SecurityEventListener {
+
+    /**
+     * The sliding windows statistics are kept for, with the number of slots each is divided in.
+     */
+    public enum Window {
+        MINUTE(Duration.ofMinutes(1), 12),
+        HOUR(Duration.ofHours(1), 12),
+        DAY(Duration.ofDays(1), 24);
+
+        private final Duration length;
+        private final int slots;
+
+        Window(Duration length, int slots) {
+            this.length = length;
+            this.slots = slots;
+        }
+
+        public Duration getLength() {
+            return length;
+        }
+    }
+
+    //sensor metrics
+    private static final int ACTIVATIONS = 0;
+    private static final int ACTIVE_PERIODS = 1;
+    private static final int ACTIVE_MILLIS = 2;
+
+    private final Clock clock;
+    private final Map<UUID, SensorActivity> sensors = new HashMap<>();
+    private final SlidingWindow[] alarms = newWindows(1);
+
+    public SensorActivityStatistics(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized void onEvent(SecurityEvent event) {
+        long time = event.getTimestamp();
+        if(event.getType() == SecurityEventType.SENSOR_ACTIVATED) {
+            SensorActivity activity = sensors.computeIfAbsent(event.getSensorId(), id -> new SensorActivity());
+            add(activity.windows, time, ACTIVATIONS, 1);
+            if(activity.activeSince == Long.MIN_VALUE) {
+                activity.activeSince = time;
+            }
+        } else if(event.getType() == SecurityEventType.SENSOR_DEACTIVATED) {
+            SensorActivity activity = sensors.get(event.getSensorId());
+            if(activity != null && activity.activeSince != Long.MIN_VALUE) {
+                add(activity.windows, time, ACTIVE_PERIODS, 1);
+                add(activity.windows, time, ACTIVE_MILLIS, Math.max(0, time - activity.activeSince));
+                activity.activeSince = Long.MIN_VALUE;
+            }
+        } else if(event.getType() == SecurityEventType.ALARM_STATUS_CHANGED && event.getAlarmStatus() == AlarmStatus.ALARM) {
+            add(alarms, time, 0, 1);
+        }
+    }
+
+    /**
+     * Number of times the sensor was activated within the window.
+     */
+    public synchronized long getActivationCount(UUID sensorId, Window window) {
+        return sensorTotal(sensorId, window, ACTIVATIONS);
+    }
+
+    /**
+     * Mean length of the sensor's active periods that ended within the window, in milliseconds,
+     * or NaN if none did.
+     */
+    public synchronized double getMeanActiveMillis(UUID sensorId, Window window) {
+        long periods = sensorTotal(sensorId, window, ACTIVE_PERIODS);
+        return periods == 0 ? Double.NaN : (double) sensorTotal(sensorId, window, ACTIVE_MILLIS) / periods;
+    }
+
+    /**
+     * Number of times the alarm went off within the window.
+     */
+    public synchronized long getAlarmCount(Window window) {
+        return alarms[window.ordinal()].total(clock.millis(), 0);
+    }
+
+    public synchronized double getAlarmsPerHour(Window window) {
+        return getAlarmCount(window) * (double) Duration.ofHours(1).toMillis() / window.length.toMillis();
+    }
+
+    /**
+     * Returns the sensors activated most often within the window, most active first. This
+     * looks at every known sensor.
+     */
+    public synchronized List<UUID> getMostActiveSensors(Window window, int limit) {
+        long now = clock.millis();
+        return sensors.entrySet().stream()
+                .filter(e -> e.getValue().windows[window.ordinal()].total(now, ACTIVATIONS) > 0)
+                .sorted(Comparator.comparingLong(
+                        (Map.Entry<UUID, SensorActivity> e) -> e.getValue().windows[window.ordinal()].total(now, ACTIVATIONS)).reversed())
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    /**
+     * Drops the statistics of a sensor, for example after it was removed.
+     */
+    public synchronized void forgetSensor(UUID sensorId) {
+        sensors.remove(sensorId);
+    }
+
+    private long sensorTotal(UUID sensorId, Window window, int metric) {
+        SensorActivity activity = sensors.get(sensorId);
+        return activity == null ? 0 : activity.windows[window.ordinal()].total(clock.millis(), metric);
+    }
+
+    private static void add(SlidingWindow[] windows, long time, int metric, long amount) {
+        for(SlidingWindow window : windows) {
+            window.add(time, metric, amount);
+        }
+    }
+
+    private static SlidingWindow[] newWindows(int metrics) {
+        Window[] values = Window.values();
+        SlidingWindow[] windows = new SlidingWindow[values.length];
+        for(Window window : values) {
+            windows[window.ordinal()] = new SlidingWindow(window.length.toMillis(), window.slots, metrics);
+        }
+        return windows;
+    }
+
+    private static class SensorActivity {
+        private final SlidingWindow[] windows = newWindows(3);
+        private long activeSince = Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,77 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.SensorType;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * How a {@link PrioritySecurityExecutor} processes the events of each sensor type. Immediate
+ * types have every event applied on its own. Sampled types, meant for chatty sensors like
+ * motion detectors, are aggregated per sensor over a sampling interval: however often a
+ * sensor flips within the interval, it is applied as at most one activation followed by its
+ * latest state. Either way events keep the order they were submitted in, along with arming
+ * changes; a sample is applied in place of its first event.
+ *
+ * Declared as comma separated {@code TYPE=millis} entries, for example {@code MOTION=250};
+ * a type sampled every 0 ms or not listed is immediate.
+ */
+public final class SensorPaths {
+
+    /**
+     * Motion sensors sampled every 250 ms, doors and windows immediate.
+     */
+    public static final SensorPaths DEFAULT = new SensorPaths(Map.of(SensorType.MOTION, Duration.ofMillis(250)));
+
+    private final Duration[] samplingIntervals = new Duration[SensorType.values().length];
+
+    /**
+     * @param samplingIntervals Sampling interval of each sampled type
+     * @throws IllegalArgumentException if an interval is negative
+     */
+    public SensorPaths(Map<SensorType, Duration> samplingIntervals) {
+        for(SensorType type : SensorType.values()) {
+            Duration interval = samplingIntervals.getOrDefault(type, Duration.ZERO);
+            if(interval.isNegative()) {
+                throw new IllegalArgumentException("Negative sampling interval for " + type);
+            }
+            this.samplingIntervals[type.ordinal()] = interval;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the declaration is not valid
+     */
+    public static SensorPaths parse(String declaration) {
+        Map<SensorType, Duration> intervals = new EnumMap<>(SensorType.class);
+        for(String entry : declaration.split(",")) {
+            if(entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split("=");
+            if(parts.length != 2) {
+                throw new IllegalArgumentException("Invalid sensor path: " + entry.trim());
+            }
+            try {
+                intervals.put(SensorType.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)),
+                        Duration.ofMillis(Long.parseLong(parts[1].trim())));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid sensor path: " + entry.trim(), e);
+            }
+        }
+        return new SensorPaths(intervals);
+    }
+
+    public boolean isSampled(SensorType type) {
+        return !samplingIntervals[type.ordinal()].isZero();
+    }
+
+    /**
+     * Interval the type's events are aggregated over, zero for immediate types.
+     */
+    public Duration getSamplingInterval(SensorType type) {
+        return samplingIntervals[type.ordinal()];
+    }
+}
@@ -0,0 +1,232 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs the alarm logic of many sites on a fixed number of worker shards. Each site is hashed
+ * onto one shard, and a shard's thread is the only one that ever touches the state of its
+ * sites, so shards never contend with each other. Events are queued to the owning shard and
+ * applied in the order they were submitted for that site. An event that throws is logged and
+ * counted per shard, and the shard goes on with the next event.
+ *
+ * Image classification is not run on the shards: {@link #processImage(String, BufferedImage)}
+ * classifies on the calling thread and only routes the verdict.
+ */
+public class ShardedSecurityEngine implements AutoCloseable {
+
+    private final ImageService imageService;
+    private final Shard[] shards;
+
+    /**
+     * @param shardCount Number of worker shards, typically the number of cores
+     * @param queueCapacity Events each shard may have queued before submitters block
+     * @param repositoryFactory Creates the repository of a site on first use
+     * @param imageService Classifies the images passed to {@link #processImage(String, BufferedImage)}
+     */
+    public ShardedSecurityEngine(int shardCount, int queueCapacity,
+                                 Function<String, SecurityRepository> repositoryFactory, ImageService imageService) {
+        this.imageService = imageService;
+        this.shards = new Shard[shardCount];
+        for(int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, queueCapacity, repositoryFactory, imageService);
+            shards[i].start();
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the shard owning the site.
+     */
+    public int shardOf(String siteId) {
+        int h = siteId.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), shards.length);
+    }
+
+    /**
+     * Number of events that threw on the shard, which leaves their site's alarm state as it
+     * was before the event.
+     */
+    public long getFailedEventCount(int shard) {
+        return shards[shard].failed.get();
+    }
+
+    /**
+     * Queues an event for a site. The event runs on the site's shard thread with exclusive access
+     * to the site's service. Blocks while the shard's queue is full.
+     */
+    public void submit(String siteId, Consumer<SecurityService> event) throws InterruptedException {
+        Shard shard = shards[shardOf(siteId)];
+        shard.queue.put(() -> event.accept(shard.site(siteId).service));
+    }
+
+    public void addSensor(String siteId, Sensor sensor) throws InterruptedException {
+        submit(siteId, service -> service.addSensor(sensor));
+    }
+
+    /**
+     * Removes a sensor of a site by id. Unknown ids are ignored.
+     */
+    public void removeSensor(String siteId, UUID sensorId) throws InterruptedException {
+        Shard shard = shards[shardOf(siteId)];
+        shard.queue.put(() -> {
+            Site site = shard.site(siteId);
+            Sensor sensor = site.sensors.get(sensorId);
+            if(sensor != null) {
+                site.service.removeSensor(sensor);
+            }
+        });
+    }
+
+    public void changeSensorActivationStatus(String siteId, UUID sensorId, boolean active) throws InterruptedException {
+        Shard shard = shards[shardOf(siteId)];
+        shard.queue.put(() -> {
+            Site site = shard.site(siteId);
+            Sensor sensor = site.sensors.get(sensorId);
+            if(sensor != null) {
+                site.service.changeSensorActivationStatus(sensor, active);
+            }
+        });
+    }
+
+    public void setArmingStatus(String siteId, ArmingStatus armingStatus) throws InterruptedException {
+        submit(siteId, service -> service.setArmingStatus(armingStatus));
+    }
+
+    /**
+     * Classifies the image on the calling thread, then routes the verdict to the site's shard.
+     */
+    public void processImage(String siteId, BufferedImage image) throws InterruptedException {
+        boolean cat = imageService.imageContainsCat(image, 50.0f);
+        submit(siteId, service -> service.processCatVerdict(cat));
+    }
+
+    /**
+     * Blocks until every event submitted before this call has been applied.
+     */
+    public void awaitQuiescence() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(shards.length);
+        for(Shard shard : shards) {
+            shard.queue.put(latch::countDown);
+        }
+        latch.await();
+    }
+
+    /**
+     * Applies all queued events, then stops the shard threads. If interrupted, stops the
+     * shards without applying the remaining events and returns with the interrupt flag set.
+     */
+    @Override
+    public void close() {
+        try {
+            for(Shard shard : shards) {
+                shard.queue.put(Shard.STOP);
+            }
+            for(Shard shard : shards) {
+                shard.join();
+            }
+        } catch (InterruptedException e) {
+            for(Shard shard : shards) {
+                shard.interrupt();
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A site's service and its sensors by id. The service records every sensor added or
+     * removed through it, including by events passed to {@link #submit(String, Consumer)}.
+     */
+    private static class Site {
+        private final SecurityService service;
+        private final Map<UUID, Sensor> sensors = new HashMap<>();
+
+        Site(SecurityRepository repository, ImageService imageService) {
+            this.service = new SecurityService(repository, imageService) {
+                @Override
+                public synchronized void addSensor(Sensor sensor) {
+                    super.addSensor(sensor);
+                    sensors.put(sensor.getSensorId(), sensor);
+                }
+
+                @Override
+                public synchronized void removeSensor(Sensor sensor) {
+                    super.removeSensor(sensor);
+                    sensors.remove(sensor.getSensorId());
+                }
+            };
+            repository.getSensors().forEach(sensor -> sensors.put(sensor.getSensorId(), sensor));
+        }
+    }
+
+    private static class Shard extends Thread {
+        private static final Runnable STOP = () -> {};
+        private static final int DRAIN_BATCH = 256;
+
+        private final Logger log = LoggerFactory.getLogger(ShardedSecurityEngine.class);
+        private final BlockingQueue<Runnable> queue;
+        private final AtomicLong failed = new AtomicLong();
+        private final Function<String, SecurityRepository> repositoryFactory;
+        private final ImageService imageService;
+        //only accessed by this shard's thread
+        private final Map<String, Site> sites = new HashMap<>();
+
+        Shard(int index, int queueCapacity, Function<String, SecurityRepository> repositoryFactory, ImageService imageService) {
+            super("security-shard-" + index);
+            setDaemon(true);
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.repositoryFactory = repositoryFactory;
+            this.imageService = imageService;
+        }
+
+        Site site(String siteId) {
+            return sites.computeIfAbsent(siteId, id -> new Site(repositoryFactory.apply(id), imageService));
+        }
+
+        @Override
+        public void run() {
+            List<Runnable> batch = new ArrayList<>(DRAIN_BATCH);
+            try {
+                while(true) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, DRAIN_BATCH - 1);
+                    for(Runnable event : batch) {
+                        if(event == STOP) {
+                            return;
+                        }
+                        try {
+                            event.run();
+                        } catch (RuntimeException e) {
+                            //a failing event must not take down the other sites of this shard
+                            failed.incrementAndGet();
+                            log.error("Event failed on {}", getName(), e);
+                        }
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.udacity.catpoint.security.service;
+
+import java.util.Arrays;
+
+/**
+ * Sums of one or more metrics over a window sliding over time, kept in a fixed ring of time
+ * slots. Adding and reading totals are O(1) amortized and memory never grows. The window moves
+ * one slot at a time, so a total covers between {@code slotCount - 1} and {@code slotCount}
+ * slots of history.
+ *
+ * Not thread safe.
+ */
+class SlidingWindow {
+    private final long slotMillis;
+    private final long[][] slots; //[metric][slot]
+    private final long[] totals;
+    private long currentSlot = Long.MIN_VALUE; //absolute slot number, time / slotMillis
+
+    SlidingWindow(long lengthMillis, int slotCount, int metrics) {
+        this.slotMillis = lengthMillis / slotCount;
+        this.slots = new long[metrics][slotCount];
+        this.totals = new long[metrics];
+    }
+
+    /**
+     * Adds to a metric at the given time. Times before the current slot count towards it.
+     */
+    void add(long timestamp, int metric, long amount) {
+        advance(timestamp);
+        slots[metric][slotIndex(currentSlot)] += amount;
+        totals[metric] += amount;
+    }
+
+    long total(long now, int metric) {
+        advance(now);
+        return totals[metric];
+    }
+
+    private void advance(long timestamp) {
+        long slot = Math.floorDiv(timestamp, slotMillis);
+        if(slot <= currentSlot) {
+            return;
+        }
+        int slotCount = slots[0].length;
+        if(currentSlot == Long.MIN_VALUE || slot - currentSlot >= slotCount) {
+            for(long[] metric : slots) {
+                Arrays.fill(metric, 0);
+            }
+            Arrays.fill(totals, 0);
+        } else {
+            for(long s = currentSlot + 1; s <= slot; s++) {
+                int index = slotIndex(s);
+                for(int metric = 0; metric < slots.length; metric++) {
+                    totals[metric] -= slots[metric][index];
+                    slots[metric][index] = 0;
+                }
+            }
+        }
+        currentSlot = slot;
+    }
+
+    private int slotIndex(long slot) {
+        return (int) Math.floorMod(slot, (long) slots[0].length);
+    }
+}
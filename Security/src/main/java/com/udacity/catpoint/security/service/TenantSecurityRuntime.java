@@ -0,0 +1,121 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.SecurityRepository;
+
+import java.awt.image.BufferedImage;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.prefs.Preferences;
+
+/**
+ * Hosts many independent alarm systems ("tenants", e.g. one per home) in a single process.
+ * Every tenant gets its own {@link SecurityService} and repository, created on first use,
+ * so state is fully isolated. Expensive work is shared: image classification runs on one
+ * bounded pool for all tenants, and repositories receive a shared bounded persistence pool
+ * for their writes.
+ */
+public class TenantSecurityRuntime implements AutoCloseable {
+
+    private static final int PERSISTENCE_QUEUE_CAPACITY = 10_000;
+
+    private final ConcurrentHashMap<String, SecurityService> tenants = new ConcurrentHashMap<>();
+    private final BiFunction<String, Executor, SecurityRepository> repositoryFactory;
+    private final ImageService imageService;
+    private final ThreadPoolExecutor classificationPool;
+    private final ThreadPoolExecutor persistencePool;
+
+    /**
+     * @param repositoryFactory Creates the repository of a tenant, given the tenant id and the shared persistence pool
+     * @param imageService Image service shared by all tenants
+     * @param classificationThreads Number of threads classifying images
+     * @param classificationQueueCapacity How many images may wait for classification before new ones are rejected
+     * @param persistenceThreads Number of threads writing repository state
+     */
+    public TenantSecurityRuntime(BiFunction<String, Executor, SecurityRepository> repositoryFactory, ImageService imageService,
+                                 int classificationThreads, int classificationQueueCapacity, int persistenceThreads) {
+        this.repositoryFactory = repositoryFactory;
+        this.imageService = imageService;
+        this.classificationPool = new ThreadPoolExecutor(classificationThreads, classificationThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(classificationQueueCapacity), threadFactory("tenant-classifier"),
+                new ThreadPoolExecutor.AbortPolicy());
+        //persistence must never be dropped, so a full queue, or a pool already shut down, makes the
+        //writer do the work itself; CallerRunsPolicy would silently discard writes after shutdown
+        this.persistencePool = new ThreadPoolExecutor(persistenceThreads, persistenceThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(PERSISTENCE_QUEUE_CAPACITY), threadFactory("tenant-persistence"),
+                (write, pool) -> write.run());
+    }
+
+    /**
+     * Repository factory storing each tenant under its own child node of the provided preferences node.
+     */
+    public static BiFunction<String, Executor, SecurityRepository> preferencesRepositories(Preferences root) {
+        return (tenantId, persistenceExecutor) -> new PretendDatabaseSecurityRepositoryImpl(root.node(tenantId), persistenceExecutor);
+    }
+
+    /**
+     * Returns the security service of a tenant, creating the tenant on first use.
+     */
+    public SecurityService getTenant(String tenantId) {
+        return tenants.computeIfAbsent(tenantId,
+                id -> new SecurityService(repositoryFactory.apply(id, persistencePool), imageService));
+    }
+
+    public void removeTenant(String tenantId) {
+        tenants.remove(tenantId);
+    }
+
+    public Set<String> getTenantIds() {
+        return tenants.keySet();
+    }
+
+    public int getTenantCount() {
+        return tenants.size();
+    }
+
+    /**
+     * Queues an image of a tenant's camera for classification on the shared pool.
+     * @return Completes once the verdict has been applied to the tenant
+     * @throws RejectedExecutionException if the classification queue is full
+     */
+    public CompletableFuture<Void> processImage(String tenantId, BufferedImage image) {
+        SecurityService tenant = getTenant(tenantId);
+        return CompletableFuture.runAsync(() -> tenant.processImage(image), classificationPool);
+    }
+
+    /**
+     * Stops accepting images, then waits for queued classifications and writes to finish. If
+     * interrupted, returns without waiting, with the interrupt flag set; queued writes still run.
+     */
+    @Override
+    public void close() {
+        classificationPool.shutdown();
+        try {
+            classificationPool.awaitTermination(1, TimeUnit.MINUTES);
+            persistencePool.shutdown();
+            persistencePool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            persistencePool.shutdown();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package com.udacity.catpoint.security.simulation;
+
+import com.udacity.catpoint.image.service.ImageService;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Image service returning the verdict recorded in a simulation trace. The simulator sends a
+ * 1x1 image whose pixel is white for a cat, so any other image service can classify the same
+ * images instead.
+ */
+public class ReplayImageService implements ImageService {
+
+    static final BufferedImage CAT = image(0xFFFFFF);
+    static final BufferedImage NO_CAT = image(0x000000);
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        return (image.getRGB(0, 0) & 0xFFFFFF) != 0;
+    }
+
+    private static BufferedImage image(int rgb) {
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, rgb);
+        return image;
+    }
+}
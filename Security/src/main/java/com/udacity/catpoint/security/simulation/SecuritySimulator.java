@@ -0,0 +1,163 @@
+package com.udacity.catpoint.security.simulation;
+
+import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.SecurityService;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a {@link SecurityService} with a simulation trace and reports throughput, latency
+ * percentiles and the final state. Works with any repository and image service; with a
+ * {@link ReplayImageService} the image verdicts recorded in the trace are used.
+ *
+ * Steps are spread round-robin over the requested number of threads. With a single thread
+ * a run is deterministic, so the final state can be checked against a known result. When a
+ * speed is given, steps are started at their trace offsets and latency is measured from the
+ * time a step was due, so time spent waiting behind slow steps is included.
+ */
+public class SecuritySimulator {
+
+    private final SecurityRepository repository;
+    private final ImageService imageService;
+
+    public SecuritySimulator(SecurityRepository repository, ImageService imageService) {
+        this.repository = repository;
+        this.imageService = imageService;
+    }
+
+    /**
+     * Runs the trace against a new service on top of the repository.
+     * @param threads Number of threads applying steps concurrently
+     * @param speed How fast to replay the trace offsets, e.g. 2 for twice as fast, or 0 to
+     *              apply the steps as fast as possible
+     */
+    public SimulationReport run(SimulationTrace trace, int threads, double speed) throws InterruptedException {
+        SecurityService service = new SecurityService(repository, imageService);
+        Sensor[] sensors = new Sensor[trace.getSensorCount()];
+        for(int i = 0; i < sensors.length; i++) {
+            sensors[i] = new Sensor(new UUID(0, i), "Sensor " + i, SensorType.values()[i % SensorType.values().length], false);
+            service.addSensor(sensors[i]);
+        }
+
+        List<SimulationStep> steps = trace.getSteps();
+        long[] latencies = new long[steps.size()];
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] workers = new Thread[threads];
+        long[] start = new long[1];
+        for(int t = 0; t < threads; t++) {
+            int first = t;
+            workers[t] = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                    for(int i = first; i < steps.size(); i += threads) {
+                        SimulationStep step = steps.get(i);
+                        long begin = System.nanoTime();
+                        if(speed > 0) {
+                            long due = start[0] + (long) (step.getOffsetMillis() * 1_000_000 / speed);
+                            while(begin < due) {
+                                LockSupport.parkNanos(due - begin);
+                                begin = System.nanoTime();
+                            }
+                            begin = due;
+                        }
+                        apply(service, sensors, step);
+                        latencies[i] = System.nanoTime() - begin;
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "simulator-" + t);
+            workers[t].start();
+        }
+        ready.await();
+        start[0] = System.nanoTime();
+        go.countDown();
+        for(Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - start[0];
+        if(failure.get() != null) {
+            throw new IllegalStateException("Simulation step failed", failure.get());
+        }
+
+        int active = 0;
+        for(Sensor sensor : sensors) {
+            active += sensor.getActive() ? 1 : 0;
+        }
+        return new SimulationReport(threads, elapsed, latencies, service.getAlarmStatus(), service.getArmingStatus(),
+                service.getIsCatDetected(), active);
+    }
+
+    private static void apply(SecurityService service, Sensor[] sensors, SimulationStep step) {
+        switch(step.getKind()) {
+            case SENSOR -> service.changeSensorActivationStatus(sensors[step.getSensorIndex()], step.getValue());
+            case ARM -> service.setArmingStatus(step.getArmingStatus());
+            case IMAGE -> service.processImage(step.getValue() ? ReplayImageService.CAT : ReplayImageService.NO_CAT);
+        }
+    }
+
+    /**
+     * Runs a simulation against an in-memory repository using the recorded image verdicts.
+     * Options: --trace FILE to replay a trace, otherwise one is generated from --seed (1),
+     * --sensors (100) and --steps (100000) at --rate steps per second (0, no spacing);
+     * --record FILE to save the trace; --threads (1); --speed (0, as fast as possible, or e.g. 1 for real time).
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path tracePath = null;
+        Path recordPath = null;
+        long seed = 1;
+        int sensorCount = 100;
+        int stepCount = 100_000;
+        double rate = 0;
+        int threads = 1;
+        double speed = 0;
+        for(int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch(args[i]) {
+                case "--trace" -> tracePath = Path.of(value);
+                case "--record" -> recordPath = Path.of(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--sensors" -> sensorCount = Integer.parseInt(value);
+                case "--steps" -> stepCount = Integer.parseInt(value);
+                case "--rate" -> rate = Double.parseDouble(value);
+                case "--threads" -> threads = Integer.parseInt(value);
+                case "--speed" -> speed = Double.parseDouble(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        SimulationTrace trace;
+        if(tracePath != null) {
+            try (Reader reader = Files.newBufferedReader(tracePath)) {
+                trace = SimulationTrace.read(reader);
+            }
+        } else {
+            trace = SimulationTrace.generate(seed, sensorCount, stepCount, rate);
+        }
+        if(recordPath != null) {
+            try (Writer writer = Files.newBufferedWriter(recordPath)) {
+                trace.write(writer);
+            }
+        }
+
+        SimulationReport report = new SecuritySimulator(new InMemorySecurityRepositoryImpl(), new ReplayImageService())
+                .run(trace, threads, speed);
+        System.out.println(report);
+    }
+}
@@ -0,0 +1,86 @@
+package com.udacity.catpoint.security.simulation;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+import java.util.Arrays;
+
+/**
+ * Outcome of a simulation run: throughput, latency distribution and the final system state.
+ */
+public final class SimulationReport {
+    private final int steps;
+    private final int threads;
+    private final long elapsedNanos;
+    private final long[] sortedLatencies;
+    private final AlarmStatus alarmStatus;
+    private final ArmingStatus armingStatus;
+    private final boolean catDetected;
+    private final int activeSensors;
+
+    SimulationReport(int threads, long elapsedNanos, long[] latencies, AlarmStatus alarmStatus,
+                     ArmingStatus armingStatus, boolean catDetected, int activeSensors) {
+        this.steps = latencies.length;
+        this.threads = threads;
+        this.elapsedNanos = elapsedNanos;
+        this.sortedLatencies = latencies.clone();
+        Arrays.sort(this.sortedLatencies);
+        this.alarmStatus = alarmStatus;
+        this.armingStatus = armingStatus;
+        this.catDetected = catDetected;
+        this.activeSensors = activeSensors;
+    }
+
+    public int getSteps() {
+        return steps;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getStepsPerSecond() {
+        return steps / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Returns the latency at or below which the given percentage of steps completed.
+     * @param percentile Between 0 and 100
+     */
+    public long getLatencyNanos(double percentile) {
+        if(sortedLatencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, Math.min(sortedLatencies.length - 1, index))];
+    }
+
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    public boolean isCatDetected() {
+        return catDetected;
+    }
+
+    public int getActiveSensors() {
+        return activeSensors;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("""
+                        steps:       %d on %d thread(s) in %.1f ms
+                        throughput:  %.0f steps/s
+                        latency us:  p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f
+                        final state: alarm %s, arming %s, cat %s, %d active sensor(s)""",
+                steps, threads, elapsedNanos / 1e6, getStepsPerSecond(),
+                getLatencyNanos(50) / 1e3, getLatencyNanos(90) / 1e3, getLatencyNanos(99) / 1e3,
+                getLatencyNanos(99.9) / 1e3, getLatencyNanos(100) / 1e3,
+                alarmStatus, armingStatus, catDetected, activeSensors);
+    }
+}
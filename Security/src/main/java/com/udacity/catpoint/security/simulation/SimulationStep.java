@@ -0,0 +1,98 @@
+package com.udacity.catpoint.security.simulation;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+/**
+ * One input to the security system in a simulation trace: a sensor flip, an arming change or
+ * an image verdict, at an offset from the start of the trace.
+ */
+public final class SimulationStep {
+
+    public enum Kind { SENSOR, ARM, IMAGE }
+
+    private final long offsetMillis;
+    private final Kind kind;
+    private final int sensorIndex;
+    private final boolean value;
+    private final ArmingStatus armingStatus;
+
+    private SimulationStep(long offsetMillis, Kind kind, int sensorIndex, boolean value, ArmingStatus armingStatus) {
+        this.offsetMillis = offsetMillis;
+        this.kind = kind;
+        this.sensorIndex = sensorIndex;
+        this.value = value;
+        this.armingStatus = armingStatus;
+    }
+
+    public static SimulationStep sensor(long offsetMillis, int sensorIndex, boolean active) {
+        return new SimulationStep(offsetMillis, Kind.SENSOR, sensorIndex, active, null);
+    }
+
+    public static SimulationStep arm(long offsetMillis, ArmingStatus armingStatus) {
+        return new SimulationStep(offsetMillis, Kind.ARM, -1, false, armingStatus);
+    }
+
+    public static SimulationStep image(long offsetMillis, boolean cat) {
+        return new SimulationStep(offsetMillis, Kind.IMAGE, -1, cat, null);
+    }
+
+    /**
+     * Parses a line written by {@link #toString()}.
+     * @throws IllegalArgumentException if the line is not a valid step
+     */
+    public static SimulationStep parse(String line) {
+        String[] parts = line.trim().split("\\s+");
+        try {
+            long offset = Long.parseLong(parts[0]);
+            return switch(Kind.valueOf(parts[1])) {
+                case SENSOR -> sensor(offset, Integer.parseInt(parts[2]), parseBoolean(parts[3]));
+                case ARM -> arm(offset, ArmingStatus.valueOf(parts[2]));
+                case IMAGE -> image(offset, parseBoolean(parts[2]));
+            };
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid simulation step: " + line, e);
+        }
+    }
+
+    private static boolean parseBoolean(String value) {
+        if(!value.equals("true") && !value.equals("false")) {
+            throw new IllegalArgumentException("Expected true or false but was " + value);
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    public long getOffsetMillis() {
+        return offsetMillis;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Index of the sensor flipped by a {@link Kind#SENSOR} step.
+     */
+    public int getSensorIndex() {
+        return sensorIndex;
+    }
+
+    /**
+     * The new sensor state for {@link Kind#SENSOR}, or the verdict for {@link Kind#IMAGE}.
+     */
+    public boolean getValue() {
+        return value;
+    }
+
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    @Override
+    public String toString() {
+        return offsetMillis + " " + kind + " " + switch(kind) {
+            case SENSOR -> sensorIndex + " " + value;
+            case ARM -> armingStatus.toString();
+            case IMAGE -> String.valueOf(value);
+        };
+    }
+}
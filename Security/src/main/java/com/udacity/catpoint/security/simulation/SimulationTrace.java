@@ -0,0 +1,102 @@
+package com.udacity.catpoint.security.simulation;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * An ordered list of simulation steps over a fixed number of sensors. Traces are generated
+ * from a seed, so the same seed always gives the same trace, or read from a text file with one
+ * step per line. Lines that are empty or start with '#' are ignored.
+ */
+public final class SimulationTrace {
+
+    //share of generated steps per kind, the rest are sensor flips
+    private static final double ARM_SHARE = 0.02;
+    private static final double IMAGE_SHARE = 0.10;
+
+    private final int sensorCount;
+    private final List<SimulationStep> steps;
+
+    public SimulationTrace(int sensorCount, List<SimulationStep> steps) {
+        for(SimulationStep step : steps) {
+            if(step.getKind() == SimulationStep.Kind.SENSOR && (step.getSensorIndex() < 0 || step.getSensorIndex() >= sensorCount)) {
+                throw new IllegalArgumentException("Step uses an unknown sensor: " + step);
+            }
+        }
+        this.sensorCount = sensorCount;
+        this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+    }
+
+    /**
+     * Generates a random trace.
+     * @param stepsPerSecond Rate at which the steps are spaced, or 0 to give all steps offset 0
+     */
+    public static SimulationTrace generate(long seed, int sensorCount, int stepCount, double stepsPerSecond) {
+        Random random = new Random(seed);
+        ArmingStatus[] armingStatuses = ArmingStatus.values();
+        List<SimulationStep> steps = new ArrayList<>(stepCount);
+        for(int i = 0; i < stepCount; i++) {
+            long offset = stepsPerSecond > 0 ? (long) (i * 1000 / stepsPerSecond) : 0;
+            double kind = random.nextDouble();
+            if(kind < ARM_SHARE) {
+                steps.add(SimulationStep.arm(offset, armingStatuses[random.nextInt(armingStatuses.length)]));
+            } else if(kind < ARM_SHARE + IMAGE_SHARE) {
+                steps.add(SimulationStep.image(offset, random.nextInt(4) == 0));
+            } else {
+                steps.add(SimulationStep.sensor(offset, random.nextInt(sensorCount), random.nextBoolean()));
+            }
+        }
+        return new SimulationTrace(sensorCount, steps);
+    }
+
+    /**
+     * Reads a trace written by {@link #write(Writer)}.
+     */
+    public static SimulationTrace read(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        int sensorCount = -1;
+        List<SimulationStep> steps = new ArrayList<>();
+        String line;
+        while((line = lines.readLine()) != null) {
+            if(line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            if(sensorCount < 0) {
+                if(!line.startsWith("sensors ")) {
+                    throw new IOException("Trace must start with a 'sensors <count>' line");
+                }
+                sensorCount = Integer.parseInt(line.substring("sensors ".length()).trim());
+            } else {
+                steps.add(SimulationStep.parse(line));
+            }
+        }
+        if(sensorCount < 0) {
+            throw new IOException("Trace is empty");
+        }
+        return new SimulationTrace(sensorCount, steps);
+    }
+
+    public void write(Writer writer) throws IOException {
+        writer.write("sensors " + sensorCount + "\n");
+        for(SimulationStep step : steps) {
+            writer.write(step + "\n");
+        }
+        writer.flush();
+    }
+
+    public int getSensorCount() {
+        return sensorCount;
+    }
+
+    public List<SimulationStep> getSteps() {
+        return steps;
+    }
+}
@@ -2,11 +2,14 @@ module Security {
     exports com.udacity.catpoint.security.data;
     exports com.udacity.catpoint.security.service;
     exports com.udacity.catpoint.security.application;
+    exports com.udacity.catpoint.security.simulation;
+    exports com.udacity.catpoint.security.push;
     requires Image;
     requires java.desktop;
     requires java.prefs;
     requires com.google.gson;
     requires com.google.common;
+    requires org.slf4j;
 
     opens com.udacity.catpoint.security.data to com.google.gson;
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.SecurityEvent;
+import com.udacity.catpoint.security.data.SecurityEventType;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecurityEventPublisherTest {
+
+    private SecurityService securityService;
+    private Sensor door;
+
+    @BeforeEach
+    void init() {
+        securityService = new SecurityService(new InMemorySecurityRepositoryImpl(), new FakeImageService());
+        door = new Sensor("door", SensorType.DOOR);
+        securityService.addSensor(door);
+    }
+
+    @Test
+    public void subscribe_typeFilter_receivesOnlyThoseTypesInOrder() throws InterruptedException {
+        CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE, 2);
+        securityService.getEventPublisher().subscribe(subscriber,
+                Set.of(SecurityEventType.ARMING_STATUS_CHANGED, SecurityEventType.SENSOR_ACTIVATED));
+
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        securityService.changeSensorActivationStatus(door, true);
+
+        assertTrue(subscriber.received.await(5, TimeUnit.SECONDS));
+        assertEquals(ArmingStatus.ARMED_AWAY, subscriber.events.get(0).getArmingStatus());
+        assertEquals(door.getSensorId(), subscriber.events.get(1).getSensorId());
+        assertEquals(2, subscriber.events.size());
+    }
+
+    @Test
+    public void onEvent_subscriberBufferFull_eventsDroppedWithoutBlocking() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (SecurityEventPublisher publisher = new SecurityEventPublisher(executor, 8)) {
+            securityService.addEventListener(publisher);
+            CollectingSubscriber slow = new CollectingSubscriber(0, 8);
+            publisher.subscribe(slow);
+            slow.subscribed.await(5, TimeUnit.SECONDS);
+
+            for(int i = 0; i < 100; i++) {
+                securityService.changeSensorActivationStatus(door, i % 2 == 0);
+            }
+            assertEquals(92, publisher.getDroppedCount());
+
+            slow.subscription.request(Long.MAX_VALUE);
+            assertTrue(slow.received.await(5, TimeUnit.SECONDS));
+            assertEquals(SecurityEventType.SENSOR_ACTIVATED, slow.events.get(0).getType());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void changeSensorActivationStatus_statusListenersToldSensorsChanged() {
+        AtomicInteger sensorChanges = new AtomicInteger();
+        securityService.addStatusListener(new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+                sensorChanges.incrementAndGet();
+            }
+        });
+
+        securityService.changeSensorActivationStatus(door, true);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME); //resets the active door
+
+        assertEquals(2, sensorChanges.get());
+    }
+
+    private static class CollectingSubscriber implements Flow.Subscriber<SecurityEvent> {
+        private final long initialDemand;
+        private final List<SecurityEvent> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch subscribed = new CountDownLatch(1);
+        private final CountDownLatch received;
+        private volatile Flow.Subscription subscription;
+
+        CollectingSubscriber(long initialDemand, int expected) {
+            this.initialDemand = initialDemand;
+            this.received = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if(initialDemand > 0) {
+                subscription.request(initialDemand);
+            }
+            subscribed.countDown();
+        }
+
+        @Override
+        public void onNext(SecurityEvent event) {
+            events.add(event);
+            received.countDown();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.udacity.catpoint.security.data;
+
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournaledSecurityRepositoryImplTest {
+
+    private static final int CORE_SENSORS = 10;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void reopen_allFieldsAndSensorsRestored() throws IOException {
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        Sensor window = new Sensor("Window", SensorType.WINDOW);
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory)) {
+            repository.addSensor(door);
+            repository.addSensor(window);
+            repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+            door.setActive(true);
+            repository.updateSensor(door);
+            repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+            repository.setIsCatDetected(true);
+            repository.removeSensor(window);
+        }
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory)) {
+            assertEquals(AlarmStatus.PENDING_ALARM, repository.getAlarmStatus());
+            assertEquals(ArmingStatus.ARMED_AWAY, repository.getArmingStatus());
+            assertTrue(repository.isCatDetected());
+            assertEquals(List.of(door), List.copyOf(repository.getSensors()));
+            assertTrue(repository.getSensors().iterator().next().getActive());
+        }
+    }
+
+    @Test
+    public void reopen_catCamerasRestoredFromRecordsAndSnapshots() throws IOException {
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory,
+                StateJournal.Durability.FSYNC, JournaledSecurityRepositoryImpl.DEFAULT_SYNC_INTERVAL, 0)) {
+            repository.setCatDetected("yard", true);
+            repository.setCatDetected("garage", true);
+            repository.setCatDetected("yard", false);
+            for(int i = 0; i < 20; i++) {
+                repository.setCatDetected("porch", i % 2 == 0); //compacts along the way
+            }
+            assertEquals(1, repository.getCatCameraCount());
+        }
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory)) {
+            assertTrue(repository.isCatDetected());
+            assertTrue(repository.isCatDetected("garage"));
+            assertFalse(repository.isCatDetected("yard"));
+            assertEquals(1, repository.getCatCameraCount());
+        }
+    }
+
+    @Test
+    public void reopen_tornOrCorruptTail_committedPrefixRecovered() throws IOException {
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory)) {
+            repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+            repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+            repository.setAlarmStatus(AlarmStatus.ALARM);
+        }
+        Path file = directory.resolve("state.journal");
+        long size = Files.size(file);
+        //the last record is 1 type byte + 1 status byte behind an 8 byte frame; damage its status
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0x7F}), size - 1);
+            //and add half of another frame, as if the process died while writing it
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0}), size);
+        }
+
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory)) {
+            assertEquals(AlarmStatus.PENDING_ALARM, repository.getAlarmStatus());
+            assertEquals(ArmingStatus.ARMED_HOME, repository.getArmingStatus());
+            assertEquals(size - 10, Files.size(file));
+            repository.setIsCatDetected(true);
+        }
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory)) {
+            assertTrue(repository.isCatDetected());
+            assertEquals(AlarmStatus.PENDING_ALARM, repository.getAlarmStatus());
+        }
+    }
+
+    @Test
+    public void concurrentChanges_fsyncsShared() throws Exception {
+        int threads = 8;
+        int changesPerThread = 100;
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory)) {
+            List<Thread> writers = new ArrayList<>();
+            for(int t = 0; t < threads; t++) {
+                Sensor sensor = new Sensor("Sensor " + t, SensorType.MOTION);
+                repository.addSensor(sensor);
+                writers.add(new Thread(() -> {
+                    for(int i = 0; i < changesPerThread; i++) {
+                        sensor.setActive(i % 2 == 0);
+                        repository.updateSensor(sensor);
+                    }
+                }));
+            }
+            long syncsBefore = repository.getJournal().getSyncCount();
+            writers.forEach(Thread::start);
+            for(Thread writer : writers) {
+                writer.join();
+            }
+            long syncs = repository.getJournal().getSyncCount() - syncsBefore;
+            assertTrue(syncs < threads * changesPerThread, syncs + " fsyncs for " + threads * changesPerThread + " changes");
+        }
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory)) {
+            assertEquals(threads, repository.getSensorCount());
+            assertTrue(repository.getSensors().stream().noneMatch(Sensor::getActive));
+        }
+    }
+
+    @Test
+    public void serviceDisarm_alarmAndArmingChanged_oneRecordOneFsync() throws IOException {
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory)) {
+            SecurityService service = new SecurityService(repository, (image, threshold) -> false);
+            service.addSensor(door);
+            service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+            service.changeSensorActivationStatus(door, true);
+            long syncsBefore = repository.getJournal().getSyncCount();
+
+            service.setArmingStatus(ArmingStatus.DISARMED); //alarm status, then arming status
+
+            assertEquals(syncsBefore + 1, repository.getJournal().getSyncCount());
+        }
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory)) {
+            assertEquals(AlarmStatus.NO_ALARM, repository.getAlarmStatus());
+            assertEquals(ArmingStatus.DISARMED, repository.getArmingStatus());
+        }
+    }
+
+    @Test
+    public void concurrentServiceOperations_fsyncsShared() throws Exception {
+        int threads = 8;
+        int changesPerThread = 100;
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory)) {
+            SecurityService service = new SecurityService(repository, (image, threshold) -> false);
+            List<Thread> writers = new ArrayList<>();
+            for(int t = 0; t < threads; t++) {
+                Sensor sensor = new Sensor("Sensor " + t, SensorType.MOTION);
+                service.addSensor(sensor);
+                writers.add(new Thread(() -> {
+                    for(int i = 0; i < changesPerThread; i++) {
+                        service.changeSensorActivationStatus(sensor, i % 2 == 0);
+                    }
+                }));
+            }
+            long syncsBefore = repository.getJournal().getSyncCount();
+            writers.forEach(Thread::start);
+            for(Thread writer : writers) {
+                writer.join();
+            }
+            long syncs = repository.getJournal().getSyncCount() - syncsBefore;
+            //the service lock is not held while waiting, so operations of other threads join the commit
+            assertTrue(syncs < threads * changesPerThread, syncs + " fsyncs for " + threads * changesPerThread + " operations");
+        }
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory)) {
+            assertEquals(threads, repository.getSensorCount());
+            assertTrue(repository.getSensors().stream().noneMatch(Sensor::getActive));
+        }
+    }
+
+    @Test
+    public void otherThreadChanges_whileGroupOpen_waitForGroupToEnd() throws Exception {
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory)) {
+            repository.beginChanges();
+            repository.setAlarmStatus(AlarmStatus.ALARM);
+            Thread other = new Thread(() -> repository.setArmingStatus(ArmingStatus.ARMED_HOME));
+            other.start();
+            other.join(100);
+            assertTrue(other.isAlive());
+            repository.setCatDetected("yard", true);
+            repository.endChanges();
+            repository.awaitChanges();
+            other.join(5_000);
+            assertFalse(other.isAlive());
+        }
+        List<Integer> recordTypes = new ArrayList<>();
+        new StateJournal(directory.resolve("state.journal"), StateJournal.Durability.FSYNC,
+                JournaledSecurityRepositoryImpl.DEFAULT_SYNC_INTERVAL, Long.MAX_VALUE, record -> recordTypes.add(record[0] & 0xFF)).close();
+
+        //the group as one batch record, then the other thread's arming status
+        assertEquals(List.of(9, 2), recordTypes);
+    }
+
+    @Test
+    public void append_afterClose_failsInsteadOfWaitingForever() throws IOException {
+        StateJournal journal;
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory)) {
+            journal = repository.getJournal();
+        }
+
+        CompletableFuture<Void> commit = journal.append(new byte[] {1});
+
+        assertTrue(commit.isCompletedExceptionally());
+    }
+
+    @Test
+    public void manyChanges_journalCompactedAndStateKept() throws IOException {
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory,
+                StateJournal.Durability.PERIODIC, Duration.ofMillis(10), 4096)) {
+            for(int i = 0; i < 5_000; i++) {
+                repository.setAlarmStatus(AlarmStatus.values()[i % 3]);
+            }
+            repository.addSensor(new Sensor("Last", SensorType.DOOR));
+        }
+        //each status change is a 10 byte record, compaction must have dropped most of them
+        assertTrue(Files.size(directory.resolve("state.journal")) < 5_000 * 10 / 2);
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory)) {
+            assertEquals(AlarmStatus.values()[4_999 % 3], repository.getAlarmStatus());
+            assertEquals(1, repository.getSensorCount());
+        }
+    }
+
+    @Test
+    public void processKilledMidWrite_recoversConsistentCommittedState() throws Exception {
+        String classPath = System.getProperty("java.class.path") + File.pathSeparator + System.getProperty("jdk.module.path", "");
+        Process writer = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", classPath, CrashWriter.class.getName(), directory.toString())
+                .redirectErrorStream(true)
+                .start();
+        int acknowledged = -1;
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(writer.getInputStream()))) {
+            String line;
+            while((line = out.readLine()) != null && acknowledged < 300) {
+                acknowledged = Integer.parseInt(line.trim());
+            }
+            writer.destroyForcibly().waitFor();
+        }
+        assertTrue(acknowledged >= 300, "Writer stopped after " + acknowledged + " changes");
+
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory)) {
+            //every change reported as committed survived
+            int added = repository.getSensorCount() - CORE_SENSORS;
+            assertTrue(added > acknowledged, added + " sensors recovered, " + acknowledged + " acknowledged");
+            //a change to several sensors is applied completely or not at all
+            List<Sensor> core = repository.findSensors(SensorType.WINDOW, null, null);
+            assertEquals(CORE_SENSORS, core.size());
+            assertTrue(core.stream().allMatch(s -> s.getActive() == core.get(0).getActive()));
+        }
+    }
+
+    /**
+     * Run in a separate process that is killed while it writes. Prints the number of every
+     * iteration once all its changes are committed.
+     */
+    public static class CrashWriter {
+        public static void main(String[] args) throws IOException {
+            JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(Path.of(args[0]),
+                    StateJournal.Durability.FSYNC, Duration.ofMillis(100), 16 * 1024);
+            List<Sensor> core = new ArrayList<>();
+            for(int i = 0; i < CORE_SENSORS; i++) {
+                core.add(new Sensor(new UUID(1, i), "Window " + i, SensorType.WINDOW, false));
+                repository.addSensor(core.get(i));
+            }
+            for(int i = 0; ; i++) {
+                repository.addSensor(new Sensor(new UUID(2, i), "Motion " + i, SensorType.MOTION, false));
+                boolean active = i % 2 == 0;
+                core.forEach(s -> s.setActive(active));
+                repository.updateSensors(core);
+                System.out.println(i);
+                System.out.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.udacity.catpoint.security.data;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PretendDatabaseSecurityRepositoryImplTest {
+
+    private Preferences prefs;
+
+    @BeforeEach
+    void init() {
+        prefs = Preferences.userRoot().node("catpoint-test-" + System.nanoTime());
+    }
+
+    @AfterEach
+    void cleanUp() throws BackingStoreException {
+        prefs.removeNode();
+    }
+
+    @Test
+    public void newRepository_statusAvailableBeforeSensorsLoaded() {
+        saveSensors(5_000);
+        List<Runnable> loads = new ArrayList<>();
+
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(prefs, Runnable::run, loads::add);
+
+        assertEquals(AlarmStatus.PENDING_ALARM, repository.getAlarmStatus());
+        assertEquals(ArmingStatus.ARMED_AWAY, repository.getArmingStatus());
+        assertEquals(0, repository.getSensorCount());
+        assertFalse(repository.getSensorsLoaded().isDone());
+
+        loads.forEach(Runnable::run);
+
+        assertTrue(repository.getSensorsLoaded().isDone());
+        assertEquals(5_000, repository.getSensorCount());
+        assertEquals(5_000, repository.getSensors().size());
+    }
+
+    @Test
+    public void addSensor_whileLoading_savedOnceLoaded() throws Exception {
+        saveSensors(2_000);
+        List<Runnable> loads = new ArrayList<>();
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(prefs, Runnable::run, loads::add);
+
+        //neither reads nor changes wait for the load
+        String stored = prefs.get("STATE", null);
+        repository.addSensor(new Sensor("Late", SensorType.DOOR));
+        assertEquals(1, repository.getSensors().size());
+        assertEquals(stored, prefs.get("STATE", null));
+
+        CompletableFuture.runAsync(() -> loads.forEach(Runnable::run));
+        repository.getSensorsLoaded().get(5, TimeUnit.SECONDS);
+
+        //the save after the load must contain the loaded sensors as well
+        assertEquals(2_001, repository.getSensorCount());
+        assertEquals(2_001, new PretendDatabaseSecurityRepositoryImpl(prefs, Runnable::run).getSensorCount());
+    }
+
+    @Test
+    public void newRepository_legacyJson_sensorsStreamedAndConverted() {
+        Set<Sensor> sensors = new TreeSet<>();
+        for(int i = 0; i < 40; i++) { //legacy values had to fit in a single preference value
+            sensors.add(new Sensor("Sensor " + i, SensorType.WINDOW));
+        }
+        prefs.put("SENSORS", new Gson().toJson(sensors));
+
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(prefs, Runnable::run);
+        assertEquals(40, repository.getSensorCount());
+
+        repository.addSensor(new Sensor("New", SensorType.DOOR));
+
+        assertNull(prefs.get("SENSORS", null));
+        assertEquals(41, new PretendDatabaseSecurityRepositoryImpl(prefs, Runnable::run).getSensorCount());
+    }
+
+    @Test
+    public void newRepository_corruptSensors_changesFail() {
+        prefs.put("STATE", "NO_ALARM DISARMED 0 1");
+        prefs.putByteArray("SENSOR_CHUNK_0_0", new byte[]{1, 2, 3});
+
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(prefs, Runnable::run);
+
+        assertTrue(repository.getSensorsLoaded().isCompletedExceptionally());
+        assertEquals(ArmingStatus.DISARMED, repository.getArmingStatus());
+        assertThrows(IllegalStateException.class, () -> repository.addSensor(new Sensor("Door", SensorType.DOOR)));
+    }
+
+    @Test
+    public void updateSensor_activated_movedToOneBucketOnly() {
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(prefs, Runnable::run);
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        repository.addSensor(door);
+        repository.addSensor(new Sensor("Window", SensorType.WINDOW));
+
+        door.setActive(true);
+        repository.updateSensor(door);
+
+        assertEquals(2, repository.getSensorCount());
+        assertEquals(2, repository.findSensors(null, null, null).size());
+        assertEquals(List.of(door), repository.findSensors(null, true, null));
+    }
+
+    @Test
+    public void updateSensors_severalSensors_oneWrite() {
+        int[] writes = {0};
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(prefs, r -> {
+            writes[0]++;
+            r.run();
+        });
+        List<Sensor> sensors = new ArrayList<>();
+        for(int i = 0; i < 3; i++) {
+            Sensor sensor = new Sensor("Sensor " + i, SensorType.MOTION);
+            repository.addSensor(sensor);
+            sensor.setActive(true);
+            sensors.add(sensor);
+        }
+        writes[0] = 0;
+
+        repository.updateSensors(sensors);
+
+        assertEquals(1, writes[0]);
+        assertEquals(3, repository.findSensors(null, true, null).size());
+        assertEquals(3, repository.getSensorCount());
+    }
+
+    @Test
+    public void persist_executorRejectsWrites_writtenInlineEveryTime() {
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(prefs, r -> {
+            throw new RejectedExecutionException("shut down");
+        });
+
+        repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+        repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+
+        PretendDatabaseSecurityRepositoryImpl reopened = new PretendDatabaseSecurityRepositoryImpl(prefs, Runnable::run);
+        assertEquals(ArmingStatus.ARMED_HOME, reopened.getArmingStatus());
+        assertEquals(AlarmStatus.PENDING_ALARM, reopened.getAlarmStatus());
+    }
+
+    @Test
+    public void setStatus_legacyKeys_readThenReplacedBySingleValue() throws BackingStoreException {
+        prefs.put("ALARM_STATUS", "PENDING_ALARM");
+        prefs.put("ARMING_STATUS", "ARMED_AWAY");
+        prefs.put("CAT_DETECTED", "true");
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(prefs, Runnable::run);
+        assertEquals(AlarmStatus.PENDING_ALARM, repository.getAlarmStatus());
+        assertEquals(ArmingStatus.ARMED_AWAY, repository.getArmingStatus());
+        assertTrue(repository.isCatDetected());
+
+        repository.setAlarmStatus(AlarmStatus.ALARM);
+        repository.setCatDetected("Yard", true);
+
+        assertEquals(List.of("STATE"), List.of(prefs.keys()));
+        PretendDatabaseSecurityRepositoryImpl reopened = new PretendDatabaseSecurityRepositoryImpl(prefs, Runnable::run);
+        assertEquals(AlarmStatus.ALARM, reopened.getAlarmStatus());
+        assertEquals(ArmingStatus.ARMED_AWAY, reopened.getArmingStatus());
+        assertEquals(repository.getCatCameras(), reopened.getCatCameras());
+    }
+
+    @Test
+    public void saveSensors_interruptedSave_previousSensorsStillLoad() throws BackingStoreException {
+        saveSensors(3_000);
+        //a save that crashed after writing part of the next generation
+        prefs.putByteArray("SENSOR_CHUNK_" + (sensorGeneration() + 1) + "_0", new byte[]{1, 2, 3});
+
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(prefs, Runnable::run);
+        assertEquals(3_000, repository.getSensorCount());
+
+        repository.addSensor(new Sensor("New", SensorType.DOOR));
+        assertEquals(3_001, new PretendDatabaseSecurityRepositoryImpl(prefs, Runnable::run).getSensorCount());
+        String current = "SENSOR_CHUNK_" + sensorGeneration() + "_";
+        for(String key : prefs.keys()) {
+            assertTrue(!key.startsWith("SENSOR_CHUNK") || key.startsWith(current), key);
+        }
+    }
+
+    private long sensorGeneration() {
+        return Long.parseLong(prefs.get("STATE", null).lines().findFirst().orElseThrow().split(" ")[2]);
+    }
+
+    private void saveSensors(int count) {
+        List<Runnable> writes = new ArrayList<>();
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(prefs, writes::add);
+        for(int i = 0; i < count; i++) {
+            repository.addSensor(new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length]));
+        }
+        repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        writes.forEach(Runnable::run); //all changes coalesce into one write
+    }
+}
@@ -0,0 +1,91 @@
+package com.udacity.catpoint.security.data;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Standalone benchmark appending millions of events to a {@link SecurityEventStore} and timing
+ * range queries against it. Not part of the unit test suite; run the main method from the
+ * test classpath.
+ */
+public class SecurityEventStoreBenchmark {
+
+    private static final int EVENT_COUNT = 2_000_000;
+    private static final long EVENT_SPACING_MILLIS = 20; //about 11 hours of events
+    private static final int QUERIES = 200;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("catpoint-history");
+        Random random = new Random(42);
+        UUID[] sensors = new UUID[100];
+        for(int i = 0; i < sensors.length; i++) {
+            sensors[i] = UUID.randomUUID();
+        }
+        long end = EVENT_COUNT * EVENT_SPACING_MILLIS;
+
+        try (SecurityEventStore store = new SecurityEventStore(directory)) {
+            long start = System.nanoTime();
+            for(int i = 0; i < EVENT_COUNT; i++) {
+                long timestamp = i * EVENT_SPACING_MILLIS;
+                store.append(switch(i % 4) {
+                    case 0 -> SecurityEvent.alarmStatusChanged(timestamp, AlarmStatus.values()[random.nextInt(3)]);
+                    case 1 -> SecurityEvent.catVerdict(timestamp, random.nextBoolean());
+                    default -> SecurityEvent.sensorActivationChanged(timestamp, sensors[random.nextInt(sensors.length)], random.nextBoolean());
+                });
+            }
+            store.sync();
+            long nanos = System.nanoTime() - start;
+            System.out.printf("append: %d events in %.0f ms (%.0f events/s), %d segments, %d MB%n", EVENT_COUNT,
+                    nanos / 1e6, EVENT_COUNT / (nanos / 1e9), store.getSegmentCount(), directorySize(directory) >> 20);
+
+            for(int round = 0; round < 2; round++) { //first round is warm-up
+                boolean print = round == 1;
+                time(print, "1 second window", () -> {
+                    long from = (long) (random.nextDouble() * (end - 1_000));
+                    return store.query(from, from + 1_000, null, null).size();
+                });
+                time(print, "10 minute window, one sensor", () -> {
+                    long from = (long) (random.nextDouble() * (end - 600_000));
+                    return store.query(from, from + 600_000, sensors[random.nextInt(sensors.length)], null).size();
+                });
+                time(print, "10 minute window, cat events", () -> {
+                    long from = (long) (random.nextDouble() * (end - 600_000));
+                    return store.query(from, from + 600_000, null, SecurityEventType.CAT_DETECTED).size();
+                });
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for(Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private interface Query {
+        int run() throws IOException;
+    }
+
+    private static void time(boolean print, String name, Query query) throws IOException {
+        long matches = 0;
+        long start = System.nanoTime();
+        for(int i = 0; i < QUERIES; i++) {
+            matches += query.run();
+        }
+        long nanos = System.nanoTime() - start;
+        if(print) {
+            System.out.printf("%-30s %8.3f ms/query, %6d matches/query%n", name, nanos / 1e6 / QUERIES, matches / QUERIES);
+        }
+    }
+
+    private static long directorySize(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+}
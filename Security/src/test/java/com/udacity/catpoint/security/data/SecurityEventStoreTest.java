@@ -0,0 +1,169 @@
+package com.udacity.catpoint.security.data;
+
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecurityEventStoreTest {
+
+    private static final Duration MINUTE = Duration.ofMinutes(1);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void query_timeWindow_returnsEventsInsideWindowInOrder() throws IOException {
+        try (SecurityEventStore store = new SecurityEventStore(directory, MINUTE)) {
+            for(int i = 0; i < 10_000; i++) {
+                store.append(SecurityEvent.alarmStatusChanged(i * 100L, AlarmStatus.values()[i % 3]));
+            }
+
+            List<SecurityEvent> events = store.query(123_450, 234_550, null, null);
+
+            assertEquals(1_111, events.size());
+            assertEquals(123_500, events.get(0).getTimestamp());
+            assertEquals(234_500, events.get(events.size() - 1).getTimestamp());
+            assertEquals(AlarmStatus.values()[1235 % 3], events.get(0).getAlarmStatus());
+            assertTrue(store.getSegmentCount() > 10, "Expected the events to be spread over segments");
+        }
+    }
+
+    @Test
+    public void query_windowOnIndexBoundaries_noEventsLost() throws IOException {
+        try (SecurityEventStore store = new SecurityEventStore(directory, MINUTE)) {
+            //many events share each timestamp, so equal timestamps span index blocks
+            for(int i = 0; i < 5_000; i++) {
+                store.append(SecurityEvent.catVerdict(i / 100, i % 2 == 0));
+            }
+            for(int t = 0; t < 50; t++) {
+                assertEquals(100, store.query(t, t + 1, null, null).size(), "timestamp " + t);
+            }
+            assertEquals(5_000, store.query(Long.MIN_VALUE, Long.MAX_VALUE, null, null).size());
+        }
+    }
+
+    @Test
+    public void query_sensorAndType_onlyMatchingEvents() throws IOException {
+        UUID door = UUID.randomUUID();
+        UUID window = UUID.randomUUID();
+        try (SecurityEventStore store = new SecurityEventStore(directory, MINUTE)) {
+            store.append(SecurityEvent.sensorActivationChanged(1_000, door, true));
+            store.append(SecurityEvent.sensorActivationChanged(2_000, window, true));
+            store.append(SecurityEvent.alarmStatusChanged(2_500, AlarmStatus.PENDING_ALARM));
+            store.append(SecurityEvent.sensorActivationChanged(3_000, door, false));
+            store.append(SecurityEvent.catVerdict(4_000, true));
+
+            assertEquals(List.of(SecurityEvent.sensorActivationChanged(1_000, door, true),
+                            SecurityEvent.sensorActivationChanged(3_000, door, false)),
+                    store.query(0, 10_000, door, null));
+            assertEquals(List.of(SecurityEvent.sensorActivationChanged(2_000, window, true)),
+                    store.query(0, 10_000, null, SecurityEventType.SENSOR_ACTIVATED).subList(1, 2));
+            assertEquals(List.of(SecurityEvent.sensorActivationChanged(3_000, door, false)),
+                    store.query(0, 10_000, door, SecurityEventType.SENSOR_DEACTIVATED));
+            assertEquals(List.of(SecurityEvent.catVerdict(4_000, true)),
+                    store.query(0, 10_000, null, SecurityEventType.CAT_DETECTED));
+        }
+    }
+
+    @Test
+    public void query_sensorAddedAndRemoved_keptById() throws IOException {
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        try (SecurityEventStore store = new SecurityEventStore(directory, MINUTE)) {
+            store.append(SecurityEvent.sensorAdded(1_000, door));
+            store.append(SecurityEvent.sensorRemoved(2_000, door));
+
+            List<SecurityEvent> events = store.query(0, 10_000, door.getSensorId(), null);
+            assertEquals(List.of(SecurityEvent.sensorAdded(1_000, door), SecurityEvent.sensorRemoved(2_000, door)), events);
+            assertNull(events.get(0).getSensor());
+        }
+    }
+
+    @Test
+    public void query_armingAndAlarmEvents_statusesRoundTrip() throws IOException {
+        List<SecurityEvent> written = List.of(
+                SecurityEvent.armingStatusChanged(1, ArmingStatus.ARMED_AWAY),
+                SecurityEvent.alarmStatusChanged(2, AlarmStatus.PENDING_ALARM),
+                SecurityEvent.armingStatusChanged(3, ArmingStatus.DISARMED));
+        try (SecurityEventStore store = new SecurityEventStore(directory, MINUTE)) {
+            for(SecurityEvent event : written) {
+                store.append(event);
+            }
+
+            assertEquals(written, store.query(0, 10, null, null));
+        }
+    }
+
+    @Test
+    public void reopen_eventsKeptAndAppendsContinue() throws IOException {
+        try (SecurityEventStore store = new SecurityEventStore(directory, MINUTE)) {
+            for(int i = 0; i < 1_000; i++) {
+                store.append(SecurityEvent.catVerdict(i, true));
+            }
+            store.sync();
+        }
+        try (SecurityEventStore store = new SecurityEventStore(directory, MINUTE)) {
+            store.append(SecurityEvent.catVerdict(500, false)); //older than the last event
+
+            List<SecurityEvent> events = store.query(0, 2_000, null, null);
+            assertEquals(1_001, events.size());
+            assertEquals(SecurityEvent.catVerdict(999, false), events.get(1_000));
+        }
+    }
+
+    @Test
+    public void reopen_halfWrittenRecord_ignoredAndOverwritten() throws IOException {
+        try (SecurityEventStore store = new SecurityEventStore(directory, MINUTE)) {
+            store.append(SecurityEvent.catVerdict(10, true));
+            store.append(SecurityEvent.catVerdict(20, true));
+        }
+        Path segment;
+        try (var files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        try (SecurityEventStore store = new SecurityEventStore(directory, MINUTE)) {
+            assertEquals(List.of(SecurityEvent.catVerdict(10, true)), store.query(0, 100, null, null));
+
+            store.append(SecurityEvent.catVerdict(30, false));
+
+            assertEquals(List.of(SecurityEvent.catVerdict(10, true), SecurityEvent.catVerdict(30, false)),
+                    store.query(0, 100, null, null));
+        }
+    }
+
+    @Test
+    public void onEvent_writeFails_alarmStillEscalates() throws IOException {
+        Path missing = directory.resolve("history");
+        try (SecurityEventStore store = new SecurityEventStore(missing, MINUTE)) {
+            Files.delete(missing); //no segment can be created anymore
+            SecurityService service = new SecurityService(new InMemorySecurityRepositoryImpl(), (image, threshold) -> false);
+            service.addEventListener(store);
+            Sensor door = new Sensor("Door", SensorType.DOOR);
+            Sensor window = new Sensor("Window", SensorType.WINDOW);
+            service.addSensor(door);
+            service.addSensor(window);
+            service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+            service.changeSensorActivationStatus(door, true);
+            service.changeSensorActivationStatus(window, true);
+
+            assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+            assertTrue(store.getFailedWriteCount() > 0);
+            assertNotNull(store.getLastWriteFailure());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.udacity.catpoint.security.data;
+
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Standalone benchmark comparing the size and speed of {@link SecurityStateCodec} with the
+ * Gson JSON format previously used to store sensors. Not part of the unit test suite; run
+ * the main method from the test classpath.
+ */
+public class SecurityStateCodecBenchmark {
+
+    private static final int ITERATIONS = 20;
+
+    public static void main(String[] args) throws Exception {
+        Gson gson = new Gson();
+        Type type = new TypeToken<Set<Sensor>>() {
+        }.getType();
+
+        System.out.printf("%8s %6s %12s %12s %12s%n", "sensors", "format", "bytes", "encode ms", "decode ms");
+        for(int count : new int[]{100, 10_000, 100_000}) {
+            Set<Sensor> sensors = new TreeSet<>();
+            for(int i = 0; i < count; i++) {
+                Sensor sensor = new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length]);
+                sensor.setActive(i % 7 == 0);
+                sensors.add(sensor);
+            }
+
+            for(int round = 0; round < 2; round++) { //first round is warm-up
+                long start = System.nanoTime();
+                String json = null;
+                for(int i = 0; i < ITERATIONS; i++) {
+                    json = gson.toJson(sensors);
+                }
+                long jsonEncode = System.nanoTime() - start;
+                start = System.nanoTime();
+                for(int i = 0; i < ITERATIONS; i++) {
+                    gson.fromJson(json, type);
+                }
+                long jsonDecode = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                byte[] binary = null;
+                for(int i = 0; i < ITERATIONS; i++) {
+                    binary = SecurityStateCodec.encodeSensors(sensors);
+                }
+                long binaryEncode = System.nanoTime() - start;
+                start = System.nanoTime();
+                for(int i = 0; i < ITERATIONS; i++) {
+                    SecurityStateCodec.decodeSensors(binary);
+                }
+                long binaryDecode = System.nanoTime() - start;
+
+                if(round == 1) {
+                    report(count, "json", json.getBytes(StandardCharsets.UTF_8).length, jsonEncode, jsonDecode);
+                    report(count, "binary", binary.length, binaryEncode, binaryDecode);
+                }
+            }
+        }
+    }
+
+    private static void report(int count, String format, int bytes, long encodeNanos, long decodeNanos) {
+        System.out.printf("%8d %6s %12d %12.3f %12.3f%n", count, format, bytes,
+                encodeNanos / 1e6 / ITERATIONS, decodeNanos / 1e6 / ITERATIONS);
+    }
+}
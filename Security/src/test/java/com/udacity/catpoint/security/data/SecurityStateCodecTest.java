@@ -0,0 +1,117 @@
+package com.udacity.catpoint.security.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecurityStateCodecTest {
+
+    @Test
+    public void encodeSensors_decoded_sameSensors() throws IOException {
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        Sensor window = new Sensor("Fen\u00eatre \uD83D\uDC31", SensorType.WINDOW);
+        window.setActive(true);
+        Sensor motion = new Sensor("", SensorType.MOTION);
+
+        List<Sensor> decoded = SecurityStateCodec.decodeSensors(SecurityStateCodec.encodeSensors(List.of(door, window, motion)));
+
+        assertEquals(3, decoded.size());
+        assertSameSensor(door, decoded.get(0));
+        assertSameSensor(window, decoded.get(1));
+        assertSameSensor(motion, decoded.get(2));
+    }
+
+    @Test
+    public void encodeSensors_empty_decodedEmpty() throws IOException {
+        assertTrue(SecurityStateCodec.decodeSensors(SecurityStateCodec.encodeSensors(List.of())).isEmpty());
+    }
+
+    @Test
+    public void encodeSensors_manySensors_compactComparedToJson() throws IOException {
+        List<Sensor> sensors = new ArrayList<>();
+        for(int i = 0; i < 1000; i++) {
+            sensors.add(new Sensor(new UUID(i, -i), "Sensor " + i, SensorType.values()[i % 3], i % 2 == 0));
+        }
+        byte[] encoded = SecurityStateCodec.encodeSensors(sensors);
+        List<Sensor> decoded = SecurityStateCodec.decodeSensors(encoded);
+
+        for(int i = 0; i < sensors.size(); i++) {
+            assertSameSensor(sensors.get(i), decoded.get(i));
+        }
+        //16 bytes id, ~11 bytes name, type and flag
+        assertTrue(encoded.length < 1000 * 30, "Expected under 30 bytes per sensor but was " + encoded.length / 1000.0);
+    }
+
+    @Test
+    public void statuses_roundTrip() throws IOException {
+        for(AlarmStatus alarmStatus : AlarmStatus.values()) {
+            for(ArmingStatus armingStatus : ArmingStatus.values()) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                SecurityStateCodec.writeAlarmStatus(out, alarmStatus);
+                SecurityStateCodec.writeArmingStatus(out, armingStatus);
+
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+                assertEquals(alarmStatus, SecurityStateCodec.readAlarmStatus(in));
+                assertEquals(armingStatus, SecurityStateCodec.readArmingStatus(in));
+            }
+        }
+    }
+
+    @Test
+    public void varInt_roundTrip() throws IOException {
+        for(int value : new int[]{0, 1, 127, 128, 16_383, 16_384, Integer.MAX_VALUE}) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            SecurityStateCodec.writeVarInt(new DataOutputStream(bytes), value);
+            assertEquals(value, SecurityStateCodec.readVarInt(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+        }
+    }
+
+    @Test
+    public void decodeSensors_truncated_throwsIOException() {
+        byte[] encoded = SecurityStateCodec.encodeSensors(List.of(new Sensor("Door", SensorType.DOOR)));
+        assertThrows(IOException.class, () -> SecurityStateCodec.decodeSensors(Arrays.copyOf(encoded, encoded.length - 3)));
+    }
+
+    @Test
+    public void decodeSensors_notEncodedState_throwsIOException() {
+        assertThrows(IOException.class, () -> SecurityStateCodec.decodeSensors("[{\"name\":\"x\"}]".getBytes()));
+    }
+
+    @Test
+    public void decodeSensors_newerVersion_throwsIOException() {
+        byte[] encoded = SecurityStateCodec.encodeSensors(List.of());
+        encoded[4] = (byte) (SecurityStateCodec.VERSION + 1);
+        assertThrows(IOException.class, () -> SecurityStateCodec.decodeSensors(encoded));
+    }
+
+    private static void assertSameSensor(Sensor expected, Sensor actual) {
+        assertEquals(expected.getSensorId(), actual.getSensorId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getSensorType(), actual.getSensorType());
+        assertEquals(expected.getActive(), actual.getActive());
+    }
+
+    @Test
+    public void writeString_longerThanReadable_rejected() {
+        String name = "\u00e9".repeat(SecurityStateCodec.MAX_STRING_BYTES / 2 + 1);
+        DataOutputStream out = new DataOutputStream(new ByteArrayOutputStream());
+
+        assertThrows(IllegalArgumentException.class, () -> SecurityStateCodec.writeString(out, name));
+        assertThrows(IllegalArgumentException.class, () -> new Sensor(name, SensorType.DOOR));
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        assertThrows(IllegalArgumentException.class, () -> door.setName(name));
+        assertEquals("Door", door.getName());
+        assertThrows(IllegalArgumentException.class, () -> new Sensor(UUID.randomUUID(), name, SensorType.DOOR, false));
+    }
+}
@@ -0,0 +1,148 @@
+package com.udacity.catpoint.security.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecurityStateTest {
+
+    @Test
+    public void getState_afterChanges_earlierSnapshotIsUnchanged() {
+        InMemorySecurityRepositoryImpl repository = new InMemorySecurityRepositoryImpl();
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        repository.addSensor(door);
+        SecurityState before = repository.getState();
+
+        door.setActive(true);
+        repository.updateSensor(door);
+        repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        SecurityState after = repository.getState();
+
+        assertFalse(before.getSensors().get(0).getActive());
+        assertEquals(AlarmStatus.NO_ALARM, before.getAlarmStatus());
+        assertTrue(after.getSensors().get(0).getActive());
+        assertEquals(AlarmStatus.PENDING_ALARM, after.getAlarmStatus());
+        assertTrue(after.getVersion() > before.getVersion());
+    }
+
+    @Test
+    public void getSensors_modified_throws() {
+        InMemorySecurityRepositoryImpl repository = new InMemorySecurityRepositoryImpl();
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        assertThrows(UnsupportedOperationException.class, () -> repository.getSensors().add(door));
+        assertThrows(UnsupportedOperationException.class, () -> repository.getState().getSensors().add(SensorState.of(door)));
+    }
+
+    @Test
+    public void containsSensor_afterAddAndRemove_followsSensors() {
+        InMemorySecurityRepositoryImpl repository = new InMemorySecurityRepositoryImpl();
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        assertFalse(repository.getState().containsSensor(door));
+        for(int i = 0; i < 500; i++) {
+            repository.addSensor(new Sensor("Sensor " + i, SensorType.WINDOW));
+        }
+        repository.addSensor(door);
+
+        assertTrue(repository.getState().containsSensor(door));
+        assertFalse(repository.getState().containsSensor(new Sensor("Door", SensorType.DOOR)));
+
+        repository.removeSensor(door);
+        assertFalse(repository.getState().containsSensor(door));
+    }
+
+    @Test
+    public void withSensorChanges_randomOperations_matchSortedModel() {
+        Random random = new Random(42);
+        TreeMap<Sensor, Boolean> model = new TreeMap<>();
+        List<Sensor> known = new ArrayList<>();
+        SecurityState state = SecurityState.of(AlarmStatus.NO_ALARM, ArmingStatus.DISARMED, false, List.of());
+        for(int i = 0; i < 5_000; i++) {
+            int operation = random.nextInt(10);
+            if(operation < 5 || known.isEmpty()) {
+                Sensor sensor = new Sensor(UUID.randomUUID(), "Sensor " + random.nextInt(1_000), SensorType.DOOR, false);
+                known.add(sensor);
+                model.put(sensor, false);
+                state = state.withSensorAdded(sensor);
+            } else if(operation < 7) {
+                Sensor sensor = known.remove(random.nextInt(known.size()));
+                model.remove(sensor);
+                state = state.withSensorRemoved(sensor);
+            } else {
+                Sensor sensor = known.get(random.nextInt(known.size()));
+                sensor.setActive(!sensor.getActive());
+                model.put(sensor, sensor.getActive());
+                state = state.withSensorsUpdated(List.of(sensor));
+            }
+        }
+
+        List<Sensor> expected = new ArrayList<>(model.keySet());
+        List<SensorState> sensors = state.getSensors();
+        assertEquals(expected.stream().map(SensorState::of).toList(), new ArrayList<>(sensors));
+        assertEquals(expected.size(), state.getSensorCount());
+        for(int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getSensorId(), sensors.get(i).getSensorId());
+            assertEquals(model.get(expected.get(i)), sensors.get(i).getActive());
+        }
+    }
+
+    @Test
+    public void withSensorsUpdated_sharesUntouchedSensors() {
+        List<Sensor> sensors = new ArrayList<>();
+        for(int i = 0; i < 1_000; i++) {
+            sensors.add(new Sensor(String.format("Sensor %04d", i), SensorType.WINDOW));
+        }
+        SecurityState before = SecurityState.of(AlarmStatus.NO_ALARM, ArmingStatus.ARMED_HOME, false, sensors);
+        Sensor changed = sensors.get(500);
+        changed.setActive(true);
+        SecurityState after = before.withSensorsUpdated(List.of(changed));
+
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertSame(before.getSensors().get(0), after.getSensors().get(0));
+        assertSame(before.getSensors().get(999), after.getSensors().get(999));
+        assertNotSame(before.getSensors().get(500), after.getSensors().get(500));
+        assertTrue(after.getSensors().get(500).getActive());
+        assertFalse(before.getSensors().get(500).getActive());
+    }
+
+    @Test
+    public void getState_concurrentBatchUpdates_readersNeverSeeTornState() throws InterruptedException {
+        InMemorySecurityRepositoryImpl repository = new InMemorySecurityRepositoryImpl();
+        List<Sensor> sensors = new ArrayList<>();
+        for(int i = 0; i < 300; i++) {
+            Sensor sensor = new Sensor("Motion " + i, SensorType.MOTION);
+            sensors.add(sensor);
+            repository.addSensor(sensor);
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> torn = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while(running.get()) {
+                SecurityState state = repository.getState();
+                boolean first = state.getSensors().get(0).getActive();
+                for(SensorState sensor : state.getSensors()) {
+                    if(sensor.getActive() != first) {
+                        torn.set("mixed sensors in version " + state.getVersion());
+                    }
+                }
+            }
+        });
+        reader.start();
+        for(int i = 0; i < 2_000; i++) {
+            boolean active = i % 2 == 0;
+            sensors.forEach(sensor -> sensor.setActive(active));
+            repository.updateSensors(sensors);
+        }
+        running.set(false);
+        reader.join();
+
+        assertNull(torn.get());
+    }
+}
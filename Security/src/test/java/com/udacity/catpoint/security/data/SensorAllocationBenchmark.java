@@ -0,0 +1,105 @@
+package com.udacity.catpoint.security.data;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Standalone benchmark reporting the bytes allocated per operation on the hot sensor paths of
+ * the repository: hashing, comparing, and updating the sorted set and the sensor index. Not
+ * part of the unit test suite; run the main method from the test classpath on a HotSpot JVM.
+ */
+public class SensorAllocationBenchmark {
+
+    private static final int SENSOR_COUNT = 100_000;
+    private static final int OPERATIONS = 1_000_000;
+    private static final String[] ROOMS = {"Kitchen", "Hall", "Garage", "Bedroom", "Office", "Basement", "Attic", "Porch"};
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(42);
+        List<Sensor> sensors = new ArrayList<>(SENSOR_COUNT);
+        for(int i = 0; i < SENSOR_COUNT; i++) {
+            SensorType type = SensorType.values()[random.nextInt(SensorType.values().length)];
+            sensors.add(new Sensor(ROOMS[random.nextInt(ROOMS.length)] + " " + type + " " + i, type));
+        }
+        Set<Sensor> hashed = new HashSet<>(sensors);
+        TreeSet<Sensor> sorted = new TreeSet<>(sensors);
+        SensorIndex index = new SensorIndex();
+        sensors.forEach(index::add);
+        Sensor[] lookups = new Sensor[OPERATIONS];
+        for(int i = 0; i < OPERATIONS; i++) {
+            lookups[i] = sensors.get(random.nextInt(SENSOR_COUNT));
+        }
+
+        System.out.printf("%-28s %14s %10s%n", "operation", "bytes/op", "ns/op");
+        for(int round = 0; round < 3; round++) { //first rounds are warm-up
+            boolean print = round == 2;
+            measure(print, "hashCode", () -> {
+                int sum = 0;
+                for(Sensor s : lookups) {
+                    sum += s.hashCode();
+                }
+                return sum;
+            });
+            measure(print, "compareTo", () -> {
+                int sum = 0;
+                for(int i = 1; i < OPERATIONS; i++) {
+                    sum += lookups[i].compareTo(lookups[i - 1]);
+                }
+                return sum;
+            });
+            measure(print, "HashSet.contains", () -> {
+                int found = 0;
+                for(Sensor s : lookups) {
+                    found += hashed.contains(s) ? 1 : 0;
+                }
+                return found;
+            });
+            measure(print, "TreeSet.contains", () -> {
+                int found = 0;
+                for(Sensor s : lookups) {
+                    found += sorted.contains(s) ? 1 : 0;
+                }
+                return found;
+            });
+            measure(print, "SensorIndex.update", () -> {
+                for(Sensor s : lookups) {
+                    s.setActive(!s.getActive());
+                    index.update(s);
+                }
+                return index.size();
+            });
+        }
+        System.out.println("SensorIndex.update moves the sensor between trees, so one tree node per update is expected.");
+    }
+
+    private interface Operation {
+        int run();
+    }
+
+    private static void measure(boolean print, String name, Operation operation) throws Exception {
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        int result = operation.run();
+        long nanos = System.nanoTime() - start;
+        bytes = allocatedBytes() - bytes;
+        if(print) {
+            System.out.printf("%-28s %14.2f %10.1f%s%n", name, (double) bytes / OPERATIONS, (double) nanos / OPERATIONS,
+                    result == Integer.MIN_VALUE ? " " : ""); //use the result so the loop isn't eliminated
+        }
+    }
+
+    /**
+     * Bytes allocated so far by this thread. Looked up reflectively so the Security module
+     * does not need to read java.management.
+     */
+    private static long allocatedBytes() throws Exception {
+        Object threadBean = Class.forName("java.lang.management.ManagementFactory").getMethod("getThreadMXBean").invoke(null);
+        Method method = Class.forName("com.sun.management.ThreadMXBean").getMethod("getCurrentThreadAllocatedBytes");
+        return (Long) method.invoke(threadBean);
+    }
+}
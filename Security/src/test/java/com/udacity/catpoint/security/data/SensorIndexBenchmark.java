@@ -0,0 +1,81 @@
+package com.udacity.catpoint.security.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Standalone benchmark for the operations the sensor management view relies on, run against
+ * 100k sensors. Not part of the unit test suite; run the main method from the test classpath.
+ */
+public class SensorIndexBenchmark {
+
+    private static final int SENSOR_COUNT = 100_000;
+    private static final int ITERATIONS = 200;
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        List<Sensor> sensors = new ArrayList<>(SENSOR_COUNT);
+        for(int i = 0; i < SENSOR_COUNT; i++) {
+            Sensor s = new Sensor(String.format("Sensor %06d", i),
+                    SensorType.values()[random.nextInt(SensorType.values().length)]);
+            s.setActive(random.nextInt(10) == 0);
+            sensors.add(s);
+        }
+
+        SensorIndex index = new SensorIndex();
+        long start = System.nanoTime();
+        sensors.forEach(index::add);
+        report("add (all " + SENSOR_COUNT + ")", System.nanoTime() - start, 1);
+
+        for(int round = 0; round < 2; round++) { //first round is warm-up
+            boolean print = round == 1;
+
+            start = System.nanoTime();
+            for(int i = 0; i < ITERATIONS; i++) {
+                Sensor s = sensors.get(random.nextInt(SENSOR_COUNT));
+                s.setActive(!s.getActive());
+                index.update(s);
+            }
+            if(print) report("update", System.nanoTime() - start, ITERATIONS);
+
+            start = System.nanoTime();
+            for(int i = 0; i < ITERATIONS; i++) {
+                index.count(SensorType.DOOR, true);
+            }
+            if(print) report("count(DOOR, active)", System.nanoTime() - start, ITERATIONS);
+
+            start = System.nanoTime();
+            int found = 0;
+            for(int i = 0; i < ITERATIONS; i++) {
+                found += index.find(null, null, String.format("Sensor %04d", random.nextInt(1000))).size();
+            }
+            if(print) report("find(name prefix, ~" + found / ITERATIONS + " hits)", System.nanoTime() - start, ITERATIONS);
+
+            start = System.nanoTime();
+            found = 0;
+            for(int i = 0; i < ITERATIONS; i++) {
+                found += index.find(SensorType.WINDOW, true, null).size();
+            }
+            if(print) report("find(WINDOW, active, ~" + found / ITERATIONS + " hits)", System.nanoTime() - start, ITERATIONS);
+
+            start = System.nanoTime();
+            for(int i = 0; i < ITERATIONS; i++) {
+                Sensor s = sensors.get(random.nextInt(SENSOR_COUNT));
+                index.remove(s);
+                index.add(s);
+            }
+            if(print) report("remove + add", System.nanoTime() - start, ITERATIONS);
+
+            start = System.nanoTime();
+            for(int i = 0; i < 10; i++) {
+                index.find(null, null, null);
+            }
+            if(print) report("find(all)", System.nanoTime() - start, 10);
+        }
+    }
+
+    private static void report(String operation, long elapsedNanos, int operations) {
+        System.out.printf("%-40s %12.3f us/op%n", operation, elapsedNanos / 1000.0 / operations);
+    }
+}
@@ -0,0 +1,86 @@
+package com.udacity.catpoint.security.data;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensorIndexTest {
+
+    private SensorIndex sensorIndex;
+    private Sensor frontDoor;
+    private Sensor backDoor;
+    private Sensor frontWindow;
+    private Sensor hallMotion;
+
+    @BeforeEach
+    void init() {
+        sensorIndex = new SensorIndex();
+        frontDoor = new Sensor("Front Door", SensorType.DOOR);
+        backDoor = new Sensor("Back Door", SensorType.DOOR);
+        frontWindow = new Sensor("Front Window", SensorType.WINDOW);
+        hallMotion = new Sensor("Hall", SensorType.MOTION);
+        hallMotion.setActive(true);
+        List.of(frontDoor, backDoor, frontWindow, hallMotion).forEach(sensorIndex::add);
+    }
+
+    @Test
+    public void find_noFilters_returnsAllSensorsSorted() {
+        assertEquals(List.of(backDoor, frontDoor, frontWindow, hallMotion), sensorIndex.find(null, null, null));
+        assertEquals(4, sensorIndex.size());
+    }
+
+    @Test
+    public void find_typeFilter_returnsOnlyThatType() {
+        assertEquals(List.of(backDoor, frontDoor), sensorIndex.find(SensorType.DOOR, null, ""));
+        assertEquals(2, sensorIndex.count(SensorType.DOOR, null));
+    }
+
+    @Test
+    public void find_namePrefix_returnsMatchingNamesAcrossTypes() {
+        assertEquals(List.of(frontDoor, frontWindow), sensorIndex.find(null, null, "Front"));
+        assertEquals(List.of(frontDoor), sensorIndex.find(SensorType.DOOR, false, "Front"));
+        assertTrue(sensorIndex.find(null, null, "Garage").isEmpty());
+    }
+
+    @Test
+    public void find_namePrefixAtLengthLimit_matchesWithoutThrowing() {
+        String longest = "a".repeat(Sensor.MAX_NAME_BYTES);
+        Sensor attic = new Sensor(longest, SensorType.WINDOW);
+        sensorIndex.add(attic);
+
+        assertEquals(List.of(attic), sensorIndex.find(null, null, longest));
+        assertTrue(sensorIndex.find(null, null, longest + "a").isEmpty());
+    }
+
+    @Test
+    public void update_sensorActivated_movesToActiveResults() {
+        frontDoor.setActive(true);
+        sensorIndex.update(frontDoor);
+
+        assertEquals(List.of(frontDoor, hallMotion), sensorIndex.find(null, true, null));
+        assertEquals(List.of(backDoor, frontWindow), sensorIndex.find(null, false, null));
+        assertEquals(2, sensorIndex.count(null, true));
+    }
+
+    @Test
+    public void remove_sensor_noLongerFound() {
+        sensorIndex.remove(hallMotion);
+        sensorIndex.remove(hallMotion);
+
+        assertEquals(3, sensorIndex.size());
+        assertTrue(sensorIndex.find(SensorType.MOTION, null, null).isEmpty());
+    }
+
+    @Test
+    public void update_unknownSensor_ignored() {
+        Sensor unknown = new Sensor("Garage", SensorType.DOOR);
+        unknown.setActive(true);
+        sensorIndex.update(unknown);
+
+        assertEquals(4, sensorIndex.size());
+        assertTrue(sensorIndex.find(null, null, "Garage").isEmpty());
+    }
+}
@@ -0,0 +1,70 @@
+package com.udacity.catpoint.security.data;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensorTest {
+
+    @Test
+    public void compareTo_matchesNameThenTypeNameThenId() {
+        String[] names = {"", "a", "ab", "ab\u0000", "abc", "abcb", "abcc", "abcd", "abcde", "abce", "B", "\u00e9t\u00e9", "\uffffz", "\u8000", "Door"};
+        Random random = new Random(7);
+        List<Sensor> sensors = new ArrayList<>();
+        for(int i = 0; i < 500; i++) {
+            sensors.add(new Sensor(new UUID(random.nextInt(3), random.nextInt(3)), names[random.nextInt(names.length)],
+                    SensorType.values()[random.nextInt(SensorType.values().length)], false));
+        }
+
+        for(Sensor a : sensors) {
+            for(Sensor b : sensors) {
+                int expected = a.getName().compareTo(b.getName());
+                if(expected == 0) {
+                    expected = a.getSensorType().toString().compareTo(b.getSensorType().toString());
+                }
+                if(expected == 0) {
+                    expected = a.getSensorId().compareTo(b.getSensorId());
+                }
+                assertEquals(Integer.signum(expected), Integer.signum(a.compareTo(b)), a.getName() + " vs " + b.getName());
+            }
+        }
+    }
+
+    @Test
+    public void setName_sortKeyUpdated() {
+        Sensor sensor = new Sensor("zzzz", SensorType.DOOR);
+        Sensor other = new Sensor("mmmm", SensorType.DOOR);
+        assertTrue(sensor.compareTo(other) > 0);
+
+        sensor.setName("aaaa");
+
+        assertTrue(sensor.compareTo(other) < 0);
+    }
+
+    @Test
+    public void compareTo_createdByGson_sortKeyComputed() {
+        Gson gson = new Gson();
+        Sensor sensor = gson.fromJson(gson.toJson(new Sensor("zzzz", SensorType.DOOR)), Sensor.class);
+        Sensor other = new Sensor("mmmm", SensorType.DOOR);
+
+        assertTrue(sensor.compareTo(other) > 0);
+        assertTrue(other.compareTo(sensor) < 0);
+    }
+
+    @Test
+    public void setSensorId_hashUpdated() {
+        Sensor sensor = new Sensor("Door", SensorType.DOOR);
+        sensor.hashCode();
+        UUID id = UUID.randomUUID();
+
+        sensor.setSensorId(id);
+
+        assertEquals(new Sensor(id, "Other", SensorType.WINDOW, true).hashCode(), sensor.hashCode());
+    }
+}
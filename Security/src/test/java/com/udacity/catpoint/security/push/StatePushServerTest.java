@@ -0,0 +1,177 @@
+package com.udacity.catpoint.security.push;
+
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatePushServerTest {
+
+    private SecurityService securityService;
+    private Sensor door;
+    private StatePushServer server;
+
+    @BeforeEach
+    void init() throws IOException {
+        securityService = new SecurityService(new InMemorySecurityRepositoryImpl(), new FakeImageService());
+        door = new Sensor("front door", SensorType.DOOR);
+        securityService.addSensor(door);
+        securityService.addSensor(new Sensor("kitchen window", SensorType.WINDOW));
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void connect_snapshotThenDeltas_mirrorsServiceState() throws IOException {
+        server = new StatePushServer(securityService, new InetSocketAddress("localhost", 0));
+        try (StatePushClient client = connect()) {
+            client.readUpdate();
+            assertEquals(AlarmStatus.NO_ALARM, client.getAlarmStatus());
+            assertEquals(ArmingStatus.DISARMED, client.getArmingStatus());
+            assertEquals(2, client.getSensorCount());
+            assertFalse(client.isSensorActive(door.getSensorId()));
+
+            securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+            securityService.changeSensorActivationStatus(door, true);
+            securityService.processCatVerdict(true);
+
+            readUntil(client, () -> client.isCatDetected());
+            assertEquals(ArmingStatus.ARMED_AWAY, client.getArmingStatus());
+            assertEquals(AlarmStatus.PENDING_ALARM, client.getAlarmStatus());
+            assertTrue(client.isSensorActive(door.getSensorId()));
+            assertEquals(1, client.getSnapshotCount());
+        }
+    }
+
+    @Test
+    public void sensorsAddedAndRemoved_afterSnapshot_pushedAsDeltas() throws IOException {
+        server = new StatePushServer(securityService, new InetSocketAddress("localhost", 0));
+        try (StatePushClient client = connect()) {
+            client.readUpdate();
+            Sensor garage = new Sensor("garage", SensorType.MOTION);
+
+            securityService.addSensor(garage);
+            assertEquals("ADDED " + garage.getSensorId() + " false MOTION garage", client.readUpdate());
+            securityService.removeSensor(door);
+            assertEquals("REMOVED " + door.getSensorId(), client.readUpdate());
+
+            assertEquals(2, client.getSensorCount());
+            assertFalse(client.isSensorActive(garage.getSensorId()));
+            assertNull(client.isSensorActive(door.getSensorId()));
+        }
+    }
+
+    @Test
+    public void slowClient_backlogTooLarge_conflatedIntoNewSnapshot() throws IOException {
+        server = new StatePushServer(securityService, new InetSocketAddress("localhost", 0), 1024, Duration.ofMinutes(1));
+        try (StatePushClient client = connect()) {
+            client.readUpdate();
+            //far more than the socket buffers and the 1 KB backlog hold while the client is not reading
+            for(int i = 0; i < 200_000; i++) {
+                securityService.changeSensorActivationStatus(door, i % 2 == 0);
+            }
+            securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+            readUntil(client, () -> client.getArmingStatus() == ArmingStatus.ARMED_HOME);
+            assertFalse(client.isSensorActive(door.getSensorId()));
+            assertTrue(server.getConflatedCount() > 0);
+            assertTrue(client.getSnapshotCount() > 1);
+        }
+    }
+
+    @Test
+    public void snapshotLargerThanBacklogLimit_deltaWhileSending_noNewSnapshot() throws IOException, InterruptedException {
+        for(int i = 0; i < 100_000; i++) {
+            securityService.addSensor(new Sensor("Sensor " + i, SensorType.MOTION));
+        }
+        server = new StatePushServer(securityService, new InetSocketAddress("localhost", 0), 1024, Duration.ofMinutes(1));
+        try (StatePushClient client = connect()) {
+            //the client is not reading yet, so the snapshot is still queued when the delta arrives
+            awaitTrue(() -> server.getClientCount() == 1);
+            securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+            readUntil(client, () -> client.getArmingStatus() == ArmingStatus.ARMED_HOME);
+            assertEquals(100_002, client.getSensorCount());
+            assertEquals(1, client.getSnapshotCount());
+            assertEquals(0, server.getConflatedCount());
+        }
+    }
+
+    @Test
+    public void idleClients_manyConnections_allServedBySelectorThread() throws IOException, InterruptedException {
+        server = new StatePushServer(securityService, new InetSocketAddress("localhost", 0));
+        List<Socket> idle = new ArrayList<>();
+        try {
+            for(int i = 0; i < 1_000; i++) {
+                idle.add(new Socket("localhost", server.getPort()));
+            }
+            awaitTrue(() -> server.getClientCount() == 1_000);
+            try (StatePushClient client = connect()) {
+                client.readUpdate();
+                securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+                readUntil(client, () -> client.getArmingStatus() == ArmingStatus.ARMED_HOME);
+            }
+        } finally {
+            for(Socket socket : idle) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    public void nonReadingClient_staysBehind_disconnected() throws IOException, InterruptedException {
+        //a snapshot far larger than the socket buffers, so it can't be delivered to a client that doesn't read
+        for(int i = 0; i < 100_000; i++) {
+            securityService.addSensor(new Sensor("Sensor " + i, SensorType.MOTION));
+        }
+        server = new StatePushServer(securityService, new InetSocketAddress("localhost", 0), 1024, Duration.ofMillis(200));
+        try (Socket stuck = new Socket("localhost", server.getPort())) {
+            awaitTrue(() -> server.getClientCount() == 1);
+            for(int i = 0; i < 200 && server.getClientCount() > 0; i++) {
+                securityService.changeSensorActivationStatus(door, i % 2 == 0);
+                Thread.sleep(50);
+            }
+            assertEquals(0, server.getClientCount());
+            assertEquals(1, server.getDroppedCount());
+        }
+    }
+
+    private StatePushClient connect() throws IOException {
+        StatePushClient client = new StatePushClient("localhost", server.getPort());
+        client.setReadTimeout(10_000);
+        return client;
+    }
+
+    private static void readUntil(StatePushClient client, BooleanSupplier condition) throws IOException {
+        while(!condition.getAsBoolean()) {
+            assertNotNull(client.readUpdate());
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while(!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
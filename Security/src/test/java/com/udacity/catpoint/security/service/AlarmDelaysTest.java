@@ -0,0 +1,93 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlarmDelaysTest {
+
+    private HashedTimingWheel timers;
+    private SecurityService securityService;
+    private Sensor door;
+    private Sensor window;
+
+    @BeforeEach
+    void init() {
+        timers = new HashedTimingWheel(Duration.ofMillis(5), 64);
+        securityService = new SecurityService(new InMemorySecurityRepositoryImpl(), new FakeImageService());
+        door = new Sensor("door", SensorType.DOOR);
+        window = new Sensor("window", SensorType.WINDOW);
+        securityService.addSensor(door);
+        securityService.addSensor(window);
+    }
+
+    @AfterEach
+    void close() {
+        timers.close();
+    }
+
+    @Test
+    public void parse_entryAndExitPerArmingStatus() {
+        AlarmDelays delays = AlarmDelays.parse("ARMED_AWAY=30s/1m, armed_home=500ms/0s");
+        assertEquals(Duration.ofSeconds(30), delays.getEntryDelay(ArmingStatus.ARMED_AWAY));
+        assertEquals(Duration.ofMinutes(1), delays.getExitDelay(ArmingStatus.ARMED_AWAY));
+        assertEquals(Duration.ofMillis(500), delays.getEntryDelay(ArmingStatus.ARMED_HOME));
+        assertNull(delays.getExitDelay(ArmingStatus.ARMED_HOME));
+        assertNull(delays.getEntryDelay(ArmingStatus.DISARMED));
+        assertThrows(IllegalArgumentException.class, () -> AlarmDelays.parse("ARMED_AWAY=30s"));
+        assertThrows(IllegalArgumentException.class, () -> AlarmDelays.parse("ARMED_ABROAD=1s/1s"));
+    }
+
+    @Test
+    public void pendingAlarm_entryDelayPasses_escalatesToAlarm() throws InterruptedException {
+        securityService.setAlarmDelays(AlarmDelays.NONE.withEntryDelay(ArmingStatus.ARMED_AWAY, Duration.ofMillis(50)), timers);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        securityService.changeSensorActivationStatus(door, true);
+        assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+
+        awaitAlarmStatus(AlarmStatus.ALARM);
+    }
+
+    @Test
+    public void pendingAlarm_disarmedWithinEntryDelay_neverEscalates() throws InterruptedException {
+        securityService.setAlarmDelays(AlarmDelays.NONE.withEntryDelay(ArmingStatus.ARMED_HOME, Duration.ofMillis(50)), timers);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        securityService.changeSensorActivationStatus(door, true);
+        securityService.setArmingStatus(ArmingStatus.DISARMED);
+
+        Thread.sleep(150);
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+        assertEquals(0, timers.getPendingCount());
+    }
+
+    @Test
+    public void activation_duringExitDelay_ignoredUntilItEnds() throws InterruptedException {
+        securityService.setAlarmDelays(AlarmDelays.NONE.withExitDelay(ArmingStatus.ARMED_AWAY, Duration.ofMillis(100)), timers);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        securityService.changeSensorActivationStatus(door, true);
+        securityService.changeSensorActivationStatus(window, true);
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+
+        //the window is still open when the exit delay ends
+        securityService.changeSensorActivationStatus(door, false);
+        awaitAlarmStatus(AlarmStatus.PENDING_ALARM);
+    }
+
+    private void awaitAlarmStatus(AlarmStatus expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while(securityService.getAlarmStatus() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, securityService.getAlarmStatus());
+    }
+}
@@ -0,0 +1,56 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Standalone benchmark of the cost of evaluating one sensor activation as the number of rules
+ * grows. Not part of the unit test suite; run the main method from the test classpath.
+ */
+public class AlarmRuleEngineBenchmark {
+
+    private static final int SENSOR_COUNT = 100_000;
+    private static final int MAX_EVENTS = 1_000_000;
+    private static final long RULE_VISITS = 20_000_000; //caps the events run for large rule sets
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        Sensor[] sensors = new Sensor[SENSOR_COUNT];
+        for(int i = 0; i < SENSOR_COUNT; i++) {
+            sensors[i] = new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length]);
+        }
+        String[] whens = {"ARMED_HOME", "ARMED_AWAY", "ARMED_HOME,ARMED_AWAY"};
+
+        System.out.printf("%8s %12s %12s%n", "rules", "visited/evt", "ns/event");
+        for(int ruleCount : new int[]{10, 1_000, 10_000}) {
+            List<AlarmRule> rules = new ArrayList<>();
+            for(int i = 0; i < ruleCount; i++) {
+                String trigger = i % 4 == 3 ? "cat"
+                        : (1 + random.nextInt(3)) + " " + SensorType.values()[i % 3] + " within " + (1 + random.nextInt(60)) + "s";
+                rules.add(AlarmRule.parse("r" + i + ": " + trigger + " when "
+                        + whens[random.nextInt(whens.length)] + " -> ALARM"));
+            }
+            AlarmRuleEngine engine = new AlarmRuleEngine(rules);
+            long visited = rules.stream().filter(r -> r.getSensorType() == SensorType.DOOR && r.appliesWhen(ArmingStatus.ARMED_AWAY)).count();
+
+            int events = (int) Math.min(MAX_EVENTS, RULE_VISITS / Math.max(1, visited));
+            for(int round = 0; round < 2; round++) { //first round is warm-up
+                long fired = 0;
+                long start = System.nanoTime();
+                for(int i = 0; i < events; i++) {
+                    fired += engine.sensorActivated(sensors[random.nextInt(SENSOR_COUNT)], ArmingStatus.ARMED_AWAY, i) != null ? 1 : 0;
+                }
+                long nanos = System.nanoTime() - start;
+                if(round == 1) {
+                    System.out.printf("%8d %12d %12.1f%s%n", ruleCount, visited, (double) nanos / events, fired < 0 ? "!" : "");
+                }
+            }
+        }
+        System.out.println("visited/evt: rules indexed under DOOR and ARMED_AWAY, the rest are never looked at");
+    }
+}
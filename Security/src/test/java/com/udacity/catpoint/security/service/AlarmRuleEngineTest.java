@@ -0,0 +1,98 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.simulation.ReplayImageService;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlarmRuleEngineTest {
+
+    private static final String RULES = """
+            # sample site
+            two-motions: 2 MOTION within 10s when ARMED_HOME,ARMED_AWAY -> ALARM
+            window-away: 1 window when armed_away -> PENDING_ALARM
+
+            cat-home:    cat when ARMED_HOME -> ALARM
+            """;
+
+    private final Sensor motion1 = new Sensor("Hall", SensorType.MOTION);
+    private final Sensor motion2 = new Sensor("Kitchen", SensorType.MOTION);
+    private final Sensor window = new Sensor("Bedroom", SensorType.WINDOW);
+
+    @Test
+    public void parse_declaredRules_compiled() throws IOException {
+        AlarmRuleEngine engine = AlarmRuleEngine.parse(new StringReader(RULES));
+
+        assertEquals(List.of("two-motions", "window-away", "cat-home"), engine.getRules().stream().map(AlarmRule::getName).toList());
+        assertNull(engine.getRules().get(2).getSensorType());
+        assertTrue(engine.getRules().get(1).appliesWhen(ArmingStatus.ARMED_AWAY));
+        assertFalse(engine.getRules().get(1).appliesWhen(ArmingStatus.ARMED_HOME));
+    }
+
+    @Test
+    public void sensorActivated_twoDifferentSensorsWithinWindow_fires() throws IOException {
+        AlarmRuleEngine engine = AlarmRuleEngine.parse(new StringReader(RULES));
+
+        assertNull(engine.sensorActivated(motion1, ArmingStatus.ARMED_HOME, 0));
+        assertNull(engine.sensorActivated(motion1, ArmingStatus.ARMED_HOME, 5_000)); //same sensor again
+        assertEquals(AlarmStatus.ALARM, engine.sensorActivated(motion2, ArmingStatus.ARMED_HOME, 14_000));
+    }
+
+    @Test
+    public void sensorActivated_sensorsTooFarApart_doesNotFire() throws IOException {
+        AlarmRuleEngine engine = AlarmRuleEngine.parse(new StringReader(RULES));
+
+        assertNull(engine.sensorActivated(motion1, ArmingStatus.ARMED_HOME, 0));
+        assertNull(engine.sensorActivated(motion2, ArmingStatus.ARMED_HOME, 10_001));
+        assertEquals(AlarmStatus.ALARM, engine.sensorActivated(motion1, ArmingStatus.ARMED_HOME, 12_000));
+    }
+
+    @Test
+    public void sensorActivated_ruleNotArmedInStatus_doesNotFire() throws IOException {
+        AlarmRuleEngine engine = AlarmRuleEngine.parse(new StringReader(RULES));
+
+        assertNull(engine.sensorActivated(window, ArmingStatus.ARMED_HOME, 0));
+        assertNull(engine.sensorActivated(window, ArmingStatus.DISARMED, 0));
+        assertEquals(AlarmStatus.PENDING_ALARM, engine.sensorActivated(window, ArmingStatus.ARMED_AWAY, 0));
+        assertNull(engine.catDetected(ArmingStatus.ARMED_AWAY));
+        assertEquals(AlarmStatus.ALARM, engine.catDetected(ArmingStatus.ARMED_HOME));
+    }
+
+    @Test
+    public void parse_invalidRule_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> AlarmRule.parse("x: 2 GARAGE -> ALARM"));
+        assertThrows(IllegalArgumentException.class, () -> AlarmRule.parse("x: 0 DOOR -> ALARM"));
+        assertThrows(IllegalArgumentException.class, () -> AlarmRule.parse("x: 1 DOOR -> NO_ALARM"));
+        assertThrows(IllegalArgumentException.class, () -> AlarmRule.parse("x: 1 DOOR within 5 -> ALARM"));
+        assertThrows(IllegalArgumentException.class, () -> AlarmRule.parse("1 DOOR -> ALARM"));
+    }
+
+    @Test
+    public void securityService_rulesInstalled_replaceBuiltInRaising() throws IOException {
+        SecurityService service = new SecurityService(new InMemorySecurityRepositoryImpl(), new ReplayImageService());
+        service.setAlarmRules(AlarmRuleEngine.parse(new StringReader(RULES)));
+        service.addSensor(window);
+        service.addSensor(motion1);
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        //built in, any sensor while armed would be pending
+        service.changeSensorActivationStatus(window, true);
+        service.changeSensorActivationStatus(motion1, true);
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+
+        BufferedImage cat = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        cat.setRGB(0, 0, 0xFFFFFF);
+        service.processImage(cat);
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+    }
+}
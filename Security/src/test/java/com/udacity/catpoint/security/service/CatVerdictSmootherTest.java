@@ -0,0 +1,136 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.ImageClassification;
+import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.security.application.SecurityEventListener;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.SecurityEvent;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatVerdictSmootherTest {
+
+    @Test
+    public void update_jitterAroundHalf_verdictNeverFlips() {
+        CatVerdictSmoother smoother = CatVerdictSmoother.parse("0.3/60/40");
+        for(int i = 0; i < 100; i++) {
+            assertFalse(smoother.update("yard", i % 2 == 0 ? 75 : 25));
+        }
+    }
+
+    @Test
+    public void update_sustainedCatThenNone_entersAndLeavesWithHysteresis() {
+        CatVerdictSmoother smoother = new CatVerdictSmoother(0.5f, 60, 40);
+        assertFalse(smoother.update("yard", 90)); //45
+        assertTrue(smoother.update("yard", 90)); //67.5
+        assertTrue(smoother.update("yard", 30)); //48.75, between the thresholds
+        assertFalse(smoother.update("yard", 10)); //29.4
+        assertEquals(29.375f, smoother.getAverage("yard"), 0.001f);
+    }
+
+    @Test
+    public void update_camerasAreIndependent() {
+        CatVerdictSmoother smoother = new CatVerdictSmoother(1, 50, 50);
+        assertTrue(smoother.update("yard", 90));
+        assertFalse(smoother.update("garage", 10));
+        assertTrue(smoother.update("yard", 60));
+        assertEquals(2, smoother.getCameraCount());
+    }
+
+    @Test
+    public void parse_invalidSettings_throws() {
+        assertThrows(IllegalArgumentException.class, () -> CatVerdictSmoother.parse("0.3/40/60"));
+        assertThrows(IllegalArgumentException.class, () -> CatVerdictSmoother.parse("0/60/40"));
+        assertThrows(IllegalArgumentException.class, () -> CatVerdictSmoother.parse("0.3,60,40"));
+    }
+
+    @Test
+    public void processImage_withSmoother_oneClassificationPerFrameAndNoThrash() {
+        float[] confidences = {80, 20, 80, 20, 95, 95, 95, 60, 10, 10};
+        int[] frame = {0};
+        ImageService imageService = new ImageService() {
+            @Override
+            public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+                throw new AssertionError("classify should be used");
+            }
+
+            @Override
+            public ImageClassification classify(BufferedImage image, float minConfidence) {
+                return new ImageClassification(List.of(new ImageClassification.Label("Cat", confidences[frame[0]++])));
+            }
+        };
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepositoryImpl(), imageService);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        securityService.setVerdictSmoother(CatVerdictSmoother.parse("0.4/60/40"));
+        List<SecurityEvent> events = new ArrayList<>();
+        SecurityEventListener listener = events::add;
+        securityService.addEventListener(listener);
+
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        List<Boolean> verdicts = new ArrayList<>();
+        for(int i = 0; i < confidences.length; i++) {
+            securityService.processImage(image);
+            verdicts.add(securityService.getIsCatDetected());
+        }
+
+        assertEquals(confidences.length, frame[0]);
+        assertEquals(List.of(false, false, false, false, true, true, true, true, true, false), verdicts);
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+        assertEquals(2, events.stream().filter(e -> e.getType().name().startsWith("CAT")).count());
+    }
+
+    @Test
+    public void processImage_confidenceBelowExitThreshold_averagedInAsScored() {
+        float[] confidences = {90, 90, 30};
+        int[] frame = {0};
+        ImageService imageService = new ImageService() {
+            @Override
+            public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+                throw new AssertionError("classify should be used");
+            }
+
+            @Override
+            public ImageClassification classify(BufferedImage image, float minConfidence) {
+                float confidence = confidences[frame[0]++];
+                return confidence < minConfidence ? ImageClassification.EMPTY
+                        : new ImageClassification(List.of(new ImageClassification.Label("Cat", confidence)));
+            }
+        };
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepositoryImpl(), imageService);
+        CatVerdictSmoother smoother = new CatVerdictSmoother(0.5f, 60, 40);
+        securityService.setVerdictSmoother(smoother);
+
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        for(int i = 0; i < confidences.length; i++) {
+            securityService.processImage(image);
+        }
+
+        //45, 67.5, then 48.75 with the 30 counted; it would be 33.75 had it been dropped as 0
+        assertEquals(48.75f, smoother.getAverage(SecurityService.DEFAULT_CAMERA), 0.001f);
+        assertTrue(securityService.getIsCatDetected());
+    }
+
+    @Test
+    public void processImage_verdictOnlyImageService_classifiedAtDefaultThreshold() {
+        //like a real classifier, finds a cat in anything once the threshold is low enough
+        ImageService imageService = (image, confidenceThreshhold) -> confidenceThreshhold < 40;
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepositoryImpl(), imageService);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        securityService.setVerdictSmoother(new CatVerdictSmoother(0.5f, 60, 40));
+
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        for(int i = 0; i < 5; i++) {
+            securityService.processImage(image);
+        }
+
+        assertFalse(securityService.getIsCatDetected());
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+    }
+}
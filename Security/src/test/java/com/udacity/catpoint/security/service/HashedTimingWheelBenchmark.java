@@ -0,0 +1,77 @@
+package com.udacity.catpoint.security.service;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Standalone benchmark of scheduling and cancelling entry-delay countdowns for many sites at
+ * once, on the timing wheel and on a single-threaded {@link ScheduledThreadPoolExecutor}.
+ * Not part of the unit test suite; run the main method from the test classpath.
+ */
+public class HashedTimingWheelBenchmark {
+
+    private static final int COUNTDOWNS = 500_000;
+    private static final Runnable ESCALATE = () -> { };
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("%-10s %14s %14s %14s%n", "scheduler", "schedule ns", "cancel ns", "heap B/timer");
+        for(int round = 0; round < 2; round++) { //first round is warm-up
+            HashedTimingWheel wheel = new HashedTimingWheel(Duration.ofMillis(100), 512);
+            HashedTimingWheel.Timeout[] timeouts = new HashedTimingWheel.Timeout[COUNTDOWNS];
+            long heap = usedHeap();
+            long start = System.nanoTime();
+            for(int i = 0; i < COUNTDOWNS; i++) {
+                timeouts[i] = wheel.schedule(ESCALATE, Duration.ofSeconds(30 + i % 60));
+            }
+            long scheduled = System.nanoTime() - start;
+            Thread.sleep(300); //let the wheel move them into their buckets
+            long bytes = usedHeap() - heap;
+            start = System.nanoTime();
+            for(int i = 0; i < COUNTDOWNS; i += 2) {
+                timeouts[i].cancel();
+            }
+            long cancelled = System.nanoTime() - start;
+            if(round == 1) {
+                print("wheel", scheduled, cancelled, bytes);
+            }
+            timeouts = null;
+            wheel.close();
+
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+            executor.setRemoveOnCancelPolicy(true);
+            ScheduledFuture<?>[] futures = new ScheduledFuture<?>[COUNTDOWNS];
+            heap = usedHeap();
+            start = System.nanoTime();
+            for(int i = 0; i < COUNTDOWNS; i++) {
+                futures[i] = executor.schedule(ESCALATE, 30 + i % 60, TimeUnit.SECONDS);
+            }
+            scheduled = System.nanoTime() - start;
+            bytes = usedHeap() - heap;
+            start = System.nanoTime();
+            for(int i = 0; i < COUNTDOWNS; i += 2) {
+                futures[i].cancel(false);
+            }
+            cancelled = System.nanoTime() - start;
+            if(round == 1) {
+                print("executor", scheduled, cancelled, bytes);
+            }
+            futures = null;
+            executor.shutdownNow();
+        }
+    }
+
+    private static void print(String scheduler, long scheduled, long cancelled, long bytes) {
+        System.out.printf("%-10s %14.1f %14.1f %14d%n", scheduler, (double) scheduled / COUNTDOWNS,
+                (double) cancelled / (COUNTDOWNS / 2), bytes / COUNTDOWNS);
+    }
+
+    private static long usedHeap() {
+        for(int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,75 @@
+package com.udacity.catpoint.security.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimingWheelTest {
+
+    private HashedTimingWheel wheel;
+
+    @BeforeEach
+    void init() {
+        wheel = new HashedTimingWheel(Duration.ofMillis(5), 8);
+    }
+
+    @AfterEach
+    void close() {
+        wheel.close();
+    }
+
+    @Test
+    public void schedule_timeoutsBeyondOneRotation_runInDeadlineOrder() throws InterruptedException {
+        //the wheel spans 40ms, so these need up to three rotations
+        List<Integer> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        long start = System.nanoTime();
+        wheel.schedule(() -> { fired.add(120); done.countDown(); }, Duration.ofMillis(120));
+        wheel.schedule(() -> { fired.add(10); done.countDown(); }, Duration.ofMillis(10));
+        wheel.schedule(() -> { fired.add(60); done.countDown(); }, Duration.ofMillis(60));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(10, 60, 120), fired);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(120));
+        assertEquals(0, wheel.getPendingCount());
+    }
+
+    @Test
+    public void cancel_beforeDeadline_taskNeverRuns() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        HashedTimingWheel.Timeout cancelled = wheel.schedule(runs::incrementAndGet, Duration.ofMillis(30));
+        CountDownLatch later = new CountDownLatch(1);
+        wheel.schedule(later::countDown, Duration.ofMillis(60));
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+        assertFalse(cancelled.isExpired());
+    }
+
+    @Test
+    public void schedule_manyTimeouts_allRunOnceAndFailuresAreContained() throws InterruptedException {
+        int count = 100_000;
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(count);
+        wheel.schedule(() -> { throw new IllegalStateException("failing task"); }, Duration.ZERO);
+        for(int i = 0; i < count; i++) {
+            wheel.schedule(() -> { runs.incrementAndGet(); done.countDown(); }, Duration.ofMillis(i % 100));
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(count, runs.get());
+        assertEquals(0, wheel.getPendingCount());
+        assertEquals(1, wheel.getFailedCount());
+    }
+}
@@ -0,0 +1,52 @@
+package com.udacity.catpoint.security.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    public void getPercentile_uniformLatencies_withinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(int micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_000, histogram.getPercentileNanos(50), 500_000 * 0.125);
+        assertEquals(990_000, histogram.getPercentileNanos(99), 990_000 * 0.125);
+        assertEquals(1_000_000, histogram.getPercentileNanos(100));
+    }
+
+    @Test
+    public void getPercentile_nothingRecorded_zero() {
+        assertEquals(Duration.ZERO, new LatencyHistogram().getPercentile(99));
+    }
+
+    @Test
+    public void getCountAbove_slowOutliers_counted() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(int i = 0; i < 98; i++) {
+            histogram.record(Duration.ofMillis(1).toNanos());
+        }
+        histogram.record(Duration.ofMillis(50).toNanos());
+        histogram.record(Duration.ofSeconds(2).toNanos());
+
+        assertEquals(2, histogram.getCountAbove(Duration.ofMillis(10)));
+        assertEquals(Duration.ofSeconds(2), Duration.ofNanos(histogram.getMaxNanos()));
+    }
+
+    @Test
+    public void bucketOf_anyValue_withinItsBucketBounds() {
+        SplittableRandom random = new SplittableRandom(7);
+        for(int i = 0; i < 100_000; i++) {
+            long value = random.nextLong(Long.MAX_VALUE) >>> random.nextInt(63);
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(value <= LatencyHistogram.upperBound(bucket), "value " + value);
+            assertTrue(bucket == 0 || value > LatencyHistogram.upperBound(bucket - 1), "value " + value);
+        }
+    }
+}
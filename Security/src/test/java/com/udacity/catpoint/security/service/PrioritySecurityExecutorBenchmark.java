@@ -0,0 +1,174 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Standalone benchmark printing the p99 latency of sensor events while cameras flood the
+ * system with frames, for a single FIFO thread shared by frames and sensor events and for a
+ * {@link PrioritySecurityExecutor}. Then prints the p99 latency of door events while motion
+ * sensors chatter, with motion sensors immediate and with them sampled. Not part of the unit
+ * test suite; run the main method from the test classpath. Optional arguments: frames per
+ * second, sensor events.
+ */
+public class PrioritySecurityExecutorBenchmark {
+
+    private static final long CLASSIFICATION_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long SENSOR_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final int MOTION_SENSORS = 500;
+
+    public static void main(String[] args) throws Exception {
+        int framesPerSecond = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int sensorEvents = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        System.out.printf("%d frames/sec at %d ms each, %d sensor events%n",
+                framesPerSecond, TimeUnit.NANOSECONDS.toMillis(CLASSIFICATION_NANOS), sensorEvents);
+        System.out.printf("%-10s %15s %15s %15s%n", "", "sensor p50 ms", "sensor p99 ms", "sensor max ms");
+        print("shared", sharedThread(framesPerSecond, sensorEvents));
+        print("lanes", lanes(framesPerSecond, sensorEvents));
+
+        System.out.printf("%n%d motion sensors flipping as fast as they can%n", MOTION_SENSORS);
+        System.out.printf("%-10s %15s %15s %15s %15s%n", "", "door p50 ms", "door p99 ms", "door max ms", "motion applied");
+        print("immediate", motionChatter(new SensorPaths(Map.of()), sensorEvents));
+        print("sampled", motionChatter(SensorPaths.DEFAULT, sensorEvents));
+    }
+
+    private static void print(String name, LatencyHistogram latency) {
+        System.out.printf("%-10s %15.2f %15.2f %15.2f%n", name, latency.getPercentileNanos(50) / 1e6,
+                latency.getPercentileNanos(99) / 1e6, latency.getMaxNanos() / 1e6);
+    }
+
+    private static void print(String name, PrioritySecurityExecutor executor) {
+        LatencyHistogram latency = executor.getLatency(SensorType.DOOR);
+        System.out.printf("%-10s %15.2f %15.2f %15.2f %15d%n", name, latency.getPercentileNanos(50) / 1e6,
+                latency.getPercentileNanos(99) / 1e6, latency.getMaxNanos() / 1e6,
+                executor.getLatency(SensorType.MOTION).getCount());
+    }
+
+    /**
+     * Door events while producers flip motion sensors back to back, filling the motion queue
+     * when motion sensors are immediate.
+     * @return The closed executor, for its metrics
+     */
+    private static PrioritySecurityExecutor motionChatter(SensorPaths paths, int doorEvents) throws InterruptedException {
+        SecurityService service = newService();
+        Sensor door = addDoor(service);
+        Sensor[] motion = new Sensor[MOTION_SENSORS];
+        for(int i = 0; i < motion.length; i++) {
+            motion[i] = new Sensor("Motion " + i, SensorType.MOTION);
+            service.addSensor(motion[i]);
+        }
+        PrioritySecurityExecutor executor = new PrioritySecurityExecutor(service, 1024, 1, 16, paths);
+        Thread chatter = new Thread(() -> {
+            try {
+                for(long i = 0; !Thread.currentThread().isInterrupted(); i++) {
+                    executor.changeSensorActivationStatus(motion[(int) (i % motion.length)], (i / motion.length) % 2 == 0);
+                }
+            } catch (InterruptedException e) {
+                //done
+            }
+        });
+        chatter.setDaemon(true);
+        chatter.start();
+        for(int i = 0; i < doorEvents; i++) {
+            executor.changeSensorActivationStatus(door, i % 2 == 0);
+            LockSupport.parkNanos(SENSOR_INTERVAL_NANOS);
+        }
+        chatter.interrupt();
+        chatter.join();
+        executor.close();
+        return executor;
+    }
+
+    /**
+     * Frames and sensor events queued in arrival order on one thread, which classifies the frames.
+     */
+    private static LatencyHistogram sharedThread(int framesPerSecond, int sensorEvents) throws InterruptedException {
+        SecurityService service = newService();
+        Sensor door = addDoor(service);
+        LatencyHistogram latency = new LatencyHistogram();
+        ThreadPoolExecutor shared = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1024), new ThreadPoolExecutor.DiscardPolicy());
+        shared.prestartAllCoreThreads();
+        Thread cameras = cameras(framesPerSecond, image -> shared.execute(() -> service.processImage("yard", image)));
+        for(int i = 0; i < sensorEvents; i++) {
+            long submitted = System.nanoTime();
+            boolean active = i % 2 == 0;
+            shared.getQueue().put(() -> {
+                service.changeSensorActivationStatus(door, active);
+                latency.record(System.nanoTime() - submitted);
+            });
+            LockSupport.parkNanos(SENSOR_INTERVAL_NANOS);
+        }
+        cameras.interrupt();
+        cameras.join();
+        shared.shutdown();
+        shared.awaitTermination(1, TimeUnit.MINUTES);
+        return latency;
+    }
+
+    private static LatencyHistogram lanes(int framesPerSecond, int sensorEvents) throws InterruptedException {
+        SecurityService service = newService();
+        Sensor door = addDoor(service);
+        try (PrioritySecurityExecutor executor = new PrioritySecurityExecutor(service, 1024, 1, 1024)) {
+            Thread cameras = cameras(framesPerSecond, image -> {
+                try {
+                    executor.processImage("yard", image);
+                } catch (RejectedExecutionException e) {
+                    //frame dropped, the classifier is behind
+                }
+            });
+            for(int i = 0; i < sensorEvents; i++) {
+                executor.changeSensorActivationStatus(door, i % 2 == 0);
+                LockSupport.parkNanos(SENSOR_INTERVAL_NANOS);
+            }
+            cameras.interrupt();
+            cameras.join();
+            return executor.getLatency(SensorType.DOOR);
+        }
+    }
+
+    private static Thread cameras(int framesPerSecond, Consumer<BufferedImage> frames) {
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        long interval = TimeUnit.SECONDS.toNanos(1) / framesPerSecond;
+        Thread cameras = new Thread(() -> {
+            while(!Thread.currentThread().isInterrupted()) {
+                frames.accept(image);
+                LockSupport.parkNanos(interval);
+            }
+        });
+        cameras.setDaemon(true);
+        cameras.start();
+        return cameras;
+    }
+
+    private static SecurityService newService() {
+        ImageService slowClassifier = (image, threshold) -> {
+            long end = System.nanoTime() + CLASSIFICATION_NANOS;
+            while(System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+            return false;
+        };
+        SecurityService service = new SecurityService(new InMemorySecurityRepositoryImpl(), slowClassifier);
+        service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        return service;
+    }
+
+    private static Sensor addDoor(SecurityService service) {
+        Sensor door = new Sensor("Front door", SensorType.DOOR);
+        service.addSensor(door);
+        return door;
+    }
+}
@@ -0,0 +1,261 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.SecurityEvent;
+import com.udacity.catpoint.security.data.SecurityEventType;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.PrioritySecurityExecutor.Lane;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrioritySecurityExecutorTest {
+
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private SecurityService securityService;
+    private PrioritySecurityExecutor executor;
+
+    @BeforeEach
+    void init() {
+        securityService = new SecurityService(new InMemorySecurityRepositoryImpl(), (image, threshold) -> true);
+        executor = new PrioritySecurityExecutor(securityService, 4, 1, 10);
+    }
+
+    @AfterEach
+    void close() {
+        gate.countDown();
+        executor.close();
+    }
+
+    /**
+     * Keeps the dispatcher busy until the gate opens, so events pile up in the lanes.
+     */
+    private void holdDispatcher() throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+        executor.submit(Lane.NOTIFICATION, s -> {
+            running.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void dispatch_queuedVerdictsAndSensorEvents_sensorEventsFirst() throws InterruptedException {
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        holdDispatcher();
+        executor.offer(Lane.NOTIFICATION, s -> order.add("notification"));
+        executor.offer(Lane.IMAGE, s -> order.add("image 1"));
+        executor.offer(Lane.IMAGE, s -> order.add("image 2"));
+        executor.submit(Lane.ALARM, s -> order.add("sensor 1"));
+        executor.submit(Lane.ALARM, s -> order.add("sensor 2"));
+        gate.countDown();
+        executor.awaitQuiescence();
+
+        assertEquals(List.of("sensor 1", "sensor 2", "image 1", "image 2", "notification"), order);
+        assertEquals(2, executor.getLatency(Lane.ALARM).getCount());
+    }
+
+    @Test
+    public void offer_laneFull_eventDroppedAndCounted() throws InterruptedException {
+        holdDispatcher();
+        for(int i = 0; i < 4; i++) {
+            assertTrue(executor.offer(Lane.IMAGE, s -> {}));
+        }
+        assertFalse(executor.offer(Lane.IMAGE, s -> {}));
+
+        assertEquals(4, executor.getQueuedCount(Lane.IMAGE));
+        assertEquals(1, executor.getRejectedCount(Lane.IMAGE));
+        assertEquals(0, executor.getRejectedCount(Lane.ALARM));
+    }
+
+    @Test
+    public void submit_eventThrows_countedAsFailedWithoutLatency() throws InterruptedException {
+        executor.submit(Lane.ALARM, s -> {
+            throw new IllegalStateException("broken event");
+        });
+        executor.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        executor.awaitQuiescence();
+
+        assertEquals(1, executor.getFailedCount(Lane.ALARM));
+        assertEquals(1, executor.getLatency(Lane.ALARM).getCount());
+        assertEquals(ArmingStatus.ARMED_AWAY, securityService.getArmingStatus());
+    }
+
+    @Test
+    public void processImage_catWhileArmedHome_alarm() throws Exception {
+        executor.setArmingStatus(ArmingStatus.ARMED_HOME);
+        executor.processImage("yard", new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB)).get(5, TimeUnit.SECONDS);
+        executor.awaitQuiescence();
+
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+        assertEquals(1, executor.getLatency(Lane.IMAGE).getCount());
+    }
+
+    @Test
+    public void deferredListener_receivesEventsAfterSensorLane() throws InterruptedException {
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        securityService.addSensor(door);
+        List<SecurityEventType> events = Collections.synchronizedList(new ArrayList<>());
+        securityService.addEventListener(executor.deferred((SecurityEvent event) -> events.add(event.getType())));
+        executor.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        executor.changeSensorActivationStatus(door, true);
+        executor.awaitQuiescence();
+
+        assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+        assertEquals(List.of(SecurityEventType.ARMING_STATUS_CHANGED, SecurityEventType.SENSOR_ACTIVATED,
+                SecurityEventType.ALARM_STATUS_CHANGED), events);
+    }
+
+    @Test
+    public void motionChatter_aggregatedIntoOneSample() throws InterruptedException {
+        Sensor motion = new Sensor("Hallway", SensorType.MOTION);
+        securityService.addSensor(motion);
+        List<SecurityEventType> events = Collections.synchronizedList(new ArrayList<>());
+        securityService.addEventListener(event -> events.add(event.getType()));
+        for(int i = 0; i < 1000; i++) {
+            executor.changeSensorActivationStatus(motion, i % 2 == 0);
+        }
+        executor.awaitQuiescence();
+
+        assertEquals(1000, executor.getReceivedCount(SensorType.MOTION));
+        assertEquals(1, executor.getLatency(SensorType.MOTION).getCount());
+        assertEquals(List.of(SecurityEventType.SENSOR_ACTIVATED, SecurityEventType.SENSOR_DEACTIVATED), events);
+        assertFalse(motion.getActive());
+    }
+
+    @Test
+    public void motionSamples_activeSensorActivatedAgain_alarmEscalates() throws InterruptedException {
+        Sensor motion = new Sensor("Hallway", SensorType.MOTION);
+        securityService.addSensor(motion);
+        executor.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        executor.changeSensorActivationStatus(motion, true);
+        executor.awaitQuiescence();
+        assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+
+        executor.changeSensorActivationStatus(motion, false);
+        executor.changeSensorActivationStatus(motion, true);
+        executor.awaitQuiescence();
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    public void doorEvent_submittedAfterMotionSamples_appliedAfterThem() throws InterruptedException {
+        executor.close();
+        executor = new PrioritySecurityExecutor(securityService, 4, 1, 10,
+                new SensorPaths(Map.of(SensorType.MOTION, Duration.ofMinutes(1))));
+        List<UUID> order = Collections.synchronizedList(new ArrayList<>());
+        securityService.addEventListener(event -> {
+            if(event.getType() == SecurityEventType.SENSOR_ACTIVATED) {
+                order.add(event.getSensorId());
+            }
+        });
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        securityService.addSensor(door);
+        List<UUID> expected = new ArrayList<>();
+        holdDispatcher();
+        for(int i = 0; i < 3; i++) {
+            Sensor motion = new Sensor("Motion " + i, SensorType.MOTION);
+            securityService.addSensor(motion);
+            executor.changeSensorActivationStatus(motion, true);
+            expected.add(motion.getSensorId());
+        }
+        executor.changeSensorActivationStatus(door, true);
+        expected.add(door.getSensorId());
+        gate.countDown();
+        executor.awaitQuiescence();
+
+        //the door does not wait for the interval to end, but the samples started before it go first
+        assertEquals(expected, order);
+        assertEquals(3, executor.getLatency(SensorType.MOTION).getCount());
+        assertEquals(1, executor.getLatency(SensorType.DOOR).getCount());
+    }
+
+    @Test
+    public void motionActive_thenArmedAway_noAlarm() throws InterruptedException {
+        Sensor motion = new Sensor("Hallway", SensorType.MOTION);
+        securityService.addSensor(motion);
+        executor.changeSensorActivationStatus(motion, true);
+        executor.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        executor.awaitQuiescence();
+
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+        assertEquals(ArmingStatus.ARMED_AWAY, securityService.getArmingStatus());
+    }
+
+    @Test
+    public void armedAway_thenMotionActive_pendingAlarm() throws InterruptedException {
+        Sensor motion = new Sensor("Hallway", SensorType.MOTION);
+        securityService.addSensor(motion);
+        holdDispatcher();
+        executor.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        executor.changeSensorActivationStatus(motion, true);
+        gate.countDown();
+        executor.awaitQuiescence();
+
+        assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    public void submit_afterClose_rejected() {
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        Sensor motion = new Sensor("Hallway", SensorType.MOTION);
+        securityService.addSensor(door);
+        securityService.addSensor(motion);
+        executor.close();
+
+        assertThrows(RejectedExecutionException.class, () -> executor.submit(Lane.ALARM, s -> {}));
+        assertThrows(RejectedExecutionException.class, () -> executor.changeSensorActivationStatus(door, true));
+        assertThrows(RejectedExecutionException.class, () -> executor.changeSensorActivationStatus(motion, true));
+        assertThrows(RejectedExecutionException.class, () -> executor.awaitQuiescence());
+        assertFalse(executor.offer(Lane.IMAGE, s -> {}));
+        assertFalse(door.getActive());
+    }
+
+    @Test
+    public void close_submitterBlockedOnFullLane_eventApplied() throws InterruptedException {
+        holdDispatcher();
+        for(int i = 0; i < 4; i++) {
+            executor.submit(Lane.ALARM, s -> {});
+        }
+        CountDownLatch applied = new CountDownLatch(1);
+        Thread submitter = new Thread(() -> {
+            try {
+                executor.submit(Lane.ALARM, s -> applied.countDown());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        submitter.start();
+        while(submitter.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        Thread closer = new Thread(executor::close);
+        closer.start();
+        gate.countDown();
+        closer.join(5_000);
+        submitter.join(5_000);
+
+        assertFalse(closer.isAlive());
+        assertEquals(0, applied.getCount());
+    }
+}
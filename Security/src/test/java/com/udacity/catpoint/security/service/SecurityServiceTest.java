@@ -18,6 +18,7 @@ import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Random;
@@ -266,6 +267,7 @@ class SecurityServiceTest {
     public void processImage_imageServiceIdentifiesCatAndAlarmArmedHome_changeStatusToAlarm() {
         when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
         when(imageService.imageContainsCat(any(), ArgumentMatchers.anyFloat())).thenReturn(true);
+        when(securityRepository.getCatCameraCount()).thenReturn(1); //the camera's cat, once recorded
         securityService.processImage(mock(BufferedImage.class));
 
         verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
@@ -387,6 +389,84 @@ class SecurityServiceTest {
         verify(securityRepository, never()).setAlarmStatus(AlarmStatus.ALARM);
     }
 
+    // Alarm status changes, sensor activation changes, added and removed sensors and image verdicts are published as events.
+    @Test
+    public void setAlarmStatus_eventListenerRegistered_alarmStatusEventPublished() {
+        List<SecurityEvent> events = new ArrayList<>();
+        securityService.addEventListener(events::add);
+
+        securityService.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+
+        assertEquals(1, events.size());
+        assertEquals(SecurityEventType.ALARM_STATUS_CHANGED, events.get(0).getType());
+        assertEquals(AlarmStatus.PENDING_ALARM, events.get(0).getAlarmStatus());
+    }
+
+    @Test
+    public void changeSensorActivationStatus_eventListenerRegistered_sensorEventPublished() {
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.DISARMED);
+        when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+        List<SecurityEvent> events = new ArrayList<>();
+        securityService.addEventListener(events::add);
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+
+        securityService.changeSensorActivationStatus(door, true);
+
+        assertEquals(1, events.size());
+        assertEquals(SecurityEventType.SENSOR_ACTIVATED, events.get(0).getType());
+        assertEquals(door.getSensorId(), events.get(0).getSensorId());
+    }
+
+    @Test
+    public void addAndRemoveSensor_eventListenerRegistered_sensorPublishedWithNameAndType() {
+        List<SecurityEvent> events = new ArrayList<>();
+        securityService.addEventListener(events::add);
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+
+        securityService.addSensor(door);
+        securityService.removeSensor(door);
+
+        assertEquals(List.of(SecurityEventType.SENSOR_ADDED, SecurityEventType.SENSOR_REMOVED),
+                events.stream().map(SecurityEvent::getType).toList());
+        assertEquals("Door", events.get(0).getSensor().getName());
+        assertEquals(SensorType.DOOR, events.get(1).getSensor().getSensorType());
+    }
+
+    @Test
+    public void processImage_catDetectedWhileArmedHome_verdictPublishedBeforeAlarm() {
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+        when(imageService.imageContainsCat(any(), ArgumentMatchers.anyFloat())).thenReturn(true);
+        when(securityRepository.getCatCameraCount()).thenReturn(1);
+        List<SecurityEvent> events = new ArrayList<>();
+        securityService.addEventListener(events::add);
+
+        securityService.processImage(mock(BufferedImage.class));
+
+        assertEquals(List.of(SecurityEventType.CAT_DETECTED, SecurityEventType.ALARM_STATUS_CHANGED),
+                events.stream().map(SecurityEvent::getType).toList());
+    }
+
+    @Test
+    public void processImage_noCatOnOneCameraWhileAnotherSeesCat_catAndAlarmKept() {
+        BufferedImage catImage = mock(BufferedImage.class);
+        BufferedImage emptyImage = mock(BufferedImage.class);
+        when(imageService.imageContainsCat(eq(catImage), ArgumentMatchers.anyFloat())).thenReturn(true);
+        when(imageService.imageContainsCat(eq(emptyImage), ArgumentMatchers.anyFloat())).thenReturn(false);
+        SecurityService service = new SecurityService(new InMemorySecurityRepositoryImpl(), imageService);
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        service.processImage("yard", catImage);
+        service.processImage("garage", emptyImage);
+
+        assertTrue(service.getIsCatDetected());
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+
+        service.processImage("yard", emptyImage);
+
+        assertFalse(service.getIsCatDetected());
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+    }
+
 
     private static Stream<Arguments> differentArmingStatus() {
         return Stream.of(
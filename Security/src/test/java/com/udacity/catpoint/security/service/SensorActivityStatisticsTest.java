@@ -0,0 +1,122 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.SecurityEvent;
+import com.udacity.catpoint.security.service.SensorActivityStatistics.Window;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensorActivityStatisticsTest {
+
+    private static final long SECOND = 1_000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+
+    private final UUID door = UUID.randomUUID();
+    private final UUID window = UUID.randomUUID();
+    private long now;
+    private SensorActivityStatistics statistics;
+
+    @BeforeEach
+    void init() {
+        now = 1_000 * HOUR;
+        statistics = new SensorActivityStatistics(new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(now);
+            }
+        });
+    }
+
+    @Test
+    public void activations_countedPerWindowAndExpire() {
+        for(int i = 0; i < 10; i++) {
+            activate(door);
+            deactivate(door);
+            now += 2 * SECOND;
+        }
+        assertEquals(10, statistics.getActivationCount(door, Window.MINUTE));
+        assertEquals(10, statistics.getActivationCount(door, Window.HOUR));
+
+        now += 2 * MINUTE;
+
+        assertEquals(0, statistics.getActivationCount(door, Window.MINUTE));
+        assertEquals(10, statistics.getActivationCount(door, Window.HOUR));
+        assertEquals(10, statistics.getActivationCount(door, Window.DAY));
+
+        now += 2 * HOUR;
+
+        assertEquals(0, statistics.getActivationCount(door, Window.HOUR));
+        assertEquals(10, statistics.getActivationCount(door, Window.DAY));
+        assertEquals(0, statistics.getActivationCount(window, Window.DAY));
+    }
+
+    @Test
+    public void meanActiveMillis_completedPeriodsOnly() {
+        activate(door);
+        now += 10 * SECOND;
+        deactivate(door);
+        activate(door);
+        now += 20 * SECOND;
+        deactivate(door);
+        activate(door); //still active, not counted
+        now += 5 * SECOND;
+
+        assertEquals(15 * SECOND, statistics.getMeanActiveMillis(door, Window.MINUTE), 0.001);
+        assertTrue(Double.isNaN(statistics.getMeanActiveMillis(window, Window.MINUTE)));
+    }
+
+    @Test
+    public void alarms_onlyAlarmTransitionsCounted() {
+        statistics.onEvent(SecurityEvent.alarmStatusChanged(now, AlarmStatus.PENDING_ALARM));
+        statistics.onEvent(SecurityEvent.alarmStatusChanged(now, AlarmStatus.ALARM));
+        statistics.onEvent(SecurityEvent.alarmStatusChanged(now, AlarmStatus.NO_ALARM));
+        statistics.onEvent(SecurityEvent.alarmStatusChanged(now, AlarmStatus.ALARM));
+
+        assertEquals(2, statistics.getAlarmCount(Window.HOUR));
+        assertEquals(2.0, statistics.getAlarmsPerHour(Window.HOUR), 0.001);
+        assertEquals(120.0, statistics.getAlarmsPerHour(Window.MINUTE), 0.001);
+    }
+
+    @Test
+    public void mostActiveSensors_orderedByActivations() {
+        for(int i = 0; i < 5; i++) {
+            activate(window);
+        }
+        activate(door);
+
+        assertEquals(List.of(window, door), statistics.getMostActiveSensors(Window.MINUTE, 10));
+        assertEquals(List.of(window), statistics.getMostActiveSensors(Window.MINUTE, 1));
+
+        statistics.forgetSensor(window);
+
+        assertEquals(List.of(door), statistics.getMostActiveSensors(Window.MINUTE, 10));
+    }
+
+    private void activate(UUID sensor) {
+        statistics.onEvent(SecurityEvent.sensorActivationChanged(now, sensor, true));
+    }
+
+    private void deactivate(UUID sensor) {
+        statistics.onEvent(SecurityEvent.sensorActivationChanged(now, sensor, false));
+    }
+}
@@ -0,0 +1,28 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.SensorType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensorPathsTest {
+
+    @Test
+    public void parse_sampledAndImmediateTypes() {
+        SensorPaths paths = SensorPaths.parse("motion=100, WINDOW = 0");
+
+        assertTrue(paths.isSampled(SensorType.MOTION));
+        assertEquals(Duration.ofMillis(100), paths.getSamplingInterval(SensorType.MOTION));
+        assertFalse(paths.isSampled(SensorType.WINDOW));
+        assertFalse(paths.isSampled(SensorType.DOOR));
+    }
+
+    @Test
+    public void parse_invalidDeclaration_throws() {
+        assertThrows(IllegalArgumentException.class, () -> SensorPaths.parse("MOTION"));
+        assertThrows(IllegalArgumentException.class, () -> SensorPaths.parse("GARAGE=100"));
+        assertThrows(IllegalArgumentException.class, () -> SensorPaths.parse("MOTION=-5"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Standalone load benchmark printing sensor events/sec of a {@link ShardedSecurityEngine}
+ * for increasing shard counts. Not part of the unit test suite; run the main method from
+ * the test classpath. Optional arguments: max shard count, events per run.
+ */
+public class ShardedSecurityEngineBenchmark {
+
+    private static final int SITES = 10_000;
+    private static final int SENSORS_PER_SITE = 4;
+
+    public static void main(String[] args) throws Exception {
+        int maxShards = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int events = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        System.out.printf("%d sites, %d sensors each, %d events per run, %d cores%n",
+                SITES, SENSORS_PER_SITE, events, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%8s %15s%n", "shards", "events/sec");
+        for(int shards = 1; shards <= maxShards; shards *= 2) {
+            run(shards, events / 4); //warm-up
+            System.out.printf("%8d %15.0f%n", shards, run(shards, events));
+        }
+    }
+
+    private static double run(int shardCount, int events) throws InterruptedException {
+        try (ShardedSecurityEngine engine = new ShardedSecurityEngine(shardCount, 16_384,
+                id -> new InMemorySecurityRepositoryImpl(), (image, threshold) -> false)) {
+            List<UUID[]> sensorIds = new ArrayList<>(SITES);
+            for(int site = 0; site < SITES; site++) {
+                UUID[] ids = new UUID[SENSORS_PER_SITE];
+                for(int s = 0; s < SENSORS_PER_SITE; s++) {
+                    Sensor sensor = new Sensor("Sensor " + s, SensorType.values()[s % SensorType.values().length]);
+                    ids[s] = sensor.getSensorId();
+                    engine.addSensor(siteId(site), sensor);
+                }
+                engine.setArmingStatus(siteId(site), site % 2 == 0 ? ArmingStatus.ARMED_AWAY : ArmingStatus.DISARMED);
+                sensorIds.add(ids);
+            }
+            engine.awaitQuiescence();
+
+            //one producer per shard, each flipping random sensors of random sites
+            int producers = shardCount;
+            Thread[] threads = new Thread[producers];
+            long start = System.nanoTime();
+            for(int p = 0; p < producers; p++) {
+                SplittableRandom random = new SplittableRandom(p);
+                threads[p] = new Thread(() -> {
+                    try {
+                        for(int i = 0; i < events / producers; i++) {
+                            int site = random.nextInt(SITES);
+                            engine.changeSensorActivationStatus(siteId(site),
+                                    sensorIds.get(site)[random.nextInt(SENSORS_PER_SITE)], random.nextBoolean());
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                threads[p].start();
+            }
+            for(Thread t : threads) {
+                t.join();
+            }
+            engine.awaitQuiescence();
+            return events / ((System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    private static String siteId(int site) {
+        return "site-" + site;
+    }
+}
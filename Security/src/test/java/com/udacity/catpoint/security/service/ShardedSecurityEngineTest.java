@@ -0,0 +1,103 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedSecurityEngineTest {
+
+    private final Map<String, SecurityRepository> repositories = new ConcurrentHashMap<>();
+    private ShardedSecurityEngine engine;
+
+    @BeforeEach
+    void init() {
+        engine = new ShardedSecurityEngine(4, 1000,
+                id -> repositories.computeIfAbsent(id, x -> new InMemorySecurityRepositoryImpl()),
+                (image, threshold) -> true);
+    }
+
+    @AfterEach
+    void close() {
+        engine.close();
+    }
+
+    @Test
+    public void shardOf_sameSite_alwaysSameShard() {
+        int shard = engine.shardOf("home-42");
+        for(int i = 0; i < 10; i++) {
+            assertEquals(shard, engine.shardOf("home-42"));
+        }
+        assertTrue(shard >= 0 && shard < engine.getShardCount());
+    }
+
+    @Test
+    public void sensorEvents_appliedInSubmissionOrderPerSite() throws InterruptedException {
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        engine.addSensor("home-1", door);
+        engine.setArmingStatus("home-1", ArmingStatus.ARMED_AWAY);
+        engine.changeSensorActivationStatus("home-1", door.getSensorId(), true);
+        engine.changeSensorActivationStatus("home-1", door.getSensorId(), true);
+        engine.awaitQuiescence();
+
+        assertEquals(AlarmStatus.ALARM, repositories.get("home-1").getAlarmStatus());
+    }
+
+    @Test
+    public void processImage_verdictRoutedToSiteOnly() throws InterruptedException {
+        for(int i = 0; i < 20; i++) {
+            engine.setArmingStatus("home-" + i, ArmingStatus.ARMED_HOME);
+        }
+        engine.processImage("home-7", new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB));
+        engine.awaitQuiescence();
+
+        for(int i = 0; i < 20; i++) {
+            AlarmStatus expected = i == 7 ? AlarmStatus.ALARM : AlarmStatus.NO_ALARM;
+            assertEquals(expected, repositories.get("home-" + i).getAlarmStatus(), "home-" + i);
+        }
+    }
+
+    @Test
+    public void sensorAddedThroughSubmit_foundByIdAndRemovable() throws InterruptedException {
+        Sensor window = new Sensor("Window", SensorType.WINDOW);
+        engine.submit("home-1", service -> service.addSensor(window));
+        engine.setArmingStatus("home-1", ArmingStatus.ARMED_AWAY);
+        engine.changeSensorActivationStatus("home-1", window.getSensorId(), true);
+        engine.awaitQuiescence();
+        assertEquals(AlarmStatus.PENDING_ALARM, repositories.get("home-1").getAlarmStatus());
+
+        engine.setArmingStatus("home-1", ArmingStatus.DISARMED);
+        engine.removeSensor("home-1", window.getSensorId());
+        engine.setArmingStatus("home-1", ArmingStatus.ARMED_AWAY);
+        engine.changeSensorActivationStatus("home-1", window.getSensorId(), true);
+        engine.awaitQuiescence();
+
+        assertEquals(0, repositories.get("home-1").getSensorCount());
+        assertEquals(AlarmStatus.NO_ALARM, repositories.get("home-1").getAlarmStatus());
+    }
+
+    @Test
+    public void failingEvent_countedAndLaterEventsApplied() throws InterruptedException {
+        engine.submit("home-1", service -> {
+            throw new IllegalStateException("broken event");
+        });
+        engine.setArmingStatus("home-1", ArmingStatus.ARMED_AWAY);
+        engine.awaitQuiescence();
+
+        int shard = engine.shardOf("home-1");
+        assertEquals(1, engine.getFailedEventCount(shard));
+        assertEquals(0, engine.getFailedEventCount((shard + 1) % engine.getShardCount()));
+        assertEquals(ArmingStatus.ARMED_AWAY, repositories.get("home-1").getArmingStatus());
+    }
+}
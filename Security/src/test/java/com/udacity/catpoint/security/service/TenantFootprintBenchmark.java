@@ -0,0 +1,41 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+
+/**
+ * Standalone benchmark estimating the heap used per tenant of a {@link TenantSecurityRuntime}.
+ * Not part of the unit test suite; run the main method from the test classpath.
+ */
+public class TenantFootprintBenchmark {
+
+    private static final int TENANT_COUNT = 10_000;
+    private static final int SENSORS_PER_TENANT = 8;
+
+    public static void main(String[] args) throws Exception {
+        try (TenantSecurityRuntime runtime = new TenantSecurityRuntime(
+                (id, persistence) -> new InMemorySecurityRepositoryImpl(), (image, threshold) -> false, 4, 100, 2)) {
+            long before = usedHeap();
+            for(int i = 0; i < TENANT_COUNT; i++) {
+                SecurityService tenant = runtime.getTenant("home-" + i);
+                for(int s = 0; s < SENSORS_PER_TENANT; s++) {
+                    tenant.addSensor(new Sensor("Sensor " + s, SensorType.values()[s % SensorType.values().length]));
+                }
+            }
+            long after = usedHeap();
+            System.out.printf("%d tenants with %d sensors each: %.1f MB total, %d bytes per tenant%n",
+                    runtime.getTenantCount(), SENSORS_PER_TENANT, (after - before) / 1024.0 / 1024.0,
+                    (after - before) / TENANT_COUNT);
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for(int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,108 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.Preferences;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenantSecurityRuntimeTest {
+
+    private final CountDownLatch classifierGate = new CountDownLatch(1);
+    private TenantSecurityRuntime runtime;
+
+    @BeforeEach
+    void init() {
+        //the "classifier" sees a cat in every image once the gate is open
+        runtime = new TenantSecurityRuntime((id, persistence) -> new InMemorySecurityRepositoryImpl(),
+                (image, threshold) -> {
+                    try {
+                        return classifierGate.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        return false;
+                    }
+                }, 1, 1, 1);
+    }
+
+    @AfterEach
+    void close() {
+        classifierGate.countDown();
+        runtime.close();
+    }
+
+    @Test
+    public void getTenant_sameId_returnsSameService() {
+        assertSame(runtime.getTenant("home-1"), runtime.getTenant("home-1"));
+        assertEquals(1, runtime.getTenantCount());
+    }
+
+    @Test
+    public void tenants_changedIndependently_stateIsolated() {
+        SecurityService home1 = runtime.getTenant("home-1");
+        SecurityService home2 = runtime.getTenant("home-2");
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        home1.addSensor(door);
+        home1.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        home1.changeSensorActivationStatus(door, true);
+
+        assertEquals(AlarmStatus.PENDING_ALARM, home1.getAlarmStatus());
+        assertEquals(AlarmStatus.NO_ALARM, home2.getAlarmStatus());
+        assertEquals(ArmingStatus.DISARMED, home2.getArmingStatus());
+        assertTrue(home2.getSensors().isEmpty());
+    }
+
+    @Test
+    public void processImage_catInTenantImage_onlyThatTenantAlarms() throws Exception {
+        runtime.getTenant("home-1").setArmingStatus(ArmingStatus.ARMED_HOME);
+        runtime.getTenant("home-2").setArmingStatus(ArmingStatus.ARMED_HOME);
+        classifierGate.countDown();
+
+        runtime.processImage("home-1", new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB)).get(5, TimeUnit.SECONDS);
+
+        assertEquals(AlarmStatus.ALARM, runtime.getTenant("home-1").getAlarmStatus());
+        assertEquals(AlarmStatus.NO_ALARM, runtime.getTenant("home-2").getAlarmStatus());
+    }
+
+    @Test
+    public void processImage_classificationQueueFull_rejected() {
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        runtime.processImage("home-1", image); //occupies the only classifier thread
+        assertThrows(RejectedExecutionException.class, () -> {
+            for(int i = 0; i < 3; i++) {
+                runtime.processImage("home-1", image);
+            }
+        });
+    }
+
+    @Test
+    public void preferencesTenant_changedAfterClose_stillPersisted() throws Exception {
+        Preferences root = Preferences.userRoot().node("catpoint-tenant-test-" + System.nanoTime());
+        try {
+            TenantSecurityRuntime persistent = new TenantSecurityRuntime(TenantSecurityRuntime.preferencesRepositories(root),
+                    (image, threshold) -> false, 1, 1, 1);
+            SecurityService home = persistent.getTenant("home-1");
+            persistent.close();
+
+            home.setArmingStatus(ArmingStatus.ARMED_AWAY);
+            home.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+
+            PretendDatabaseSecurityRepositoryImpl stored = new PretendDatabaseSecurityRepositoryImpl(root.node("home-1"), Runnable::run);
+            assertEquals(ArmingStatus.ARMED_AWAY, stored.getArmingStatus());
+            assertEquals(AlarmStatus.PENDING_ALARM, stored.getAlarmStatus());
+        } finally {
+            root.removeNode();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.udacity.catpoint.security.simulation;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.InMemorySecurityRepositoryImpl;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecuritySimulatorTest {
+
+    @Test
+    public void run_knownTrace_expectedFinalState() throws Exception {
+        SimulationTrace trace = new SimulationTrace(2, List.of(
+                SimulationStep.arm(0, ArmingStatus.ARMED_AWAY),
+                SimulationStep.sensor(1, 0, true),
+                SimulationStep.sensor(2, 1, true),
+                SimulationStep.image(3, false)));
+
+        SimulationReport report = simulate(trace, 1);
+
+        assertEquals(4, report.getSteps());
+        assertEquals(AlarmStatus.ALARM, report.getAlarmStatus());
+        assertEquals(ArmingStatus.ARMED_AWAY, report.getArmingStatus());
+        assertFalse(report.isCatDetected());
+        assertEquals(2, report.getActiveSensors());
+    }
+
+    @Test
+    public void run_sameSeed_sameFinalState() throws Exception {
+        for(long seed = 0; seed < 5; seed++) {
+            SimulationReport first = simulate(SimulationTrace.generate(seed, 20, 5_000, 0), 1);
+            SimulationReport second = simulate(SimulationTrace.generate(seed, 20, 5_000, 0), 1);
+
+            assertEquals(first.getAlarmStatus(), second.getAlarmStatus());
+            assertEquals(first.getArmingStatus(), second.getArmingStatus());
+            assertEquals(first.isCatDetected(), second.isCatDetected());
+            assertEquals(first.getActiveSensors(), second.getActiveSensors());
+        }
+    }
+
+    @Test
+    public void run_severalThreads_allStepsApplied() throws Exception {
+        SimulationReport report = simulate(SimulationTrace.generate(7, 50, 20_000, 0), 4);
+
+        assertEquals(20_000, report.getSteps());
+        assertTrue(report.getLatencyNanos(50) <= report.getLatencyNanos(99));
+        assertTrue(report.getLatencyNanos(99) <= report.getLatencyNanos(100));
+    }
+
+    @Test
+    public void trace_writtenAndRead_sameSteps() throws IOException {
+        SimulationTrace trace = SimulationTrace.generate(3, 10, 1_000, 500);
+        StringWriter written = new StringWriter();
+        trace.write(written);
+
+        SimulationTrace read = SimulationTrace.read(new StringReader("# recorded\n" + written));
+
+        assertEquals(trace.getSensorCount(), read.getSensorCount());
+        assertEquals(trace.getSteps().toString(), read.getSteps().toString());
+        assertEquals(1_998, read.getSteps().get(999).getOffsetMillis());
+    }
+
+    @Test
+    public void trace_invalidSteps_rejected() {
+        assertThrows(IllegalArgumentException.class, () -> SimulationStep.parse("10 SENSOR 1 yes"));
+        assertThrows(IllegalArgumentException.class, () -> SimulationStep.parse("10 DOOR"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SimulationTrace(2, List.of(SimulationStep.sensor(0, 2, true))));
+    }
+
+    private static SimulationReport simulate(SimulationTrace trace, int threads) throws InterruptedException {
+        return new SecuritySimulator(new InMemorySecurityRepositoryImpl(), new ReplayImageService()).run(trace, threads, 0);
+    }
+}